@@ -0,0 +1,138 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.SearchEngine;
+import search.index.EvaluationMode;
+
+/**
+ * Compares how long it takes to answer a batch of queries when scoring every page with
+ * TfIdfAnalyzer.computeRelevance against the postings-based evaluators.
+ */
+public class Experiment4 {
+    public static final int NUM_TRIALS = 3;
+    public static final long MAX_NUM_PAGES = 10000;
+    public static final long STEP = 1000;
+    public static final int K = 10;
+
+    private static final String[][] QUERIES = {
+        {"w1", "w2"},
+        {"w3", "w40"},
+        {"w1", "w5", "w700"},
+        {"w2", "w8", "w30", "w1200"},
+        {"w1", "w2", "w3", "w4", "w5"},
+        {"w9", "w15000"},
+        {"w6", "w7", "w250", "w3000"},
+        {"w10", "w11", "w12"},
+    };
+
+    // Building a search engine is slow, so we only build one per corpus size.
+    private static IDictionary<Long, SearchEngine> engines = new ChainedHashDictionary<>();
+
+    public static void main(String[] args) {
+        IList<Long> numPages = AnalysisUtils.makeList(STEP, MAX_NUM_PAGES + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runTrials(numPages, Experiment4::test1, NUM_TRIALS);
+        IList<Long> test2Results = AnalysisUtils.runTrials(numPages, Experiment4::test2, NUM_TRIALS);
+        IList<Long> test3Results = AnalysisUtils.runTrials(numPages, Experiment4::test3, NUM_TRIALS);
+        IList<Long> test4Results = AnalysisUtils.runTrials(numPages, Experiment4::test4, NUM_TRIALS);
+        IList<Long> test5Results = AnalysisUtils.runTrials(numPages, Experiment4::test5, NUM_TRIALS);
+        IList<Long> test6Results = AnalysisUtils.runTrials(numPages, Experiment4::test6, NUM_TRIALS);
+        IList<Long> test7Results = AnalysisUtils.runTrials(numPages, Experiment4::test7, NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumPages", numPages);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.addColumn("Test3Result", test3Results);
+        writer.addColumn("Test4Result", test4Results);
+        writer.addColumn("Test5Result", test5Results);
+        writer.addColumn("Test6Result", test6Results);
+        writer.addColumn("Test7Result", test7Results);
+        writer.writeToFile("experimentdata/experiment4.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Scores every page using TfIdfAnalyzer.computeRelevance.
+     */
+    public static long test1(long numPages) {
+        SearchEngine engine = getEngine(numPages);
+        long start = System.currentTimeMillis();
+        for (String[] query : QUERIES) {
+            engine.getTopKResultsExhaustive(toList(query), K);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Scores every page that contains at least one query word.
+     */
+    public static long test2(long numPages) {
+        return runQueries(numPages, EvaluationMode.DOCUMENT_AT_A_TIME);
+    }
+
+    public static long test3(long numPages) {
+        return runQueries(numPages, EvaluationMode.WAND);
+    }
+
+    public static long test4(long numPages) {
+        return runQueries(numPages, EvaluationMode.BLOCK_MAX_WAND);
+    }
+
+    /**
+     * Scores the same pages as test2, but one term at a time into a primitive array.
+     */
+    public static long test5(long numPages) {
+        return runQueries(numPages, EvaluationMode.TERM_AT_A_TIME);
+    }
+
+    /**
+     * Scores pages in tiers of decreasing page rank, stopping once no later tier can compete.
+     */
+    public static long test6(long numPages) {
+        return runQueries(numPages, EvaluationMode.TIERED);
+    }
+
+    /**
+     * Scores the same pages as test5, but adding up 8-bit integer weights.
+     */
+    public static long test7(long numPages) {
+        return runQueries(numPages, EvaluationMode.QUANTIZED_8);
+    }
+
+    private static long runQueries(long numPages, EvaluationMode mode) {
+        SearchEngine engine = getEngine(numPages);
+        engine.setEvaluationMode(mode);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            for (String[] query : QUERIES) {
+                engine.getTopKResults(toList(query), K);
+            }
+        }
+        // We ran every query 10 times to get a measurable duration.
+        return (System.currentTimeMillis() - start) / 10;
+    }
+
+    private static SearchEngine getEngine(long numPages) {
+        if (!engines.containsKey(numPages)) {
+            engines.put(numPages, new SearchEngine(AnalysisUtils.makeWebpages(numPages, numPages)));
+        }
+        return engines.get(numPages);
+    }
+
+    private static IList<String> toList(String[] words) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : words) {
+            output.add(word);
+        }
+        return output;
+    }
+}
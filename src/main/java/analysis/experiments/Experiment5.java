@@ -0,0 +1,120 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.InvertedIndex;
+import search.index.codec.DocIdDecoder;
+import search.index.codec.EliasFanoCodec;
+import search.index.codec.EncodedDocIds;
+import search.index.codec.PostingsCodec;
+import search.index.codec.RawCodec;
+import search.index.codec.VByteCodec;
+
+/**
+ * Compares how much space each postings codec takes to store the doc ids of an
+ * index, and how long it takes to decode all of them.
+ *
+ * Divide a codec's "Bytes" column by "NumPostings" to get its bytes per posting.
+ */
+public class Experiment5 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MAX_NUM_PAGES = 20000;
+    public static final long STEP = 2000;
+
+    private static final PostingsCodec RAW = new RawCodec();
+    private static final PostingsCodec VBYTE = new VByteCodec();
+    private static final PostingsCodec ELIAS_FANO = new EliasFanoCodec();
+
+    // Building an index is slow, so we only build one per corpus size.
+    private static IDictionary<Long, InvertedIndex> indexes = new ChainedHashDictionary<>();
+
+    public static void main(String[] args) {
+        IList<Long> numPages = AnalysisUtils.makeList(STEP, MAX_NUM_PAGES + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> numPostings = AnalysisUtils.runSingleTrial(numPages, Experiment5::countPostings);
+        IList<Long> rawBytes = AnalysisUtils.runSingleTrial(numPages, n -> sizeInBytes(n, RAW));
+        IList<Long> vbyteBytes = AnalysisUtils.runSingleTrial(numPages, n -> sizeInBytes(n, VBYTE));
+        IList<Long> eliasFanoBytes = AnalysisUtils.runSingleTrial(numPages, n -> sizeInBytes(n, ELIAS_FANO));
+        IList<Long> rawTimes = AnalysisUtils.runTrials(numPages, n -> decode(n, RAW), NUM_TRIALS);
+        IList<Long> vbyteTimes = AnalysisUtils.runTrials(numPages, n -> decode(n, VBYTE), NUM_TRIALS);
+        IList<Long> eliasFanoTimes = AnalysisUtils.runTrials(numPages, n -> decode(n, ELIAS_FANO), NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumPages", numPages);
+        writer.addColumn("NumPostings", numPostings);
+        writer.addColumn("RawBytes", rawBytes);
+        writer.addColumn("VByteBytes", vbyteBytes);
+        writer.addColumn("EliasFanoBytes", eliasFanoBytes);
+        writer.addColumn("RawDecodeTime", rawTimes);
+        writer.addColumn("VByteDecodeTime", vbyteTimes);
+        writer.addColumn("EliasFanoDecodeTime", eliasFanoTimes);
+        writer.writeToFile("experimentdata/experiment5.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long countPostings(long numPages) {
+        InvertedIndex index = getIndex(numPages);
+        long total = 0;
+        for (int termId = 0; termId < index.numTerms(); termId++) {
+            total += index.getPostings(termId).size();
+        }
+        return total;
+    }
+
+    public static long sizeInBytes(long numPages, PostingsCodec codec) {
+        long total = 0;
+        for (EncodedDocIds encoded : encodeAll(getIndex(numPages), codec)) {
+            total += encoded.sizeInBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Decodes every doc id in the index 10 times.
+     */
+    public static long decode(long numPages, PostingsCodec codec) {
+        EncodedDocIds[] encoded = encodeAll(getIndex(numPages), codec);
+        DocIdDecoder decoder = codec.newDecoder();
+
+        long start = System.currentTimeMillis();
+        long checksum = 0;
+        for (int i = 0; i < 10; i++) {
+            for (EncodedDocIds docIds : encoded) {
+                decoder.reset(docIds);
+                for (int docId = decoder.next(); docId != DocIdDecoder.NO_MORE_DOCS; docId = decoder.next()) {
+                    checksum += docId;
+                }
+            }
+        }
+        long end = System.currentTimeMillis();
+
+        // Makes sure the JIT can't skip the decoding entirely.
+        if (checksum == 42) {
+            System.out.println("Unlikely checksum");
+        }
+        return end - start;
+    }
+
+    private static EncodedDocIds[] encodeAll(InvertedIndex index, PostingsCodec codec) {
+        EncodedDocIds[] output = new EncodedDocIds[index.numTerms()];
+        for (int termId = 0; termId < index.numTerms(); termId++) {
+            output[termId] = codec.encode(index.getPostings(termId));
+        }
+        return output;
+    }
+
+    private static InvertedIndex getIndex(long numPages) {
+        if (!indexes.containsKey(numPages)) {
+            TfIdfAnalyzer analyzer = new TfIdfAnalyzer(AnalysisUtils.makeWebpages(numPages, numPages));
+            indexes.put(numPages, analyzer.getIndex());
+        }
+        return indexes.get(numPages);
+    }
+}
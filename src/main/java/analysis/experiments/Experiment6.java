@@ -0,0 +1,76 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.StringDoubleDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.models.Webpage;
+
+/**
+ * Compares how much memory the per-page word-weight vectors take up when stored
+ * as ChainedHashDictionary<String, Double> versus StringDoubleDictionary.
+ *
+ * Both sets of vectors hold the same entries (the term frequency of every word
+ * in every page), keyed by the very same String objects, so the difference
+ * between the two comes down to how each dictionary stores its entries.
+ */
+public class Experiment6 {
+    public static final long MAX_NUM_PAGES = 5000;
+    public static final long STEP = 500;
+
+    public static void main(String[] args) {
+        IList<Long> numPages = AnalysisUtils.makeList(STEP, MAX_NUM_PAGES + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runSingleTrial(numPages, Experiment6::test1);
+        IList<Long> test2Results = AnalysisUtils.runSingleTrial(numPages, Experiment6::test2);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumPages", numPages);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.writeToFile("experimentdata/experiment6.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Returns the bytes used by one ChainedHashDictionary<String, Double> per page.
+     */
+    public static long test1(long numPages) {
+        ISet<Webpage> pages = AnalysisUtils.makeWebpages(numPages, numPages);
+        Object[] vectors = new Object[pages.size()];
+        int i = 0;
+        for (Webpage page : pages) {
+            IDictionary<String, Double> vector = new ChainedHashDictionary<>();
+            for (String word : page.getWords()) {
+                vector.put(word, vector.getOrDefault(word, 0.0) + 1.0);
+            }
+            vectors[i] = vector;
+            i++;
+        }
+        return AnalysisUtils.getApproximateMemoryUsed(vectors);
+    }
+
+    /**
+     * Returns the bytes used by one StringDoubleDictionary per page.
+     */
+    public static long test2(long numPages) {
+        ISet<Webpage> pages = AnalysisUtils.makeWebpages(numPages, numPages);
+        Object[] vectors = new Object[pages.size()];
+        int i = 0;
+        for (Webpage page : pages) {
+            StringDoubleDictionary vector = new StringDoubleDictionary();
+            for (String word : page.getWords()) {
+                vector.put(word, vector.getOrDefault(word, 0.0) + 1.0);
+            }
+            vectors[i] = vector;
+            i++;
+        }
+        return AnalysisUtils.getApproximateMemoryUsed(vectors);
+    }
+}
@@ -0,0 +1,218 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.analyzers.DenseRelevanceScorer;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.CompiledQuery;
+import search.index.DotProductKernel;
+import search.index.ScalarDotProductKernel;
+import search.index.UnrolledDotProductKernel;
+
+import java.util.Random;
+
+/**
+ * Compares how long it takes to re-rank a batch of candidate pages with full cosine
+ * similarity, as the number of candidates grows.
+ *
+ * Test1 scores each candidate with TfIdfAnalyzer.computeRelevance. Test2 and Test3
+ * score them with DenseRelevanceScorer, using the scalar and unrolled kernels.
+ * Test4 and Test5 time just the two kernels, on blocks that are already laid out.
+ * Test6 and Test7 are Test2 and Test4 again with DotProductKernel.fastest(), which is
+ * the Vector API kernel when the JVM runs with '--add-modules jdk.incubator.vector'.
+ */
+public class Experiment7 {
+    public static final int NUM_TRIALS = 5;
+    public static final long NUM_PAGES = 5000;
+    public static final long MAX_NUM_CANDIDATES = 1000;
+    public static final long STEP = 100;
+
+    // How many times each batch of candidates gets scored per trial, so the times
+    // come out in a measurable number of milliseconds.
+    public static final int REPETITIONS = 200;
+
+    private static final String[][] QUERIES = {
+        {"w1", "w2"},
+        {"w1", "w5", "w700"},
+        {"w2", "w8", "w30", "w1200"},
+        {"w1", "w2", "w3", "w4", "w5"},
+        {"w6", "w7", "w250", "w3000", "w11", "w12", "w40", "w90"},
+        {"w3", "w4", "w9", "w10", "w17", "w25", "w33", "w50", "w81", "w120", "w300", "w999"},
+    };
+
+    private static TfIdfAnalyzer analyzer;
+
+    public static void main(String[] args) {
+        IList<Long> numCandidates = AnalysisUtils.makeList(STEP, MAX_NUM_CANDIDATES + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test1, NUM_TRIALS);
+        IList<Long> test2Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test2, NUM_TRIALS);
+        IList<Long> test3Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test3, NUM_TRIALS);
+        IList<Long> test4Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test4, NUM_TRIALS);
+        IList<Long> test5Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test5, NUM_TRIALS);
+        IList<Long> test6Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test6, NUM_TRIALS);
+        IList<Long> test7Results = AnalysisUtils.runTrials(numCandidates, Experiment7::test7, NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumCandidates", numCandidates);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.addColumn("Test3Result", test3Results);
+        writer.addColumn("Test4Result", test4Results);
+        writer.addColumn("Test5Result", test5Results);
+        writer.addColumn("Test6Result", test6Results);
+        writer.addColumn("Test7Result", test7Results);
+        writer.writeToFile("experimentdata/experiment7.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Scores each candidate with TfIdfAnalyzer.computeRelevance.
+     */
+    public static long test1(long numCandidates) {
+        TfIdfAnalyzer tfIdf = getAnalyzer();
+        int[] candidates = makeCandidates(numCandidates);
+        IList<CompiledQuery> queries = compileQueries(tfIdf);
+
+        long start = System.currentTimeMillis();
+        double checksum = 0.0;
+        for (int i = 0; i < REPETITIONS; i++) {
+            for (CompiledQuery query : queries) {
+                for (int docId : candidates) {
+                    checksum += tfIdf.computeRelevance(query, docId);
+                }
+            }
+        }
+        long end = System.currentTimeMillis();
+        checkChecksum(checksum);
+        return end - start;
+    }
+
+    /**
+     * Scores the candidates with DenseRelevanceScorer and the scalar kernel.
+     */
+    public static long test2(long numCandidates) {
+        return rescore(numCandidates, new ScalarDotProductKernel());
+    }
+
+    /**
+     * Scores the candidates with DenseRelevanceScorer and the unrolled kernel.
+     */
+    public static long test3(long numCandidates) {
+        return rescore(numCandidates, new UnrolledDotProductKernel());
+    }
+
+    /**
+     * Runs just the scalar kernel over a block with one row per candidate.
+     */
+    public static long test4(long numCandidates) {
+        return runKernel(numCandidates, new ScalarDotProductKernel());
+    }
+
+    /**
+     * Runs just the unrolled kernel over a block with one row per candidate.
+     */
+    public static long test5(long numCandidates) {
+        return runKernel(numCandidates, new UnrolledDotProductKernel());
+    }
+
+    /**
+     * Scores the candidates with DenseRelevanceScorer and the fastest kernel available.
+     */
+    public static long test6(long numCandidates) {
+        return rescore(numCandidates, DotProductKernel.fastest());
+    }
+
+    /**
+     * Runs just the fastest kernel available over a block with one row per candidate.
+     */
+    public static long test7(long numCandidates) {
+        return runKernel(numCandidates, DotProductKernel.fastest());
+    }
+
+    private static long rescore(long numCandidates, DotProductKernel kernel) {
+        TfIdfAnalyzer tfIdf = getAnalyzer();
+        DenseRelevanceScorer scorer = new DenseRelevanceScorer(tfIdf, kernel);
+        int[] candidates = makeCandidates(numCandidates);
+        IList<CompiledQuery> queries = compileQueries(tfIdf);
+
+        long start = System.currentTimeMillis();
+        double checksum = 0.0;
+        for (int i = 0; i < REPETITIONS; i++) {
+            for (CompiledQuery query : queries) {
+                for (double score : scorer.computeRelevance(query, candidates)) {
+                    checksum += score;
+                }
+            }
+        }
+        long end = System.currentTimeMillis();
+        checkChecksum(checksum);
+        return end - start;
+    }
+
+    private static long runKernel(long numCandidates, DotProductKernel kernel) {
+        // A block as wide as the longest query, padded out to a whole number of lanes.
+        int stride = 2 * DenseRelevanceScorer.LANES;
+        Random rand = new Random(numCandidates);
+        float[] vector = new float[stride];
+        float[] block = new float[(int) numCandidates * stride];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = rand.nextFloat();
+        }
+        for (int i = 0; i < block.length; i++) {
+            block[i] = rand.nextFloat();
+        }
+        float[] output = new float[(int) numCandidates];
+
+        long start = System.currentTimeMillis();
+        double checksum = 0.0;
+        for (int i = 0; i < REPETITIONS * 100; i++) {
+            kernel.dotProducts(vector, block, stride, stride, (int) numCandidates, output);
+            checksum += output[i % output.length];
+        }
+        long end = System.currentTimeMillis();
+        checkChecksum(checksum);
+        return end - start;
+    }
+
+    private static int[] makeCandidates(long numCandidates) {
+        // Spread the candidates out over the whole index, like the results of a query would be.
+        int numDocuments = getAnalyzer().getIndex().numDocuments();
+        int[] candidates = new int[(int) numCandidates];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = (int) ((long) i * numDocuments / numCandidates);
+        }
+        return candidates;
+    }
+
+    private static IList<CompiledQuery> compileQueries(TfIdfAnalyzer tfIdf) {
+        IList<CompiledQuery> output = new DoubleLinkedList<>();
+        for (String[] query : QUERIES) {
+            IList<String> words = new DoubleLinkedList<>();
+            for (String word : query) {
+                words.add(word);
+            }
+            output.add(tfIdf.compile(words));
+        }
+        return output;
+    }
+
+    // Makes sure the JIT can't skip the scoring entirely.
+    private static void checkChecksum(double checksum) {
+        if (checksum == 42.0) {
+            System.out.println("Unlikely checksum");
+        }
+    }
+
+    private static TfIdfAnalyzer getAnalyzer() {
+        if (analyzer == null) {
+            analyzer = new TfIdfAnalyzer(AnalysisUtils.makeWebpages(NUM_PAGES, NUM_PAGES));
+        }
+        return analyzer;
+    }
+}
@@ -0,0 +1,73 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.interfaces.IList;
+import search.analyzers.LinkGraph;
+import search.analyzers.ParallelPageRankSolver;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares how long it takes to compute page ranks as more and more of the pages
+ * have no links, on a graph with a fixed number of pages.
+ *
+ * Every run does exactly the same number of iterations (epsilon is 0), so the times
+ * only depend on how much work each iteration does. Test1 runs each iteration on a
+ * single thread, and Test2 splits it across the common fork/join pool.
+ */
+public class Experiment8 {
+    public static final int NUM_TRIALS = 5;
+    public static final int NUM_PAGES = 10000;
+    public static final int MAX_LINKS_PER_PAGE = 10;
+    public static final int NUM_ITERATIONS = 20;
+    public static final long MAX_PERCENT_DANGLING = 50;
+    public static final long STEP = 10;
+
+    public static void main(String[] args) {
+        IList<Long> percentDangling = AnalysisUtils.makeList(0L, MAX_PERCENT_DANGLING + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runTrials(percentDangling, Experiment8::test1, NUM_TRIALS);
+        IList<Long> test2Results = AnalysisUtils.runTrials(percentDangling, Experiment8::test2, NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("PercentDangling", percentDangling);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.writeToFile("experimentdata/experiment8.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Computes the page ranks on a single thread.
+     */
+    public static long test1(long percentDangling) {
+        return solve(percentDangling, new ParallelPageRankSolver(1, 1, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Computes the page ranks across the common fork/join pool.
+     */
+    public static long test2(long percentDangling) {
+        return solve(percentDangling, new ParallelPageRankSolver(
+                ForkJoinPool.commonPool().getParallelism(), 1, ForkJoinPool.commonPool()));
+    }
+
+    private static long solve(long percentDangling, ParallelPageRankSolver solver) {
+        LinkGraph graph = AnalysisUtils.makeLinkGraph(
+                NUM_PAGES, percentDangling, MAX_LINKS_PER_PAGE, percentDangling);
+
+        long start = System.currentTimeMillis();
+        double[] ranks = solver.solve(graph, 0.85, 0.0, NUM_ITERATIONS);
+        long end = System.currentTimeMillis();
+
+        // Makes sure the JIT can't skip the computation entirely.
+        if (ranks[0] == 42.0) {
+            System.out.println("Unlikely page rank");
+        }
+        return end - start;
+    }
+}
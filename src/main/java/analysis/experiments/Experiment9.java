@@ -0,0 +1,145 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.interfaces.IList;
+import search.analyzers.AdaptivePageRankSolver;
+import search.analyzers.GaussSeidelPageRankSolver;
+import search.analyzers.LinkGraph;
+import search.analyzers.PageRankSolver;
+import search.analyzers.ParallelPageRankSolver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Compares the PageRankSolvers, on graphs with more and more pages, solved to the
+ * same epsilon.
+ *
+ * Test1, Test2 and Test3 return how long power iteration (on a single thread),
+ * Gauss-Seidel iteration and the adaptive solver take. Test4, Test5 and Test6 return
+ * how many iterations each one runs, and Test7, Test8 and Test9 how many node ranks
+ * each one recomputes, in thousands.
+ */
+public class Experiment9 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MAX_NUM_PAGES = 100000;
+    public static final long STEP = 10000;
+    public static final long PERCENT_DANGLING = 20;
+    public static final int MAX_LINKS_PER_PAGE = 10;
+
+    public static final double DECAY = 0.85;
+    public static final double EPSILON = 1e-10;
+    public static final int LIMIT = 200;
+
+    public static void main(String[] args) {
+        IList<Long> numPages = AnalysisUtils.makeList(STEP, MAX_NUM_PAGES + 1, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runTrials(numPages, Experiment9::test1, NUM_TRIALS);
+        IList<Long> test2Results = AnalysisUtils.runTrials(numPages, Experiment9::test2, NUM_TRIALS);
+        IList<Long> test3Results = AnalysisUtils.runTrials(numPages, Experiment9::test3, NUM_TRIALS);
+        IList<Long> test4Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test4);
+        IList<Long> test5Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test5);
+        IList<Long> test6Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test6);
+        IList<Long> test7Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test7);
+        IList<Long> test8Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test8);
+        IList<Long> test9Results = AnalysisUtils.runSingleTrial(numPages, Experiment9::test9);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumPages", numPages);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.addColumn("Test3Result", test3Results);
+        writer.addColumn("Test4Result", test4Results);
+        writer.addColumn("Test5Result", test5Results);
+        writer.addColumn("Test6Result", test6Results);
+        writer.addColumn("Test7Result", test7Results);
+        writer.addColumn("Test8Result", test8Results);
+        writer.addColumn("Test9Result", test9Results);
+        writer.writeToFile("experimentdata/experiment9.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Returns the milliseconds power iteration takes.
+     */
+    public static long test1(long numPages) {
+        return solve(numPages, Experiment9::makePowerIteration).getStatistics().getNanos() / 1000000;
+    }
+
+    /**
+     * Returns the milliseconds Gauss-Seidel iteration takes.
+     */
+    public static long test2(long numPages) {
+        return solve(numPages, GaussSeidelPageRankSolver::new).getStatistics().getNanos() / 1000000;
+    }
+
+    /**
+     * Returns the milliseconds the adaptive solver takes.
+     */
+    public static long test3(long numPages) {
+        return solve(numPages, AdaptivePageRankSolver::new).getStatistics().getNanos() / 1000000;
+    }
+
+    /**
+     * Returns the number of iterations power iteration runs.
+     */
+    public static long test4(long numPages) {
+        return solve(numPages, Experiment9::makePowerIteration).getStatistics().getIterations();
+    }
+
+    /**
+     * Returns the number of iterations Gauss-Seidel iteration runs.
+     */
+    public static long test5(long numPages) {
+        return solve(numPages, GaussSeidelPageRankSolver::new).getStatistics().getIterations();
+    }
+
+    /**
+     * Returns the number of iterations the adaptive solver runs.
+     */
+    public static long test6(long numPages) {
+        return solve(numPages, AdaptivePageRankSolver::new).getStatistics().getIterations();
+    }
+
+    /**
+     * Returns the thousands of node ranks power iteration recomputes.
+     */
+    public static long test7(long numPages) {
+        return solve(numPages, Experiment9::makePowerIteration).getStatistics().getNodeUpdates() / 1000;
+    }
+
+    /**
+     * Returns the thousands of node ranks Gauss-Seidel iteration recomputes.
+     */
+    public static long test8(long numPages) {
+        return solve(numPages, GaussSeidelPageRankSolver::new).getStatistics().getNodeUpdates() / 1000;
+    }
+
+    /**
+     * Returns the thousands of node ranks the adaptive solver recomputes.
+     */
+    public static long test9(long numPages) {
+        return solve(numPages, AdaptivePageRankSolver::new).getStatistics().getNodeUpdates() / 1000;
+    }
+
+    private static PageRankSolver makePowerIteration() {
+        return new ParallelPageRankSolver(1, 1, ForkJoinPool.commonPool());
+    }
+
+    private static PageRankSolver solve(long numPages, Supplier<PageRankSolver> makeSolver) {
+        LinkGraph graph = AnalysisUtils.makeLinkGraph(
+                (int) numPages, PERCENT_DANGLING, MAX_LINKS_PER_PAGE, numPages);
+        PageRankSolver solver = makeSolver.get();
+        double[] ranks = solver.solve(graph, DECAY, EPSILON, LIMIT);
+
+        // Makes sure the JIT can't skip the computation entirely.
+        if (ranks[0] == 42.0) {
+            System.out.println("Unlikely page rank");
+        }
+        return solver;
+    }
+}
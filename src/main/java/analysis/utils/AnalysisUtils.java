@@ -1,11 +1,18 @@
 package analysis.utils;
 
+import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
 import datastructures.concrete.dictionaries.ArrayDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
 import org.openjdk.jol.info.GraphLayout;
+import search.analyzers.LinkGraph;
+import search.models.Webpage;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.function.Function;
 
 /**
@@ -37,6 +44,92 @@ public class AnalysisUtils {
         return dictionary;
     }
 
+    /**
+     * Constructs a fake set of 'numPages' webpages that look roughly like real ones.
+     *
+     * Words are named "w0", "w1", ... and follow a Zipf distribution, so "w1" is very
+     * common and most other words are rare. A few pages repeat a common word many times
+     * over, which is the case that makes per-term score bounds loose. Links are skewed
+     * the same way, so a few pages end up with a very high page rank.
+     *
+     * The same seed always produces the same webpages.
+     */
+    public static ISet<Webpage> makeWebpages(long numPages, long seed) {
+        Random rand = new Random(seed);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = 50 + rand.nextInt(200);
+            for (int j = 0; j < numWords; j++) {
+                words.add("w" + zipf(rand, 20000));
+            }
+            if (rand.nextInt(100) == 0) {
+                String outlier = "w" + zipf(rand, 50);
+                for (int j = 0; j < 100; j++) {
+                    words.add(outlier);
+                }
+            }
+
+            IList<URI> links = new DoubleLinkedList<>();
+            int numLinks = rand.nextInt(10);
+            for (int j = 0; j < numLinks; j++) {
+                links.add(makePageUri(zipf(rand, (int) numPages)));
+            }
+            pages.add(new Webpage(makePageUri(i), links, words, "Page " + i, "Blurb " + i));
+        }
+        return pages;
+    }
+
+    /**
+     * Constructs a random link graph with 'numPages' nodes, where roughly the given
+     * percentage of the pages have no links, and the rest link to between 1 and
+     * 'maxLinksPerPage' other pages, picked uniformly at random.
+     *
+     * The same seed always produces the same graph.
+     */
+    public static LinkGraph makeLinkGraph(int numPages, long percentDangling, int maxLinksPerPage, long seed) {
+        Random rand = new Random(seed);
+        int[] offsets = new int[numPages + 1];
+        int[] targets = new int[numPages * maxLinksPerPage];
+        int numEdges = 0;
+        for (int page = 0; page < numPages; page++) {
+            if (rand.nextInt(100) >= percentDangling) {
+                int start = numEdges;
+                for (int i = 1 + rand.nextInt(maxLinksPerPage); i > 0; i--) {
+                    int target = rand.nextInt(numPages);
+                    if (target != page) {
+                        targets[numEdges] = target;
+                        numEdges++;
+                    }
+                }
+
+                // Sort the page's targets, then squeeze out the duplicates.
+                Arrays.sort(targets, start, numEdges);
+                int end = start;
+                for (int i = start; i < numEdges; i++) {
+                    if (i == start || targets[i] != targets[i - 1]) {
+                        targets[end] = targets[i];
+                        end++;
+                    }
+                }
+                numEdges = end;
+            }
+            offsets[page + 1] = numEdges;
+        }
+        return new LinkGraph(offsets, Arrays.copyOf(targets, numEdges));
+    }
+
+    private static URI makePageUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    /**
+     * Returns a random integer in [0, max), where 'n' is picked roughly in proportion to 1/n.
+     */
+    private static int zipf(Random rand, int max) {
+        return (int) Math.min(max - 1, Math.floor(1.0 / (rand.nextDouble() + 1.0 / max)));
+    }
+
     /**
      * Handles running a single experiment.
      *
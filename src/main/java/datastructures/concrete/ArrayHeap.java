@@ -47,7 +47,7 @@ public class ArrayHeap<T extends Comparable<T>> implements IPriorityQueue<T> {
             throw new EmptyContainerException();
         } else if (this.currentSize == 1) {
             item = this.heap[0];
-            this.heap = null;
+            this.heap[0] = null;
             this.currentSize--;
         } else {
             item = this.heap[0];
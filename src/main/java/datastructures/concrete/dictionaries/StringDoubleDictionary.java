@@ -0,0 +1,282 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A dictionary from strings to doubles that stores its entries in two parallel
+ * arrays instead of as KVPair and Double objects.
+ *
+ * We use open addressing with linear probing: a key lives at the first empty slot
+ * at or after its hash, wrapping around. The table is a power of two in size and
+ * at most two thirds full, so probe sequences stay short. Removing a key shifts
+ * later keys in the same run back, so we never need tombstones.
+ *
+ * Besides the usual IDictionary methods (which box and unbox doubles), this class
+ * has primitive versions of 'get', 'getOrDefault' and 'put', and a 'forEachEntry'
+ * method that visits every entry without allocating. The iterator still creates
+ * a KVPair per entry.
+ *
+ * Null keys are allowed, null values are not.
+ */
+public class StringDoubleDictionary implements IDictionary<String, Double> {
+    private static final int MIN_CAPACITY = 4;
+
+    private String[] keys;
+    private double[] values;
+    private int size;
+
+    // The null key doesn't fit in 'keys' (null marks an empty slot), so we keep it here.
+    private boolean hasNullKey;
+    private double nullValue;
+
+    public StringDoubleDictionary() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a dictionary that can hold the given number of entries without resizing.
+     */
+    public StringDoubleDictionary(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 2 < expectedSize * 3) {
+            capacity *= 2;
+        }
+        this.keys = new String[capacity];
+        this.values = new double[capacity];
+        this.size = 0;
+        this.hasNullKey = false;
+    }
+
+    private int slotOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (this.keys.length - 1);
+    }
+
+    /**
+     * Returns the slot holding the given (non-null) key, or -1 if it isn't here.
+     */
+    private int find(String key) {
+        int mask = this.keys.length - 1;
+        for (int slot = this.slotOf(key); this.keys[slot] != null; slot = (slot + 1) & mask) {
+            if (this.keys[slot].equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Double get(String key) {
+        return this.getDouble(key);
+    }
+
+    /**
+     * Like 'get', but without boxing the value.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double getDouble(String key) {
+        if (key == null) {
+            if (!this.hasNullKey) {
+                throw new NoSuchKeyException();
+            }
+            return this.nullValue;
+        }
+        int slot = this.find(key);
+        if (slot == -1) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[slot];
+    }
+
+    @Override
+    public Double getOrDefault(String key, Double defaultValue) {
+        if (!this.containsKey(key)) {
+            return defaultValue;
+        }
+        return this.getDouble(key);
+    }
+
+    /**
+     * Like 'getOrDefault', but without boxing the value.
+     */
+    public double getOrDefault(String key, double defaultValue) {
+        if (key == null) {
+            return this.hasNullKey ? this.nullValue : defaultValue;
+        }
+        int slot = this.find(key);
+        return slot == -1 ? defaultValue : this.values[slot];
+    }
+
+    /**
+     * @throws IllegalArgumentException  if the value is null
+     */
+    @Override
+    public void put(String key, Double value) {
+        if (value == null) {
+            throw new IllegalArgumentException("StringDoubleDictionary cannot store null values");
+        }
+        this.put(key, value.doubleValue());
+    }
+
+    /**
+     * Like 'put', but without boxing the value.
+     */
+    public void put(String key, double value) {
+        if (key == null) {
+            if (!this.hasNullKey) {
+                this.hasNullKey = true;
+                this.size++;
+            }
+            this.nullValue = value;
+            return;
+        }
+        int mask = this.keys.length - 1;
+        int slot = this.slotOf(key);
+        while (this.keys[slot] != null) {
+            if (this.keys[slot].equals(key)) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if (this.size * 3 > this.keys.length * 2) {
+            this.resize(this.keys.length * 2);
+        }
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = this.keys;
+        double[] oldValues = this.values;
+        this.keys = new String[capacity];
+        this.values = new double[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = this.slotOf(oldKeys[i]);
+                while (this.keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public Double remove(String key) {
+        if (key == null) {
+            if (!this.hasNullKey) {
+                throw new NoSuchKeyException();
+            }
+            this.hasNullKey = false;
+            this.size--;
+            return this.nullValue;
+        }
+        int slot = this.find(key);
+        if (slot == -1) {
+            throw new NoSuchKeyException();
+        }
+        double value = this.values[slot];
+
+        // Close the gap: move back any later key in this run whose home slot means it
+        // would no longer be reachable past the hole.
+        int mask = this.keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (this.keys[next] != null) {
+            int home = this.slotOf(this.keys[next]);
+            // The key at 'next' can fill the hole unless its home lies cyclically in (hole, next].
+            boolean homeBetween = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!homeBetween) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.keys[hole] = null;
+        this.size--;
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (key == null) {
+            return this.hasNullKey;
+        }
+        return this.find(key) != -1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Calls the given function once for every entry, without allocating.
+     */
+    public void forEachEntry(ObjDoubleConsumer<String> action) {
+        if (this.hasNullKey) {
+            action.accept(null, this.nullValue);
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null) {
+                action.accept(this.keys[i], this.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<KVPair<String, Double>> iterator() {
+        return new StringDoubleIterator(this);
+    }
+
+    private static class StringDoubleIterator implements Iterator<KVPair<String, Double>> {
+        private StringDoubleDictionary dict;
+        private boolean nullKeyPending;
+        private int index;
+
+        public StringDoubleIterator(StringDoubleDictionary dict) {
+            this.dict = dict;
+            this.nullKeyPending = dict.hasNullKey;
+            this.index = 0;
+            this.skipEmptySlots();
+        }
+
+        private void skipEmptySlots() {
+            while (this.index < this.dict.keys.length && this.dict.keys[this.index] == null) {
+                this.index++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.nullKeyPending || this.index < this.dict.keys.length;
+        }
+
+        @Override
+        public KVPair<String, Double> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (this.nullKeyPending) {
+                this.nullKeyPending = false;
+                return new KVPair<>(null, this.dict.nullValue);
+            }
+            KVPair<String, Double> output = new KVPair<>(this.dict.keys[this.index], this.dict.values[this.index]);
+            this.index++;
+            this.skipEmptySlots();
+            return output;
+        }
+    }
+}
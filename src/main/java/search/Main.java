@@ -1,5 +1,7 @@
 package search;
 
+import search.cache.QueryResultCache;
+
 public class Main {
     // The dataset to index and search.
     // MUST be the name of one of the folders in the 'data' folder.
@@ -13,9 +15,17 @@ public class Main {
     // and know what ports are, feel free to change this if it's convenient.
     public static final int PORT = 8080;
 
+    // The number of distinct queries whose results we keep cached.
+    public static final int RESULT_CACHE_CAPACITY = 1000;
+
+    // The number of pieces long queries are split into and scored in parallel.
+    public static final int QUERY_PARTITIONS = Runtime.getRuntime().availableProcessors();
+
     public static void main(String[] args) {
         System.out.println("Indexing web pages...");
         SearchEngine engine = new SearchEngine(DATA_FOLDER_NAME);
+        engine.setResultCache(new QueryResultCache(RESULT_CACHE_CAPACITY));
+        engine.setNumPartitions(QUERY_PARTITIONS);
 
         System.out.println("Setting up web server...");
         Webapp app = new Webapp(engine, SITE_TITLE, PORT);
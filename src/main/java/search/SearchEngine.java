@@ -2,60 +2,228 @@ package search;
 
 import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 import misc.Searcher;
+import misc.exceptions.NoSuchKeyException;
+import search.analyzers.DenseRelevanceScorer;
 import search.analyzers.PageRankAnalyzer;
 import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TfIdfIndexBuilder;
+import search.cache.QueryResultCache;
+import search.index.BlockMaxWandEvaluator;
+import search.index.ChampionListEvaluator;
+import search.index.CompiledQuery;
+import search.index.DocumentAtATimeEvaluator;
+import search.index.DocumentRegistry;
+import search.index.DocumentStats;
+import search.index.DotProductKernel;
+import search.index.EvaluationMode;
+import search.index.InvertedIndex;
+import search.index.ParallelEvaluator;
+import search.index.PhaseTimings;
+import search.index.QuantizedEvaluator;
+import search.index.QueryEvaluator;
+import search.index.ScoredDocument;
+import search.index.TermAtATimeEvaluator;
+import search.index.TieredEvaluator;
+import search.index.TopKCollector;
+import search.index.WandEvaluator;
+import search.index.WeightedQuery;
 import search.misc.Bridge;
 import search.misc.exceptions.DataExtractionException;
 import search.models.Result;
 import search.models.Webpage;
 import search.models.WebpageSummary;
+import search.scoring.CosineScorer;
+import search.scoring.Scorer;
+import search.segments.EvaluatorFactory;
+import search.segments.Segment;
+import search.segments.SegmentedIndex;
+import search.segments.TieredMergePolicy;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class SearchEngine {
     public static final double PAGE_RANK_DECAY = 0.85;
     public static final double PAGE_RANK_EPSILON = 0.0001;
     public static final int PAGE_RANK_ITERATION_LIMIT = 200;
 
-    private ISet<WebpageSummary> pages;
-    private TfIdfAnalyzer tfIdfAnalyzer;
-    private PageRankAnalyzer pageRankAnalyzer;
+    // How many of its best documents we precompute for each term in CHAMPION_LISTS mode.
+    // Queries for more results than this are evaluated the slow way.
+    public static final int CHAMPION_LIST_SIZE = 50;
+
+    private DocumentRegistry registry;
+
+    // The summary and page rank of each page, indexed by doc id. Both arrays are
+    // replaced, never modified, when pages are added.
+    private volatile WebpageSummary[] summaries;
+    private volatile double[] pageRanks;
+
+    // The page rank given to pages added after the engine was built. See 'addWebpages'.
+    private double newPageRank;
+
+    // Holds the pages, split into segments so pages can be added and removed without
+    // rebuilding everything. Its generation is incremented every time it changes, so
+    // cached results computed against an older version of the index are never returned.
+    private SegmentedIndex index;
+
+    private EvaluationMode evaluationMode;
+    private int numPartitions;
+
+    // If positive, 'getTopKResults' ranks in two phases: the evaluator picks this many
+    // candidates, and only those get scored with 'computeScore'. See 'setRerankDepth'.
+    private volatile int rerankDepth;
+    private PhaseTimings phaseTimings;
+
+    // If non-null, the second phase scores each segment's candidates all at once with
+    // a DenseRelevanceScorer using this kernel. See 'setRerankKernel'.
+    private volatile DotProductKernel rerankKernel;
+
+    // If non-null, answers repeated queries without re-running the evaluator.
+    private QueryResultCache resultCache;
 
     public SearchEngine(String dataFolderName) {
-        long start = System.currentTimeMillis();
-        ISet<Webpage> webpages = this.collectWebpages(Paths.get("data", dataFolderName));
-        long end = System.currentTimeMillis() - start;
-        System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
+        this(dataFolderName, new CosineScorer());
+    }
+
+    /**
+     * Builds a search engine over the webpages in the given folder, ranking them with
+     * the given scorer.
+     */
+    public SearchEngine(String dataFolderName, Scorer scorer) {
+        this(new DocumentRegistry(), withScorer(new TfIdfIndexBuilder(), scorer), dataFolderName);
+    }
 
-        this.pages = this.extractWebpageSummaries(webpages);
+    private SearchEngine(DocumentRegistry registry, TfIdfIndexBuilder builder, String dataFolderName) {
+        this(loadWebpages(dataFolderName, registry, builder), registry, builder);
+    }
+
+    /**
+     * Builds a search engine over the given, already-loaded webpages.
+     */
+    public SearchEngine(ISet<Webpage> webpages) {
+        this(webpages, DocumentRegistry.of(webpages));
+    }
+
+    /**
+     * Builds a search engine over the given, already-loaded webpages, using the doc ids
+     * from the given registry.
+     *
+     * Precondition: every webpage must have been registered.
+     */
+    public SearchEngine(ISet<Webpage> webpages, DocumentRegistry registry) {
+        this(webpages, registry, new CosineScorer());
+    }
+
+    /**
+     * Builds a search engine over the given, already-loaded webpages, using the doc ids
+     * from the given registry, and ranking them with the given scorer.
+     *
+     * Precondition: every webpage must have been registered.
+     */
+    public SearchEngine(ISet<Webpage> webpages, DocumentRegistry registry, Scorer scorer) {
+        this(webpages, registry, withScorer(TfIdfIndexBuilder.of(webpages, registry), scorer));
+    }
+
+    private static TfIdfIndexBuilder withScorer(TfIdfIndexBuilder builder, Scorer scorer) {
+        builder.setScorer(scorer);
+        return builder;
+    }
+
+    /**
+     * Builds a search engine over the given webpages, whose words have already been
+     * given to the builder. The webpages themselves are only used for their links and
+     * summaries.
+     */
+    private SearchEngine(ISet<Webpage> webpages, DocumentRegistry registry, TfIdfIndexBuilder builder) {
+        this.registry = registry;
+        this.summaries = this.extractWebpageSummaries(webpages);
         System.out.println("Done extracting");
 
-        start = System.currentTimeMillis();
-        this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
-        this.pageRankAnalyzer = new PageRankAnalyzer(
+        long start = System.currentTimeMillis();
+        TfIdfAnalyzer tfIdfAnalyzer = builder.build(registry);
+        PageRankAnalyzer pageRankAnalyzer = new PageRankAnalyzer(
                 webpages,
+                registry,
                 PAGE_RANK_DECAY,
                 PAGE_RANK_EPSILON,
                 PAGE_RANK_ITERATION_LIMIT);
-        end = System.currentTimeMillis() - start;
+        this.pageRanks = this.makePageRanks(pageRankAnalyzer);
+        this.newPageRank = 1.0;
+        for (double pageRank : this.pageRanks) {
+            this.newPageRank = Math.min(this.newPageRank, pageRank);
+        }
+        this.evaluationMode = EvaluationMode.CHAMPION_LISTS;
+        this.numPartitions = 1;
+        this.rerankDepth = 0;
+        this.rerankKernel = null;
+        this.phaseTimings = new PhaseTimings();
+        this.index = new SegmentedIndex(
+                tfIdfAnalyzer,
+                registry,
+                docId -> this.pageRanks[docId],
+                this.makeEvaluatorFactory(),
+                new TieredMergePolicy(),
+                ForkJoinPool.commonPool());
+        long end = System.currentTimeMillis() - start;
         System.out.println("Done indexing (" + (end / 1000.0) + " sec)");
     }
 
+    private static ISet<Webpage> loadWebpages(
+            String dataFolderName, DocumentRegistry registry, TfIdfIndexBuilder builder) {
+        long start = System.currentTimeMillis();
+        ISet<Webpage> webpages = collectWebpages(Paths.get("data", dataFolderName), registry, builder);
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
+        return webpages;
+    }
+
+    /**
+     * @throws NoSuchKeyException  if the page isn't in the index
+     */
     public double computeScore(IList<String> query, URI uri) {
-        double tfIdf = this.tfIdfAnalyzer.computeRelevance(query, uri);
-        double pageRank = this.pageRankAnalyzer.computePageRank(uri);
+        int docId = this.registry.getDocId(uri);
+        Segment segment = this.index.getSegment(docId);
+        if (segment == null) {
+            throw new NoSuchKeyException("Page '" + uri + "' was removed from the index");
+        }
+        CompiledQuery compiled = segment.getAnalyzer().resolve(this.index.weigh(query));
+        return this.computeScore(segment, compiled, segment.getLocalDocId(docId));
+    }
+
+    /**
+     * Returns the score of the document with the given doc id within the given segment.
+     * The query must have been resolved by the segment's analyzer.
+     */
+    private double computeScore(Segment segment, CompiledQuery query, int docId) {
+        return this.combineScores(segment, docId, segment.getAnalyzer().computeRelevance(query, docId));
+    }
+
+    /**
+     * Returns the score of the document with the given doc id within the given segment,
+     * given its relevance to the query.
+     */
+    private double combineScores(Segment segment, int docId, double tfIdf) {
+        DocumentStats stats = segment.getDocumentStats();
+        if (!segment.getAnalyzer().getScorer().requires(Scorer.Statistic.STATIC_RANK)) {
+            return tfIdf;
+        }
+        double pageRank = stats.getPageRank(docId);
 
         if (pageRank <= 0.0) {
             throw new IllegalStateException(String.format(
                     "Page '%s' had a page rank of '%f'; all page ranks should be positive and non-zero.",
-                    uri, pageRank));
+                    segment.getUri(docId), pageRank));
         }
 
         // We are combining these two scores in a fairly arbitrary way.
@@ -79,15 +247,367 @@ public class SearchEngine {
         // but it's still a pretty ad-hoc approach. Feel free to adjust or
         // change this formula: we will be grading your TfIdfAnalyzer and
         // PageRankAnalyzer classes separately, but not this method.
-        return tfIdf * Math.sqrt(pageRank);
+        return tfIdf * stats.getSqrtPageRank(docId);
+    }
+
+    /**
+     * Selects the strategy 'getTopKResults' uses to find the best pages. Every exact
+     * mode returns the same results; they only differ in speed. The others trade a
+     * bounded amount of accuracy for speed and memory, so switching modes throws away
+     * any cached results.
+     */
+    public void setEvaluationMode(EvaluationMode mode) {
+        this.evaluationMode = mode;
+        this.index.setEvaluatorFactory(this.makeEvaluatorFactory());
+        if (this.resultCache != null) {
+            this.resultCache.clear();
+        }
     }
 
+    /**
+     * Splits the doc id space into the given number of partitions and scores long
+     * queries across them in parallel. Pass in 1 to always evaluate sequentially.
+     * The results are the same either way.
+     *
+     * @throws IllegalArgumentException  if numPartitions < 1
+     */
+    public void setNumPartitions(int numPartitions) {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("Need at least one partition, got " + numPartitions);
+        }
+        this.numPartitions = numPartitions;
+        this.index.setEvaluatorFactory(this.makeEvaluatorFactory());
+    }
+
+    private EvaluatorFactory makeEvaluatorFactory() {
+        EvaluationMode mode = this.evaluationMode;
+        int partitions = this.numPartitions;
+        return (index, stats) -> makeEvaluator(mode, partitions, index, stats.getBoosts(), stats.getPageRanks());
+    }
+
+    private static QueryEvaluator makeEvaluator(
+            EvaluationMode mode, int numPartitions, InvertedIndex index, double[] boosts, double[] pageRanks) {
+        QueryEvaluator base;
+        switch (mode) {
+            case DOCUMENT_AT_A_TIME:
+                base = new DocumentAtATimeEvaluator(boosts);
+                break;
+            case TERM_AT_A_TIME:
+                base = new TermAtATimeEvaluator(boosts);
+                break;
+            case WAND:
+                base = new WandEvaluator(index, boosts);
+                break;
+            case BLOCK_MAX_WAND:
+                base = new BlockMaxWandEvaluator(index, boosts);
+                break;
+            case TIERED:
+                base = new TieredEvaluator(index, boosts, pageRanks);
+                break;
+            case CHAMPION_LISTS:
+                base = new ChampionListEvaluator(
+                        index, boosts, CHAMPION_LIST_SIZE, new TermAtATimeEvaluator(boosts));
+                break;
+            case QUANTIZED_8:
+                base = new QuantizedEvaluator(index, boosts, 8);
+                break;
+            case QUANTIZED_16:
+                base = new QuantizedEvaluator(index, boosts, 16);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown evaluation mode: " + mode);
+        }
+        if (numPartitions == 1) {
+            return base;
+        }
+        return new ParallelEvaluator(base, boosts.length, numPartitions);
+    }
+
+    /**
+     * Returns the evaluator 'getTopKResults' currently uses on the largest segment of
+     * the index, mainly so callers can inspect how many documents it scored and skipped.
+     * Until pages are added, the index has a single segment.
+     */
+    public QueryEvaluator getQueryEvaluator() {
+        Segment largest = null;
+        for (Segment segment : this.index.getSegments()) {
+            if (largest == null || segment.size() > largest.size()) {
+                largest = segment;
+            }
+        }
+        return largest.getEvaluator();
+    }
+
+    /**
+     * Adds the given webpages to the index, replacing any earlier versions of them,
+     * without rebuilding the rest of the index.
+     *
+     * Page ranks aren't recomputed: a new page gets the lowest page rank of any page the
+     * engine was built with, as if nothing linked to it. Links to and from pages added
+     * or removed since the engine was built only count once it is rebuilt.
+     */
+    public synchronized void addWebpages(ISet<Webpage> webpages) {
+        Webpage[] pages = new Webpage[webpages.size()];
+        int[] docIds = new int[webpages.size()];
+        int i = 0;
+        for (Webpage page : webpages) {
+            pages[i] = page;
+            docIds[i] = this.registry.register(page.getUri());
+            i++;
+        }
+
+        int oldSize = this.summaries.length;
+        int newSize = this.registry.size();
+        WebpageSummary[] newSummaries = Arrays.copyOf(this.summaries, newSize);
+        double[] newPageRanks = Arrays.copyOf(this.pageRanks, newSize);
+        Arrays.fill(newPageRanks, oldSize, newSize, this.newPageRank);
+        for (i = 0; i < pages.length; i++) {
+            newSummaries[docIds[i]] = pages[i].getSummary();
+        }
+        this.summaries = newSummaries;
+        this.pageRanks = newPageRanks;
+        this.index.add(pages, docIds);
+    }
+
+    /**
+     * Removes the webpage with the given URI from the index. Returns 'false' if it wasn't
+     * in the index.
+     */
+    public synchronized boolean removeWebpage(URI uri) {
+        return this.registry.contains(uri) && this.index.delete(this.registry.getDocId(uri));
+    }
+
+    /**
+     * Returns the segmented index holding the pages.
+     */
+    public SegmentedIndex getSegmentedIndex() {
+        return this.index;
+    }
+
+    /**
+     * Puts the given cache in front of 'getTopKResults'. Pass in null to stop caching.
+     */
+    public void setResultCache(QueryResultCache cache) {
+        this.resultCache = cache;
+    }
+
+    /**
+     * Returns the result cache in use (so callers can inspect its hit rate), or null.
+     */
+    public QueryResultCache getResultCache() {
+        return this.resultCache;
+    }
+
+    /**
+     * Returns the current generation of the index. Results computed against one
+     * generation of the index are not valid for any other generation.
+     */
+    public long getIndexGeneration() {
+        return this.index.getGeneration();
+    }
+
+    /**
+     * Returns the k pages that best match the given query, best match first.
+     *
+     * Only pages containing at least one of the query's words are looked at: the
+     * evaluator finds them by walking each query word's postings in the inverted
+     * index. Every other page has a score of zero, so we only look at those if fewer
+     * than k pages matched, to pad the results out to the same size as a full scan.
+     */
     public IList<Result> getTopKResults(IList<String> query, int k) {
+        if (this.resultCache == null) {
+            return this.computeTopKResults(query, k);
+        }
+        String key = QueryResultCache.makeKey(query, k);
+        long generation = this.index.getGeneration();
+        IList<Result> results = this.resultCache.get(key, generation);
+        if (results == null) {
+            results = this.computeTopKResults(query, k);
+            this.resultCache.put(key, generation, results);
+        }
+        return results;
+    }
+
+    private IList<Result> computeTopKResults(IList<String> query, int k) {
+        IList<ScoredDocument> topK;
+        int depth = this.rerankDepth;
+        if (depth > 0) {
+            topK = this.rankInTwoPhases(query, k, depth);
+        } else {
+            TopKCollector collector = new TopKCollector(k);
+            this.index.evaluate(query, collector);
+            topK = collector.drain();
+        }
+
+        WebpageSummary[] pageSummaries = this.summaries;
         IList<Result> results = new DoubleLinkedList<>();
+        ISet<Integer> returned = new ChainedHashSet<>();
+        for (ScoredDocument doc : topK) {
+            results.add(new Result(pageSummaries[doc.getDocId()], doc.getScore()));
+            returned.add(doc.getDocId());
+        }
+        for (int docId = 0; docId < pageSummaries.length && results.size() < k; docId++) {
+            if (!returned.contains(docId) && this.index.contains(docId)) {
+                results.add(new Result(pageSummaries[docId], 0.0));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the best 'depth' (or k, if that's more) pages with the evaluator, then
+     * rescores just those with 'computeScore' (or the rerank kernel, if there is one)
+     * and returns the best k of them.
+     */
+    private IList<ScoredDocument> rankInTwoPhases(IList<String> query, int k, int depth) {
+        long start = System.nanoTime();
+        WeightedQuery weighted = this.index.weigh(query);
+        TopKCollector candidateCollector = new TopKCollector(Math.max(k, depth));
+        this.index.evaluate(weighted, candidateCollector);
+        IList<ScoredDocument> candidates = candidateCollector.drain();
+        long generated = System.nanoTime();
+
+        DotProductKernel kernel = this.rerankKernel;
+        if (kernel != null) {
+            IList<ScoredDocument> output = this.rescoreDensely(weighted, candidates, k, kernel);
+            this.phaseTimings.record(candidates.size(), generated - start, System.nanoTime() - generated);
+            return output;
+        }
 
-        for (WebpageSummary summary: this.pages) {
-            double score = this.computeScore(query, summary.getUri());
-            results.add(new Result(summary, score));
+        // Each segment has its own vocabulary, so the query is resolved once per
+        // segment the candidates come from.
+        IDictionary<Segment, CompiledQuery> compiled = new ChainedHashDictionary<>();
+        TopKCollector collector = new TopKCollector(k);
+        for (ScoredDocument candidate : candidates) {
+            int docId = candidate.getDocId();
+            Segment segment = this.index.getSegment(docId);
+            if (segment == null) {
+                // Removed since the first phase.
+                continue;
+            }
+            CompiledQuery segmentQuery = compiled.getOrDefault(segment, null);
+            if (segmentQuery == null) {
+                segmentQuery = segment.getAnalyzer().resolve(weighted);
+                compiled.put(segment, segmentQuery);
+            }
+            collector.collect(docId, this.computeScore(segment, segmentQuery, segment.getLocalDocId(docId)));
+        }
+        IList<ScoredDocument> output = collector.drain();
+
+        this.phaseTimings.record(candidates.size(), generated - start, System.nanoTime() - generated);
+        return output;
+    }
+
+    /**
+     * Rescores the given candidates with a DenseRelevanceScorer per segment, and returns
+     * the best k of them.
+     */
+    private IList<ScoredDocument> rescoreDensely(
+            WeightedQuery weighted, IList<ScoredDocument> candidates, int k, DotProductKernel kernel) {
+        // Each segment has its own vocabulary and document weights, so the candidates
+        // are scored one segment at a time.
+        IDictionary<Segment, IList<Integer>> bySegment = new ChainedHashDictionary<>();
+        for (ScoredDocument candidate : candidates) {
+            Segment segment = this.index.getSegment(candidate.getDocId());
+            if (segment == null) {
+                // Removed since the first phase.
+                continue;
+            }
+            IList<Integer> docIds = bySegment.getOrDefault(segment, null);
+            if (docIds == null) {
+                docIds = new DoubleLinkedList<>();
+                bySegment.put(segment, docIds);
+            }
+            docIds.add(candidate.getDocId());
+        }
+
+        TopKCollector collector = new TopKCollector(k);
+        for (KVPair<Segment, IList<Integer>> pair : bySegment) {
+            Segment segment = pair.getKey();
+            int[] localDocIds = new int[pair.getValue().size()];
+            int i = 0;
+            for (int docId : pair.getValue()) {
+                localDocIds[i] = segment.getLocalDocId(docId);
+                i++;
+            }
+
+            DenseRelevanceScorer scorer = new DenseRelevanceScorer(segment.getAnalyzer(), kernel);
+            double[] relevance = scorer.computeRelevance(segment.getAnalyzer().resolve(weighted), localDocIds);
+            i = 0;
+            for (int docId : pair.getValue()) {
+                collector.collect(docId, this.combineScores(segment, localDocIds[i], relevance[i]));
+                i++;
+            }
+        }
+        return collector.drain();
+    }
+
+    /**
+     * Makes 'getTopKResults' rank in two phases. First, the evaluator (see
+     * 'setEvaluationMode') picks the best 'depth' pages, or k if that's more, using
+     * the scores it computes from the postings. Then each of those candidates gets
+     * rescored with the full formula in 'computeScore', and the best k of them are
+     * returned. Pass in 0 to rank in a single phase.
+     *
+     * With an exact evaluation mode, the results are the same either way. With an
+     * approximate one, the second phase makes every returned score exact, and the
+     * ranking is exact as long as the true top k are among the candidates. Either
+     * way, the expensive scoring is done for at most 'depth' pages per query.
+     *
+     * @throws IllegalArgumentException  if depth < 0
+     */
+    public void setRerankDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The rerank depth can't be negative, got " + depth);
+        }
+        this.rerankDepth = depth;
+        if (this.resultCache != null) {
+            this.resultCache.clear();
+        }
+    }
+
+    /**
+     * Makes the second phase of two-phase ranking (see 'setRerankDepth') compute each
+     * segment's candidates' relevance all at once, with a DenseRelevanceScorer using the
+     * given kernel (DotProductKernel.fastest() picks the best one available). Pass in
+     * null to go back to scoring candidates one at a time with 'computeScore'.
+     *
+     * The dense scorer works in floats, so the scores it returns can differ from
+     * 'computeScore' by about one part in a million.
+     */
+    public void setRerankKernel(DotProductKernel kernel) {
+        this.rerankKernel = kernel;
+        if (this.resultCache != null) {
+            this.resultCache.clear();
+        }
+    }
+
+    /**
+     * Returns how long each phase of two-phase ranking has taken, over every query
+     * ranked in two phases so far.
+     */
+    public PhaseTimings getPhaseTimings() {
+        return this.phaseTimings;
+    }
+
+    /**
+     * Returns the same results as 'getTopKResults', but by scoring every single page.
+     *
+     * This is far slower, and exists as a reference point for testing and benchmarking.
+     */
+    public IList<Result> getTopKResultsExhaustive(IList<String> query, int k) {
+        WebpageSummary[] pageSummaries = this.summaries;
+        IList<Result> results = new DoubleLinkedList<>();
+
+        WeightedQuery weighted = this.index.weigh(query);
+        for (Segment segment : this.index.getSegments()) {
+            CompiledQuery compiled = segment.getAnalyzer().resolve(weighted);
+            for (int docId = 0; docId < segment.size(); docId++) {
+                if (!segment.isDeleted(docId)) {
+                    double score = this.computeScore(segment, compiled, docId);
+                    results.add(new Result(pageSummaries[segment.getGlobalDocId(docId)], score));
+                }
+            }
         }
 
         IList<Result> topK = Searcher.topKSort(k, results);
@@ -100,23 +620,44 @@ public class SearchEngine {
         return reversed;
     }
 
-    private ISet<Webpage> collectWebpages(Path root) {
+    private double[] makePageRanks(PageRankAnalyzer pageRankAnalyzer) {
+        double[] output = new double[this.registry.size()];
+        for (int docId = 0; docId < output.length; docId++) {
+            output[docId] = pageRankAnalyzer.computePageRank(docId);
+        }
+        return output;
+    }
+
+    /**
+     * Loads every webpage under the given folder, registering each one with the given
+     * registry and handing its words to the given builder as soon as it's loaded.
+     *
+     * The returned webpages have no words: we only keep each page's links and summary,
+     * so the words of every page don't all have to fit in memory at once.
+     */
+    private static ISet<Webpage> collectWebpages(Path root, DocumentRegistry registry, TfIdfIndexBuilder builder) {
         try {
             return Files.walk(root)
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
                     .map(Path::toUri)
                     .map(Webpage::load)
+                    .map(page -> {
+                        builder.addPage(registry.register(page.getUri()), page.getWords());
+                        WebpageSummary summary = page.getSummary();
+                        return new Webpage(page.getUri(), page.getLinks(), new DoubleLinkedList<>(),
+                                summary.getTitle(), summary.getBlurb());
+                    })
                     .collect(Bridge.toISet());
         } catch (IOException ex) {
             throw new DataExtractionException("Could not find given root folder", ex);
         }
     }
 
-    private ISet<WebpageSummary> extractWebpageSummaries(ISet<Webpage> webpages) {
-        ISet<WebpageSummary> output = new ChainedHashSet<>();
+    private WebpageSummary[] extractWebpageSummaries(ISet<Webpage> webpages) {
+        WebpageSummary[] output = new WebpageSummary[this.registry.size()];
         for (Webpage page : webpages) {
-            output.add(page.getSummary());
+            output[this.registry.getDocId(page.getUri())] = page.getSummary();
         }
         return output;
     }
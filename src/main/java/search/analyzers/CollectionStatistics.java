@@ -0,0 +1,110 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.StringDoubleDictionary;
+import datastructures.interfaces.IList;
+import search.index.SparseVector;
+import search.index.Vocabulary;
+import search.scoring.Scorer;
+
+/**
+ * Keeps count of how many documents there are, how many of them contain each word,
+ * and how many words they have in total, across an index that changes over time.
+ * These are the numbers IDF scores and average document lengths are computed from.
+ *
+ * This class is thread-safe.
+ */
+public class CollectionStatistics {
+    private StringDoubleDictionary documentFrequencies;
+    private int numDocuments;
+    private long totalLength;
+
+    public CollectionStatistics() {
+        this.documentFrequencies = new StringDoubleDictionary();
+        this.numDocuments = 0;
+        this.totalLength = 0;
+    }
+
+    /**
+     * Counts a new document containing the given words.
+     */
+    public synchronized void addDocument(IList<String> words) {
+        StringDoubleDictionary distinct = new StringDoubleDictionary();
+        for (String word : words) {
+            distinct.put(word, 1.0);
+        }
+        distinct.forEachEntry((word, ignored) ->
+                this.documentFrequencies.put(word, this.documentFrequencies.getOrDefault(word, 0.0) + 1.0));
+        this.numDocuments++;
+        this.totalLength += words.size();
+    }
+
+    /**
+     * Counts a new document of the given length, containing every term in the given
+     * vector.
+     */
+    public synchronized void addDocument(Vocabulary vocabulary, SparseVector terms, int length) {
+        for (int i = 0; i < terms.size(); i++) {
+            String word = vocabulary.getTerm(terms.getTermId(i));
+            this.documentFrequencies.put(word, this.documentFrequencies.getOrDefault(word, 0.0) + 1.0);
+        }
+        this.numDocuments++;
+        this.totalLength += length;
+    }
+
+    /**
+     * Stops counting a document of the given length, containing every term in the
+     * given vector.
+     *
+     * Precondition: the document must have been counted.
+     */
+    public synchronized void removeDocument(Vocabulary vocabulary, SparseVector terms, int length) {
+        for (int i = 0; i < terms.size(); i++) {
+            String word = vocabulary.getTerm(terms.getTermId(i));
+            double count = this.documentFrequencies.getOrDefault(word, 0.0) - 1.0;
+            if (count > 0.0) {
+                this.documentFrequencies.put(word, count);
+            } else {
+                this.documentFrequencies.remove(word);
+            }
+        }
+        this.numDocuments--;
+        this.totalLength -= length;
+    }
+
+    /**
+     * Returns the number of documents counted.
+     */
+    public synchronized int numDocuments() {
+        return this.numDocuments;
+    }
+
+    /**
+     * Returns the number of documents counted that contain the given word.
+     */
+    public synchronized int getDocumentFrequency(String word) {
+        return (int) this.documentFrequencies.getOrDefault(word, 0.0);
+    }
+
+    /**
+     * Returns the average number of words in the documents counted, or zero if there
+     * are none.
+     */
+    public synchronized double getAverageDocumentLength() {
+        if (this.numDocuments == 0) {
+            return 0.0;
+        }
+        return (double) this.totalLength / this.numDocuments;
+    }
+
+    /**
+     * Returns the IDF score the given scorer gives the given word, or zero if no
+     * document contains it.
+     */
+    public synchronized double getIdf(String word, Scorer scorer) {
+        int count = (int) this.documentFrequencies.getOrDefault(word, 0.0);
+        if (count == 0) {
+            return 0.0;
+        }
+        return scorer.idf(count, this.numDocuments);
+    }
+}
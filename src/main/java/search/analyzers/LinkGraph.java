@@ -0,0 +1,169 @@
+package search.analyzers;
+
+import datastructures.interfaces.ISet;
+import search.index.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * An unweighted, directed graph of the links between webpages, whose nodes are the
+ * pages' doc ids.
+ *
+ * The graph is stored in compressed sparse row form: the targets of every node's
+ * links sit next to each other in one int[], sorted, and offsets[node] is where the
+ * node's targets start. The last entry of offsets is the number of edges, so the
+ * targets of a node are always targets[offsets[node]] through
+ * targets[offsets[node + 1] - 1]. We store the transpose (each node's incoming
+ * links) the same way, so PageRank can compute each node's new rank by pulling from
+ * the nodes linking to it.
+ *
+ * That comes to 8 bytes per edge (4 each way), plus 8 bytes per node for the offsets.
+ */
+public class LinkGraph {
+    private int[] outOffsets;
+    private int[] outTargets;
+    private int[] inOffsets;
+    private int[] inSources;
+
+    /**
+     * Builds a graph out of the given out-links.
+     *
+     * Precondition: offsets must have one entry per node plus one, start at 0 and never
+     *               decrease, and end at targets.length. Each node's targets must be
+     *               distinct, sorted valid node ids.
+     */
+    public LinkGraph(int[] offsets, int[] targets) {
+        this.outOffsets = offsets;
+        this.outTargets = targets;
+
+        // Count the links into each node, then turn the counts into offsets. Visiting the
+        // sources in order leaves each node's sources sorted.
+        int numNodes = offsets.length - 1;
+        this.inOffsets = new int[numNodes + 1];
+        for (int target : targets) {
+            this.inOffsets[target + 1]++;
+        }
+        for (int node = 0; node < numNodes; node++) {
+            this.inOffsets[node + 1] += this.inOffsets[node];
+        }
+        this.inSources = new int[targets.length];
+        int[] next = Arrays.copyOf(this.inOffsets, numNodes);
+        for (int source = 0; source < numNodes; source++) {
+            for (int i = offsets[source]; i < offsets[source + 1]; i++) {
+                this.inSources[next[targets[i]]] = source;
+                next[targets[i]]++;
+            }
+        }
+    }
+
+    /**
+     * Builds the graph of links between the given webpages, with each page as the node
+     * with its doc id.
+     *
+     * Links to pages that aren't in the set are left out, as are links from a page to
+     * itself, and repeated links from one page to another only count once.
+     *
+     * @throws IllegalArgumentException  if the registry has a doc id with no webpage
+     */
+    public static LinkGraph of(ISet<Webpage> webpages, DocumentRegistry registry) {
+        Webpage[] pages = registry.orderById(webpages);
+        int[] offsets = new int[pages.length + 1];
+        int[] targets = new int[Math.max(16, pages.length)];
+        int numEdges = 0;
+        for (int source = 0; source < pages.length; source++) {
+            if (pages[source] == null) {
+                throw new IllegalArgumentException("No webpage has doc id " + source);
+            }
+            int start = numEdges;
+            for (URI link : pages[source].getLinks()) {
+                if (!registry.contains(link)) {
+                    continue;
+                }
+                int target = registry.getDocId(link);
+                if (target == source) {
+                    continue;
+                }
+                if (numEdges == targets.length) {
+                    targets = Arrays.copyOf(targets, numEdges * 2);
+                }
+                targets[numEdges] = target;
+                numEdges++;
+            }
+
+            // Sort the page's targets, then squeeze out the duplicates.
+            Arrays.sort(targets, start, numEdges);
+            int end = start;
+            for (int i = start; i < numEdges; i++) {
+                if (i == start || targets[i] != targets[i - 1]) {
+                    targets[end] = targets[i];
+                    end++;
+                }
+            }
+            numEdges = end;
+            offsets[source + 1] = numEdges;
+        }
+        return new LinkGraph(offsets, Arrays.copyOf(targets, numEdges));
+    }
+
+    /**
+     * Returns the number of nodes.
+     */
+    public int numNodes() {
+        return this.outOffsets.length - 1;
+    }
+
+    /**
+     * Returns the number of edges.
+     */
+    public int numEdges() {
+        return this.outTargets.length;
+    }
+
+    /**
+     * Returns the number of links out of the given node.
+     */
+    public int outDegree(int node) {
+        return this.outOffsets[node + 1] - this.outOffsets[node];
+    }
+
+    /**
+     * Returns the number of links into the given node.
+     */
+    public int inDegree(int node) {
+        return this.inOffsets[node + 1] - this.inOffsets[node];
+    }
+
+    /**
+     * Returns where each node's targets start in 'getOutTargets', plus the number of
+     * edges at the end. The array must not be modified.
+     */
+    public int[] getOutOffsets() {
+        return this.outOffsets;
+    }
+
+    /**
+     * Returns the targets of every node's links, node by node. The array must not be
+     * modified.
+     */
+    public int[] getOutTargets() {
+        return this.outTargets;
+    }
+
+    /**
+     * Returns where each node's sources start in 'getInSources', plus the number of
+     * edges at the end. The array must not be modified.
+     */
+    public int[] getInOffsets() {
+        return this.inOffsets;
+    }
+
+    /**
+     * Returns the sources of every node's incoming links, node by node. The array must
+     * not be modified.
+     */
+    public int[] getInSources() {
+        return this.inSources;
+    }
+}
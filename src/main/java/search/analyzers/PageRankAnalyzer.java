@@ -1,12 +1,7 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.KVPair;
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
-import datastructures.interfaces.IDictionary;
-import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-//import misc.exceptions.NotYetImplementedException;
+import search.index.DocumentRegistry;
 import search.models.Webpage;
 
 import java.net.URI;
@@ -17,7 +12,9 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class PageRankAnalyzer {
-    private IDictionary<URI, Double> pageRanks;
+    // The page rank of every webpage, indexed by doc id.
+    private double[] pageRanks;
+    private DocumentRegistry registry;
 
     /**
      * Computes a graph representing the internet and computes the page rank of all
@@ -32,6 +29,45 @@ public class PageRankAnalyzer {
      *                  page rank never converges.
      */
     public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit) {
+        this(webpages, DocumentRegistry.of(webpages), decay, epsilon, limit);
+    }
+
+    /**
+     * Like the constructor above, but doc ids come from the given registry.
+     *
+     * Precondition: the registry must hold exactly the given webpages.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit) {
+        this(webpages, registry, decay, epsilon, limit, new ParallelPageRankSolver());
+    }
+
+    /**
+     * Like the constructor above, but the page ranks are computed by the given solver.
+     *
+     * Precondition: the registry must hold exactly the given webpages.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit, PageRankSolver solver) {
+        this(webpages, registry, decay, epsilon, limit, solver, null);
+    }
+
+    /**
+     * Like the constructor above, but starts iterating from the page ranks in the given
+     * snapshot (see PageRankSnapshot.initialRanks), rather than from every page having
+     * the same rank. If the snapshot is null, every page starts with the same rank.
+     *
+     * This only changes where the solver starts: every solver still iterates over
+     * the whole graph, and there is no mode that only recomputes the pages around the
+     * ones that changed. A page that lost a link can't be found from the new graph
+     * alone, and changes in the rank spread by pages with no links reach every page,
+     * so starting from just the changed pages had to fall back to full iterations
+     * anyway, and ended up slower than not trying.
+     *
+     * Precondition: the registry must hold exactly the given webpages.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry, double decay, double epsilon,
+                            int limit, PageRankSolver solver, PageRankSnapshot previous) {
         // Implementation note: We have commented these method calls out so your
         // search engine doesn't immediately crash when you try running it for the
         // first time.
@@ -40,55 +76,19 @@ public class PageRankAnalyzer {
         // on this class.
 
         // Step 1: Make a graph representing the 'internet'
-        IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
+        LinkGraph graph = LinkGraph.of(webpages, registry);
 
-        // Step 2: Use this graph to compute the page rank for each webpage
-        this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        // Step 2: Use this graph to compute the page rank for each webpage, by doc id
+        this.registry = registry;
+        this.pageRanks = this.makePageRanks(graph, solver, previous, decay, limit, epsilon);
 
         // Note: we don't store the graph as a field: once we've computed the
         // page ranks, we no longer need it!
     }
 
     /**
-     * This method converts a set of webpages into an unweighted, directed graph,
-     * in adjacency list form.
-     *
-     * You may assume that each webpage can be uniquely identified by its URI.
-     *
-     * Note that a webpage may contain links to other webpages that are *not*
-     * included within set of webpages you were given. You should omit these
-     * links from your graph: we want the final graph we build to be
-     * entirely "self-contained".
-     */
-    private IDictionary<URI, ISet<URI>> makeGraph(ISet<Webpage> webpages) {
-        //throw new NotYetImplementedException();
-        IDictionary<URI, ISet<URI>> result = new ChainedHashDictionary<>();
-        
-        // get all the valid URIs to the space for later use
-        ISet<URI> space = new ChainedHashSet<>(); 
-        for (Webpage page : webpages) {
-            space.add(page.getUri());
-        }
-        
-        for (Webpage page : webpages) {
-            IList<URI> links = page.getLinks();
-            URI selflink = page.getUri();
-            ISet<URI> pointsTo = new ChainedHashSet<>();
-            
-            for (URI link : links) { 
-                if (space.contains(link) && !link.equals(selflink) && !pointsTo.contains(link)) {
-                  pointsTo.add(link);
-                }
-            }
-            result.put(selflink, pointsTo);
-        } 
-        return result;
-    }
-
-    /**
-     * Computes the page ranks for all webpages in the graph.
-     *
-     * Precondition: assumes 'this.graphs' has previously been initialized.
+     * Computes the page ranks for all webpages in the graph, indexed by doc id, with
+     * the given solver, starting from the given snapshot's ranks if it isn't null.
      *
      * @param decay     Represents the "decay" factor when computing page rank (see spec).
      * @param epsilon   When the difference in page ranks is less then or equal to this number,
@@ -97,83 +97,12 @@ public class PageRankAnalyzer {
      *                  is meant as a safety valve to prevent us from infinite looping in case our
      *                  page rank never converges.
      */
-    private IDictionary<URI, Double> makePageRanks(IDictionary<URI, ISet<URI>> graph,
-                                                   double decay,
-                                                   int limit,
-                                                   double epsilon) {
-        // Step 1: The initialize step should go here
-        IDictionary<URI, Double> result = new ChainedHashDictionary<>();
-        
-        // equal weight rank
-        int totalPages = graph.size();
-        IDictionary<URI, Double> rank = new ChainedHashDictionary<>();
-        for (KVPair<URI, ISet<URI>> page : graph) {
-            rank.put(page.getKey(), 1.0 / totalPages);   
-        }
-        
-        // get all the valid URIs to the space for later use
-        ISet<URI> space = new ChainedHashSet<>();
-        for (KVPair<URI, ISet<URI>> pair : graph) { 
-            space.add(pair.getKey());
+    private double[] makePageRanks(LinkGraph graph, PageRankSolver solver, PageRankSnapshot previous,
+                                   double decay, int limit, double epsilon) {
+        if (previous == null) {
+            return solver.solve(graph, decay, epsilon, limit);
         }
-        
-        for (int i = 0; i < limit; i++) {
-            // Step 2: The update step should go here
-            
-            // 2.1
-            if (i != 0) {
-                for (KVPair<URI, ISet<URI>> page : graph) {
-                    rank.put(page.getKey(), result.get(page.getKey()));
-                }
-            }
-            
-            for (KVPair<URI, ISet<URI>> page : graph) {
-                result.put(page.getKey(), 0.0);
-            }
-            
-            // 2.2
-            for (KVPair<URI, ISet<URI>> page : graph) {
-                URI selflink = page.getKey();
-                ISet<URI> links = page.getValue();
-                int numLinks = links.size();
-                
-                if (numLinks == 0) {
-                    // increase rank for every other pages
-                    for (URI uri : space) {
-                        result.put(uri, result.get(uri) + (decay * rank.get(selflink) / totalPages));
-                    }
-                } else {
-                    for (URI link : links) {
-                        result.put(link, result.get(link) + (decay * rank.get(selflink) / numLinks));
-                    }
-                }
-            }
-            
-            // 2.3
-            for (KVPair<URI, ISet<URI>> page : graph) {
-                URI uri = page.getKey();
-                result.put(uri, result.get(uri) + ((1 - decay) / totalPages));
-            }
-            
-            // Step 3: the convergence step should go here.
-            // Return early if we've converged.
-            
-            //throw new NotYetImplementedException();
-            Boolean converged = true;
-            for (KVPair<URI, ISet<URI>> page : graph) {
-                URI urii = page.getKey();
-                
-                // set to false if there is one case that >= epsilon
-                if (Math.abs(result.get(urii) - rank.get(urii)) >= epsilon) {
-                    converged = false;
-                }
-            }
-            if (converged) {
-                return result;
-            }
-        }
-        //throw new NotYetImplementedException();
-        return result;
+        return solver.solve(graph, decay, epsilon, limit, previous.initialRanks(this.registry));
     }
 
     /**
@@ -184,6 +113,25 @@ public class PageRankAnalyzer {
      */
     public double computePageRank(URI pageUri) {
         // Implementation note: this method should be very simple: just one line!
-        return this.pageRanks.get(pageUri);
+        return this.pageRanks[this.registry.getDocId(pageUri)];
+    }
+
+    /**
+     * Returns the page rank of the webpage with the given doc id.
+     */
+    public double computePageRank(int docId) {
+        return this.pageRanks[docId];
+    }
+
+    /**
+     * Returns the page rank of every webpage, keyed by URI, so they can be saved and
+     * used as the starting point after the next crawl.
+     */
+    public PageRankSnapshot getSnapshot() {
+        URI[] uris = new URI[this.pageRanks.length];
+        for (int docId = 0; docId < uris.length; docId++) {
+            uris[docId] = this.registry.getUri(docId);
+        }
+        return new PageRankSnapshot(uris, this.pageRanks.clone());
     }
 }
@@ -0,0 +1,148 @@
+package search.analyzers;
+
+import search.index.DocumentRegistry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The page rank of every webpage, as of some earlier crawl, keyed by URI rather than
+ * doc id so it still makes sense after a recrawl hands out different doc ids.
+ *
+ * Recomputing page ranks from scratch after a recrawl that only changed a few pages
+ * wastes most of its iterations getting back to where the old ranks already were.
+ * Instead, a PageRankAnalyzer can start from the old ranks (see 'initialRanks'), and
+ * then only needs as many iterations as it takes for the changes to settle.
+ *
+ * Snapshots are saved as text, one page per line: the page's rank, a space, then its
+ * URI (which can't contain spaces).
+ */
+public class PageRankSnapshot {
+    private URI[] uris;
+    private double[] ranks;
+
+    /**
+     * Makes a snapshot where uris[i] has rank ranks[i].
+     *
+     * @throws IllegalArgumentException  if the arrays have different lengths
+     */
+    public PageRankSnapshot(URI[] uris, double[] ranks) {
+        if (uris.length != ranks.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Got %d uris but %d ranks", uris.length, ranks.length));
+        }
+        this.uris = uris;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Reads a snapshot from the given file, as written by 'save'.
+     *
+     * @throws IOException  if the file can't be read, or isn't a snapshot
+     */
+    public static PageRankSnapshot load(Path file) throws IOException {
+        URI[] uris = new URI[16];
+        double[] ranks = new double[16];
+        int size = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space < 0) {
+                    throw new IOException(String.format("Line %d of %s has no uri", size + 1, file));
+                }
+                if (size == uris.length) {
+                    uris = Arrays.copyOf(uris, size * 2);
+                    ranks = Arrays.copyOf(ranks, size * 2);
+                }
+                try {
+                    ranks[size] = Double.parseDouble(line.substring(0, space));
+                    uris[size] = URI.create(line.substring(space + 1));
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException(String.format("Line %d of %s is malformed", size + 1, file), ex);
+                }
+                size++;
+            }
+        }
+        return new PageRankSnapshot(Arrays.copyOf(uris, size), Arrays.copyOf(ranks, size));
+    }
+
+    /**
+     * Writes this snapshot to the given file, replacing it if it already exists.
+     *
+     * @throws IOException  if the file can't be written
+     */
+    public void save(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < this.uris.length; i++) {
+                writer.write(Double.toString(this.ranks[i]));
+                writer.write(' ');
+                writer.write(this.uris[i].toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pages in this snapshot.
+     */
+    public int size() {
+        return this.uris.length;
+    }
+
+    /**
+     * Returns the URI of the i-th page in this snapshot.
+     */
+    public URI getUri(int i) {
+        return this.uris[i];
+    }
+
+    /**
+     * Returns the rank of the i-th page in this snapshot.
+     */
+    public double getRank(int i) {
+        return this.ranks[i];
+    }
+
+    /**
+     * Returns ranks to start iterating from for the pages in the given registry,
+     * indexed by doc id.
+     *
+     * Pages that are in this snapshot start with their old rank, and new pages start
+     * with the average old rank of the others. Pages that are gone take their rank
+     * with them, so everything is then scaled to add up to 1, like page ranks do.
+     */
+    public double[] initialRanks(DocumentRegistry registry) {
+        double[] output = new double[registry.size()];
+        boolean[] found = new boolean[output.length];
+        int numFound = 0;
+        double total = 0.0;
+        for (int i = 0; i < this.uris.length; i++) {
+            if (registry.contains(this.uris[i])) {
+                int docId = registry.getDocId(this.uris[i]);
+                output[docId] = this.ranks[i];
+                found[docId] = true;
+                numFound++;
+                total += this.ranks[i];
+            }
+        }
+
+        double mean = numFound == 0 ? 1.0 : total / numFound;
+        for (int docId = 0; docId < output.length; docId++) {
+            if (!found[docId]) {
+                output[docId] = mean;
+                total += mean;
+            }
+        }
+        for (int docId = 0; docId < output.length; docId++) {
+            output[docId] /= total;
+        }
+        return output;
+    }
+}
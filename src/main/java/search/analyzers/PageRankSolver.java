@@ -0,0 +1,54 @@
+package search.analyzers;
+
+/**
+ * Computes the page rank of every node in a link graph.
+ *
+ * Every solver computes the same page ranks (the ones described in the spec), give
+ * or take 'epsilon': they differ in how they get there, and so in how many
+ * iterations, and how much time, that takes. Each solver keeps track of both (see
+ * 'getStatistics').
+ */
+public interface PageRankSolver {
+    /**
+     * Returns the page rank of every node in the given graph, indexed by node, starting
+     * from every node having the same rank.
+     *
+     * @param decay     the chance of following a link rather than jumping to a random page
+     * @param epsilon   stop iterating once no rank moves by this much or more
+     * @param limit     the most iterations to run
+     */
+    default double[] solve(LinkGraph graph, double decay, double epsilon, int limit) {
+        double[] initialRanks = new double[graph.numNodes()];
+        for (int node = 0; node < initialRanks.length; node++) {
+            initialRanks[node] = 1.0 / initialRanks.length;
+        }
+        return this.solve(graph, decay, epsilon, limit, initialRanks);
+    }
+
+    /**
+     * Like the method above, but starts iterating from the given ranks instead. The
+     * closer they are to the final ranks (say, the ranks from before a few pages
+     * changed), the fewer iterations it takes. The given array isn't modified.
+     *
+     * @throws IllegalArgumentException  if there isn't exactly one initial rank per node
+     */
+    double[] solve(LinkGraph graph, double decay, double epsilon, int limit, double[] initialRanks);
+
+    /**
+     * Returns a copy of the given initial ranks, for a solver to iterate on.
+     *
+     * @throws IllegalArgumentException  if there isn't exactly one initial rank per node
+     */
+    static double[] copyInitialRanks(LinkGraph graph, double[] initialRanks) {
+        if (initialRanks.length != graph.numNodes()) {
+            throw new IllegalArgumentException(String.format(
+                    "Got %d initial ranks for %d nodes", initialRanks.length, graph.numNodes()));
+        }
+        return initialRanks.clone();
+    }
+
+    /**
+     * Returns how many iterations this solver has run so far, and how long they took.
+     */
+    SolverStatistics getStatistics();
+}
@@ -0,0 +1,208 @@
+package search.analyzers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes page ranks by power iteration (also known as Jacobi iteration), on several
+ * threads at once.
+ *
+ * Each iteration computes every node's new rank from the old ranks of the nodes
+ * linking to it (using the graph's in-edges), so the nodes can be split into
+ * contiguous ranges and each range computed on its own thread: every thread only
+ * ever writes the entries of its own range, and nothing needs to be synchronized.
+ * While it's at it, each thread also works out how far its nodes' ranks moved, and
+ * the largest move is combined across ranges the same way, to decide when to stop.
+ *
+ * Pages with no links spread their rank evenly over every page, so every page gets
+ * the same share of it: we add up the dangling pages' ranks once per iteration,
+ * before splitting it up, rather than having every page visit every dangling page.
+ *
+ * Splitting an iteration up has a fixed cost, so small graphs are simply iterated
+ * on the calling thread.
+ */
+public class ParallelPageRankSolver implements PageRankSolver {
+    // Graphs with fewer nodes than this per partition use fewer partitions.
+    public static final int DEFAULT_MIN_NODES_PER_PARTITION = 1 << 12;
+
+    private ForkJoinPool pool;
+    private int numPartitions;
+    private int minNodesPerPartition;
+    private SolverStatistics statistics;
+
+    /**
+     * Makes a solver that splits each iteration into as many partitions as the common
+     * fork/join pool has threads.
+     */
+    public ParallelPageRankSolver() {
+        this(ForkJoinPool.commonPool().getParallelism(), DEFAULT_MIN_NODES_PER_PARTITION, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @throws IllegalArgumentException  if numPartitions < 1 or minNodesPerPartition < 1
+     */
+    public ParallelPageRankSolver(int numPartitions, int minNodesPerPartition, ForkJoinPool pool) {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("Need at least one partition, got " + numPartitions);
+        }
+        if (minNodesPerPartition < 1) {
+            throw new IllegalArgumentException("Need at least one node per partition, got " + minNodesPerPartition);
+        }
+        this.pool = pool;
+        this.numPartitions = numPartitions;
+        this.minNodesPerPartition = minNodesPerPartition;
+        this.statistics = new SolverStatistics();
+    }
+
+    @Override
+    public double[] solve(LinkGraph graph, double decay, double epsilon, int limit, double[] initialRanks) {
+        long startTime = System.nanoTime();
+        int totalPages = graph.numNodes();
+        double[] rank = PageRankSolver.copyInitialRanks(graph, initialRanks);
+        double[] result = rank.clone();
+
+        // What each node passes on along each of its links: decay * rank / outDegree.
+        // Each iteration computes the next iteration's along with the new ranks.
+        double[] contributions = new double[totalPages];
+        double[] nextContributions = new double[totalPages];
+        int numDangling = 0;
+        for (int page = 0; page < totalPages; page++) {
+            if (graph.outDegree(page) == 0) {
+                numDangling++;
+            } else {
+                contributions[page] = decay * rank[page] / graph.outDegree(page);
+            }
+        }
+        int[] dangling = new int[numDangling];
+        numDangling = 0;
+        for (int page = 0; page < totalPages; page++) {
+            if (graph.outDegree(page) == 0) {
+                dangling[numDangling] = page;
+                numDangling++;
+            }
+        }
+
+        int partitions = Math.max(1, Math.min(this.numPartitions, totalPages / this.minNodesPerPartition));
+        int iterations = 0;
+        while (iterations < limit) {
+            iterations++;
+            if (iterations != 1) {
+                double[] previous = rank;
+                rank = result;
+                result = previous;
+                previous = contributions;
+                contributions = nextContributions;
+                nextContributions = previous;
+            }
+
+            double danglingRank = 0.0;
+            for (int page : dangling) {
+                danglingRank += rank[page];
+            }
+
+            Iteration iteration = new Iteration(graph, decay, decay * danglingRank / totalPages,
+                    rank, result, contributions, nextContributions);
+            double residual;
+            if (partitions == 1) {
+                residual = iteration.run(0, totalPages);
+            } else {
+                residual = this.pool.invoke(new RangeTask(iteration, 0, totalPages, partitions));
+            }
+            if (residual < epsilon) {
+                break;
+            }
+        }
+        this.statistics.record(iterations, (long) iterations * totalPages, System.nanoTime() - startTime);
+        return result;
+    }
+
+    @Override
+    public SolverStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Everything one iteration reads and writes.
+     */
+    private static class Iteration {
+        private int[] inOffsets;
+        private int[] inSources;
+        private int[] outOffsets;
+        private double decay;
+        private double danglingShare;
+        private double[] rank;
+        private double[] result;
+        private double[] contributions;
+        private double[] nextContributions;
+
+        /**
+         * 'danglingShare' is how much rank each page gets from the pages with no links.
+         */
+        public Iteration(LinkGraph graph, double decay, double danglingShare, double[] rank,
+                         double[] result, double[] contributions, double[] nextContributions) {
+            this.inOffsets = graph.getInOffsets();
+            this.inSources = graph.getInSources();
+            this.outOffsets = graph.getOutOffsets();
+            this.decay = decay;
+            this.danglingShare = danglingShare;
+            this.rank = rank;
+            this.result = result;
+            this.contributions = contributions;
+            this.nextContributions = nextContributions;
+        }
+
+        /**
+         * Computes the new ranks of the nodes in [start, end), and returns the largest
+         * amount any of them moved.
+         */
+        public double run(int start, int end) {
+            double base = (1 - this.decay) / this.rank.length + this.danglingShare;
+            double residual = 0.0;
+            for (int page = start; page < end; page++) {
+                double sum = 0.0;
+                for (int i = this.inOffsets[page]; i < this.inOffsets[page + 1]; i++) {
+                    sum += this.contributions[this.inSources[i]];
+                }
+                double newRank = sum + base;
+                this.result[page] = newRank;
+                int outDegree = this.outOffsets[page + 1] - this.outOffsets[page];
+                this.nextContributions[page] = outDegree == 0 ? 0.0 : this.decay * newRank / outDegree;
+                residual = Math.max(residual, Math.abs(newRank - this.rank[page]));
+            }
+            return residual;
+        }
+    }
+
+    /**
+     * Runs an iteration over [start, end), splitting the range in half (and forking)
+     * until each task covers a single partition. Returns the largest amount any rank
+     * in the range moved.
+     */
+    private static class RangeTask extends RecursiveTask<Double> {
+        private Iteration iteration;
+        private int start;
+        private int end;
+        private int partitions;
+
+        public RangeTask(Iteration iteration, int start, int end, int partitions) {
+            this.iteration = iteration;
+            this.start = start;
+            this.end = end;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.partitions == 1) {
+                return this.iteration.run(this.start, this.end);
+            }
+            int leftPartitions = this.partitions / 2;
+            int mid = (int) (this.start + (long) (this.end - this.start) * leftPartitions / this.partitions);
+            RangeTask left = new RangeTask(this.iteration, this.start, mid, leftPartitions);
+            RangeTask right = new RangeTask(this.iteration, mid, this.end, this.partitions - leftPartitions);
+            left.fork();
+            double rightResidual = right.compute();
+            return Math.max(left.join(), rightResidual);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package search.analyzers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up how much work a PageRankSolver did, over every graph it has solved so far:
+ * how many iterations it ran, how many node ranks it recomputed along the way, and
+ * how long it took.
+ *
+ * This class is thread-safe.
+ */
+public class SolverStatistics {
+    private AtomicLong numSolves;
+    private AtomicLong iterations;
+    private AtomicLong nodeUpdates;
+    private AtomicLong nanos;
+
+    public SolverStatistics() {
+        this.numSolves = new AtomicLong();
+        this.iterations = new AtomicLong();
+        this.nodeUpdates = new AtomicLong();
+        this.nanos = new AtomicLong();
+    }
+
+    /**
+     * Records one graph, which took the given number of iterations, recomputing ranks
+     * the given number of times in total, in the given number of nanoseconds.
+     */
+    public void record(int iterations, long nodeUpdates, long nanos) {
+        this.numSolves.incrementAndGet();
+        this.iterations.addAndGet(iterations);
+        this.nodeUpdates.addAndGet(nodeUpdates);
+        this.nanos.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the number of graphs solved so far.
+     */
+    public long getNumSolves() {
+        return this.numSolves.get();
+    }
+
+    /**
+     * Returns the total number of iterations run so far.
+     */
+    public long getIterations() {
+        return this.iterations.get();
+    }
+
+    /**
+     * Returns the total number of times any node's rank was recomputed so far.
+     */
+    public long getNodeUpdates() {
+        return this.nodeUpdates.get();
+    }
+
+    /**
+     * Returns the total time spent solving so far, in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos.get();
+    }
+}
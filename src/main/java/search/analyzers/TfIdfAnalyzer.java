@@ -1,15 +1,23 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.KVPair;
-import datastructures.concrete.dictionaries.ArrayDictionary;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.StringDoubleDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
+import search.index.CompiledQuery;
+import search.index.DocumentRegistry;
+import search.index.InvertedIndex;
+import search.index.QueryTerm;
+import search.index.SparseVector;
+import search.index.Vocabulary;
+import search.index.WeightedQuery;
 import search.models.Webpage;
+import search.scoring.Scorer;
 
 import java.net.URI;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This class is responsible for computing how "relevant" any given document is
@@ -18,37 +26,162 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class TfIdfAnalyzer {
+    // Every single word in all the documents, each with its own term id.
+    private Vocabulary vocabulary;
+
     // This field must contain the IDF score for every single word in all
-    // the documents.
-    private IDictionary<String, Double> idfScores;
+    // the documents, indexed by term id.
+    private double[] idfScores;
+
+    // Decides how terms are weighted. By default, it's a cosine TF-IDF scorer, and
+    // everything below talking about term frequencies and TF-IDF vectors is literally
+    // true. Other scorers use their own document weights instead of the term
+    // frequencies (see Scorer.documentWeight).
+    private Scorer scorer;
 
     // This field must contain the TF-IDF vector for each webpage you were given
     // in the constructor.
     //
-    // We will use each webpage's page URI as a unique key.
-    private IDictionary<URI, IDictionary<String, Double>> documentTfIdfVectors;
-    private IDictionary<URI, Double> documentNorm;
+    // The vectors are stored in an array indexed by each webpage's doc id, and refer
+    // to words by term id. We store each page's term frequencies, and multiply them by
+    // the IDF scores as we go: that way a page can be re-indexed with different IDF
+    // scores without going back to its words.
+    //
+    // The term frequencies are divided by the norm of the page's TF-IDF vector ahead of
+    // time, so 'computeRelevance' never has to look up the norm or divide by it.
+    private SparseVector[] documentTfVectors;
+
+    // The number of words on each webpage, indexed by doc id, and on average. Both are
+    // only kept if the scorer needs them: otherwise the array is null, and the average 0.
+    private int[] documentLengths;
+    private double averageLength;
+
+    // Assigns each webpage its doc id.
+    private DocumentRegistry registry;
+
+    // Maps every word to the postings of the documents containing it, so
+    // a query only needs to touch the documents that share a word with it.
+    private InvertedIndex index;
 
     // Feel free to add extra fields and helper methods.
 
     public TfIdfAnalyzer(ISet<Webpage> webpages) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
+        this(webpages, DocumentRegistry.of(webpages));
+    }
+
+    /**
+     * Constructs an analyzer whose doc ids come from the given registry.
+     *
+     * Precondition: every webpage must have been registered.
+     */
+    public TfIdfAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry) {
+        this(TfIdfIndexBuilder.of(webpages, registry), registry);
+    }
 
-        this.idfScores = this.computeIdfScores(webpages);
-        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages);
-        
+    /**
+     * Constructs an analyzer over the pages given to the builder. See
+     * 'TfIdfIndexBuilder.build'.
+     */
+    TfIdfAnalyzer(TfIdfIndexBuilder builder, DocumentRegistry registry) {
+        builder.finish(registry.size());
+        this.registry = registry;
+        this.vocabulary = builder.getVocabulary();
+        this.idfScores = builder.getIdfScores();
+        this.documentTfVectors = builder.getVectors();
+        this.documentLengths = builder.getLengths();
+        this.averageLength = builder.getAverageLength();
+        this.scorer = builder.getScorer();
+        this.index = builder.getIndex();
     }
 
     // Note: this method, strictly speaking, doesn't need to exist. However,
     // we've included it so we can add some unit tests to help verify that your
     // constructor correctly initializes your fields.
+    //
+    // We store the vectors by doc id and term id, normalized, so this rebuilds the URI-
+    // and word-keyed view on every call.
     public IDictionary<URI, IDictionary<String, Double>> getDocumentTfIdfVectors() {
-        return this.documentTfIdfVectors;
+        IDictionary<URI, IDictionary<String, Double>> output = new ChainedHashDictionary<>();
+        for (int docId = 0; docId < this.documentTfVectors.length; docId++) {
+            SparseVector vector = this.getTermFrequencies(docId);
+            StringDoubleDictionary words = new StringDoubleDictionary(vector.size());
+            for (int i = 0; i < vector.size(); i++) {
+                int termId = vector.getTermId(i);
+                words.put(this.vocabulary.getTerm(termId), vector.getWeight(i) * this.idfScores[termId]);
+            }
+            output.put(this.registry.getUri(docId), words);
+        }
+        return output;
+    }
+
+    /**
+     * Returns the term frequency of every word in the document with the given doc id,
+     * by term id.
+     *
+     * The vector is rebuilt from the document weights on every call.
+     */
+    public SparseVector getTermFrequencies(int docId) {
+        SparseVector weights = this.documentTfVectors[docId];
+        double norm = this.index.getDocumentNorm(docId);
+        double scale = norm != 0.0 && this.scorer.normalizesDocuments() ? norm : 1.0;
+        int length = this.getDocumentLength(docId);
+        int[] termIds = new int[weights.size()];
+        double[] tfs = new double[weights.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = weights.getTermId(i);
+            tfs[i] = this.scorer.termFrequency(weights.getWeight(i) * scale, length, this.averageLength);
+        }
+        return new SparseVector(termIds, tfs);
+    }
+
+    /**
+     * Returns the weight of every word in the document with the given doc id, by term
+     * id, not counting its IDF score: for the cosine scorer, the term frequencies
+     * divided by the norm of the document's TF-IDF vector. Multiplying these by the
+     * IDF scores gives the document's weights as used by 'computeRelevance': for the
+     * cosine scorer, its unit-length TF-IDF vector.
+     *
+     * If the norm is zero, these aren't divided by it.
+     */
+    public SparseVector getDocumentWeights(int docId) {
+        return this.documentTfVectors[docId];
+    }
+
+    /**
+     * Returns the number of words in the document with the given doc id, or 0 if the
+     * scorer doesn't require document lengths (see Scorer.Statistic.DOCUMENT_LENGTH).
+     */
+    public int getDocumentLength(int docId) {
+        return this.documentLengths == null ? 0 : this.documentLengths[docId];
+    }
+
+    /**
+     * Returns the IDF score of the word with the given term id.
+     */
+    public double getIdfScore(int termId) {
+        return this.idfScores[termId];
+    }
+
+    /**
+     * Returns the scorer deciding how terms are weighted.
+     */
+    public Scorer getScorer() {
+        return this.scorer;
+    }
+
+    /**
+     * Returns every word in the webpages given to the constructor.
+     */
+    public Vocabulary getVocabulary() {
+        return this.vocabulary;
+    }
+
+    /**
+     * Returns the inverted index built over the webpages given to the constructor.
+     * Each posting's weight is the word's TF-IDF score within that document.
+     */
+    public InvertedIndex getIndex() {
+        return this.index;
     }
 
     // Note: these private methods are suggestions or hints on how to structure your
@@ -58,137 +191,143 @@ public class TfIdfAnalyzer {
     // correct answer in an efficient manner.
 
     /**
-     * Return a dictionary mapping every single unique word found
-     * in every single document to their IDF score.
+     * Returns a dictionary mapping every unique word found in the given list
+     * to the number of times it appears. (The scorer turns these into term
+     * frequencies.)
+     *
+     * The input list represents the words contained within a single document.
      */
-    private IDictionary<String, Double> computeIdfScores(ISet<Webpage> pages) {
-        //throw new NotYetImplementedException();
-        IDictionary<String, Double> countFrequency = new ChainedHashDictionary<>();
-        IDictionary<String, Double> idfScores = new ChainedHashDictionary<>();
-        for (Webpage page : pages) {
-            ISet<String> wordList = new ChainedHashSet<>();
-            IList<String> words = page.getWords();
-            for (String word : words) {
-                if (!countFrequency.containsKey(word)) { //if the word is not included in the idf
-                    countFrequency.put(word, 1.0);
-                    wordList.add(word);
-                } else {
-                    if (!wordList.contains(word)) { // if the word hasn't been count yet
-                        wordList.add(word);
-                        double value = countFrequency.get(word);
-                        countFrequency.put(word, value + 1.0);
-                    }    
-                }
-                    
-            }
-         }
-        //compute the scores
-        for (KVPair<String, Double> pair : countFrequency) {
-            idfScores.put(pair.getKey(), Math.log(pages.size() / pair.getValue()));
+    private static StringDoubleDictionary countWords(IList<String> words) {
+        StringDoubleDictionary wordCount = new StringDoubleDictionary();
+        for (String word : words) {
+            wordCount.put(word, wordCount.getOrDefault(word, 0.0) + 1.0);
         }
-        return idfScores;  
-            
+        return wordCount;
     }
 
     /**
-     * Returns a dictionary mapping every unique word found in the given list
-     * to their term frequency (TF) score.
+     * Returns the cosine similarity between the TF-IDF vector for the given query and the
+     * URI's document (or, with another scorer, that scorer's relevance).
      *
-     * The input list represents the words contained within a single document.
+     * Precondition: the given uri must have been one of the uris within the list of
+     *               webpages given to the constructor.
      */
-    private IDictionary<String, Double> computeTfScores(IList<String> words) {
-        //throw new NotYetImplementedException();
-        IDictionary<String, Double> wordCount = new ChainedHashDictionary<>();
-        IDictionary<String, Double> tfScores = new ChainedHashDictionary<>();
-        for (String word : words) {
-            if (wordCount.containsKey(word))
-            {
-                double value = wordCount.get(word);
-                wordCount.put(word, value + 1.0 );
-            } else {
-                wordCount.put(word, 1.0); 
-            }       
-        }
-        //compute the scores
-        for (KVPair<String, Double> pair : wordCount) {
-            tfScores.put(pair.getKey(), pair.getValue() / words.size());
+    public Double computeRelevance(IList<String> query, URI pageUri) {
+        return this.computeRelevance(this.compile(query), this.registry.getDocId(pageUri));
+    }
+
+    /**
+     * Returns the cosine similarity between the given compiled query and the document
+     * with the given doc id (or, with another scorer, that scorer's relevance).
+     *
+     * All of the query-side work was done when compiling the query, and the document's
+     * vector is already normalized, so scoring many documents against the same compiled
+     * query only costs a binary search per query word per document.
+     *
+     * Precondition: the given doc id must belong to one of the webpages given to
+     *               the constructor.
+     */
+    public double computeRelevance(CompiledQuery query, int docId) {
+        // Both vectors are already divided by their norms (if the scorer normalizes
+        // documents). If the document's norm is zero, so is every one of its weights,
+        // and so is the sum.
+        SparseVector documentVector = this.documentTfVectors[docId];
+        double relevance = 0.0;
+        for (QueryTerm term : query.getTerms()) {
+            int termId = term.getTermId();
+            relevance += term.getWeight() * (documentVector.get(termId) * this.idfScores[termId]);
         }
-        return tfScores;    
+        return relevance;
     }
 
     /**
-     * See spec for more details on what this method should do.
+     * Preprocesses the given query so it can be scored against any number of documents:
+     * this computes the query's TF-IDF vector (or the scorer's query weights) over its
+     * distinct words, normalizes it to unit length, and looks up each word in the
+     * inverted index.
+     *
+     * Like the cosine similarity in the spec, every occurrence of a word in the query
+     * counts (unless the scorer says otherwise, see Scorer.countsRepeatedWords): a word
+     * that appears n times adds n times its entry in the unit-length query vector times
+     * the document's weight. So each word's weight is multiplied by its count once the
+     * norm is known, and the score is still a weighted sum over the distinct words,
+     * which every QueryEvaluator can compute.
      */
-    private IDictionary<URI, IDictionary<String, Double>> computeAllDocumentTfIdfVectors(ISet<Webpage> pages) {
-        // Hint: this method should use the idfScores field and
-        // call the computeTfScores(...) method.
-        //throw new NotYetImplementedException();
-        IDictionary<URI, IDictionary<String, Double>> allVectors = new ChainedHashDictionary<>();
-        IDictionary<URI, Double> pageNorm = new ChainedHashDictionary<>();
-        for (Webpage page : pages) {
-            double norm = 0;
-            URI url = page.getUri();
-            IDictionary<String, Double> vectors = new ChainedHashDictionary<>();
-            IList<String> words = page.getWords();
-            for (KVPair<String, Double> pair : this.computeTfScores(words)) {
-                String word = pair.getKey();
-                vectors.put(word, pair.getValue() * this.idfScores.get(word));
-                norm += vectors.get(word) * vectors.get(word);
+    public CompiledQuery compile(IList<String> query) {
+        return this.resolve(weigh(query, this.scorer, word -> {
+            int termId = this.vocabulary.getTermId(word);
+            return termId == InvertedIndex.UNKNOWN_TERM ? 0.0 : this.idfScores[termId];
+        }));
+    }
+
+    /**
+     * Returns the unit-length query vector (or the scorer's query weights) for the given
+     * query, with each word's IDF score taken from the given statistics rather than from
+     * any one analyzer.
+     */
+    public static WeightedQuery weigh(IList<String> query, CollectionStatistics statistics, Scorer scorer) {
+        return weigh(query, scorer, word -> statistics.getIdf(word, scorer));
+    }
+
+    private static WeightedQuery weigh(IList<String> query, Scorer scorer, ToDoubleFunction<String> idf) {
+        StringDoubleDictionary wordCounts = countWords(query);
+        String[] words = new String[wordCounts.size()];
+        double[] weights = new double[wordCounts.size()];
+        int[] counts = new int[wordCounts.size()];
+        double norm = 0.0;
+        int count = 0;
+        for (KVPair<String, Double> pair : wordCounts) {
+            double wordIdf = idf.applyAsDouble(pair.getKey());
+            if (wordIdf != 0.0) {
+                int occurrences = pair.getValue().intValue();
+                double weight = scorer.queryWeight(occurrences, query.size(), wordIdf);
+                if (!scorer.countsRepeatedWords()) {
+                    occurrences = 1;
+                }
+                norm += weight * weight;
+                if (weight > 0.0) {
+                    words[count] = pair.getKey();
+                    weights[count] = weight;
+                    counts[count] = occurrences;
+                    count++;
+                }
             }
-            pageNorm.put(url, Math.sqrt(norm));
-            allVectors.put(url, vectors);       
         }
-        this.documentNorm = pageNorm;
-        return allVectors;
+        norm = Math.sqrt(norm);
+
+        String[] outputWords = new String[count];
+        double[] outputWeights = new double[count];
+        for (int i = 0; i < count; i++) {
+            outputWords[i] = words[i];
+            outputWeights[i] = counts[i] * weights[i] / norm;
+        }
+        return new WeightedQuery(outputWords, outputWeights, norm);
     }
 
     /**
-     * Returns the cosine similarity between the TF-IDF vector for the given query and the
-     * URI's document.
-     *
-     * Precondition: the given uri must have been one of the uris within the list of
-     *               webpages given to the constructor.
+     * Looks up each word of the given query in this analyzer's inverted index, so it can
+     * be scored against this analyzer's documents. Words that aren't in any of them are
+     * left out, but keep their share of the query's norm.
      */
-    public Double computeRelevance(IList<String> query, URI pageUri) {
-        // Note: The pseudocode we gave you is not very efficient. When implementing,
-        // this method, you should:
-        //
-        // 1. Figure out what information can be precomputed in your constructor.
-        //    Add a third field containing that information.
-        //
-        // 2. See if you can combine or merge one or more loops.
-        IDictionary<String, Double> documentVector = this.documentTfIdfVectors.get(pageUri);
-        double dNorm = this.documentNorm.get(pageUri);
-        
-
-        IDictionary<String, Double> queryVector = new ChainedHashDictionary<>();
-        IDictionary<String, Double> queryTFScores = this.computeTfScores(query);
-        double queryNorm = 0.0;
-        for (KVPair<String, Double> pair : queryTFScores) {
-            String word = pair.getKey();
-            if (this.idfScores.containsKey(word)) {
-                queryVector.put(word, pair.getValue() * this.idfScores.get(word));
-            } else {
-                queryVector.put(word, 0.0);
+    public CompiledQuery resolve(WeightedQuery query) {
+        int[] termIds = new int[query.size()];
+        int count = 0;
+        for (int i = 0; i < query.size(); i++) {
+            termIds[i] = this.vocabulary.getTermId(query.getWord(i));
+            if (termIds[i] != InvertedIndex.UNKNOWN_TERM) {
+                count++;
             }
-            queryNorm += queryVector.get(word) * queryVector.get(word);
         }
-        
-        double numerator = 0.0;
-        for (String word : query) {
-            double docWordScore = 0.0; 
-            double queryWordScore = queryVector.get(word);
-            if (documentVector.containsKey(word)) {
-                docWordScore = documentVector.get(word);
-            } 
-            numerator += docWordScore * queryWordScore;
+
+        QueryTerm[] terms = new QueryTerm[count];
+        int j = 0;
+        for (int i = 0; i < query.size(); i++) {
+            if (termIds[i] != InvertedIndex.UNKNOWN_TERM) {
+                terms[j] = new QueryTerm(
+                        query.getWord(i), termIds[i], query.getWeight(i), this.index);
+                j++;
+            }
         }
-       double denominator = dNorm * Math.sqrt(queryNorm);
-       if (denominator != 0) {
-           return numerator / denominator;
-       } else {
-           return 0.0;
-       }
-    }
-    
+        return new CompiledQuery(terms, query.getNorm());
+    }
 }
@@ -0,0 +1,387 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.StringDoubleDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.index.DocumentRegistry;
+import search.index.InvertedIndex;
+import search.index.SparseVector;
+import search.index.Vocabulary;
+import search.index.codec.PostingsCodec;
+import search.models.Webpage;
+import search.scoring.CosineScorer;
+import search.scoring.Scorer;
+
+import java.util.Arrays;
+
+/**
+ * Builds a TfIdfAnalyzer one page at a time, in a single pass over the pages.
+ *
+ * Each page's words are boiled down to its term frequencies as soon as the page is
+ * added, so the caller may throw the word list away right afterwards: the builder
+ * never holds more than one page's words at once. Every word is given a provisional
+ * id the first time we see it, and we count how many pages it appears in as we go.
+ * Once every page has been added, 'build' sorts the words into the vocabulary,
+ * computes the IDF scores, and turns each page's term frequencies into its postings.
+ *
+ * Pages may be added in any order, but each doc id may only be added once, and the
+ * builder may only be used to build a single analyzer.
+ *
+ * By default the IDF scores are computed from the pages added. When the pages are
+ * only part of a larger collection (see SegmentedIndex), they can be computed from
+ * the statistics of the whole collection instead.
+ *
+ * The weights are cosine TF-IDF weights unless the builder is given another scorer.
+ * The postings are stored uncompressed unless the builder is given a codec.
+ */
+public class TfIdfIndexBuilder {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Every word seen so far, mapped to its provisional id: the order in which we
+    // first saw it.
+    private IDictionary<String, Integer> provisionalIds;
+
+    // The word with each provisional id, and the number of pages it appears in.
+    private String[] terms;
+    private int[] documentFrequencies;
+    private int numTerms;
+
+    // The provisional ids of the distinct words on each page, their term frequencies,
+    // and the number of words on the page, indexed by doc id. Null if no page with
+    // that doc id was added.
+    private int[][] documentTermIds;
+    private double[][] documentTfs;
+    private int[] documentLengths;
+    private int numPages;
+
+    // If non-null, where the IDF scores and average page length come from.
+    private CollectionStatistics statistics;
+
+    private Scorer scorer;
+
+    // If non-null, the codec the index's postings get compressed with.
+    private PostingsCodec codec;
+
+    private boolean finished;
+
+    // The results of 'finish'. The vectors hold each page's document weights (see
+    // Scorer.documentWeight), divided by the norm of its weight vector if the scorer
+    // normalizes documents: multiplying them by the IDF scores gives the weights of
+    // the page's postings, already scaled to unit length. For the cosine scorer, the
+    // document weights are just the term frequencies.
+    private Vocabulary vocabulary;
+    private double[] idfScores;
+    private SparseVector[] vectors;
+    private int[] lengths;
+    private double averageLength;
+    private InvertedIndex index;
+
+    public TfIdfIndexBuilder() {
+        this.provisionalIds = new ChainedHashDictionary<>();
+        this.terms = new String[INITIAL_CAPACITY];
+        this.documentFrequencies = new int[INITIAL_CAPACITY];
+        this.numTerms = 0;
+        this.documentTermIds = new int[INITIAL_CAPACITY][];
+        this.documentTfs = new double[INITIAL_CAPACITY][];
+        this.documentLengths = new int[INITIAL_CAPACITY];
+        this.numPages = 0;
+        this.statistics = null;
+        this.scorer = new CosineScorer();
+        this.codec = null;
+        this.finished = false;
+    }
+
+    /**
+     * Returns a builder that has already been given every one of the given webpages.
+     *
+     * Precondition: every webpage must have been registered.
+     */
+    public static TfIdfIndexBuilder of(ISet<Webpage> webpages, DocumentRegistry registry) {
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        for (Webpage page : webpages) {
+            builder.addPage(registry.getDocId(page.getUri()), page.getWords());
+        }
+        return builder;
+    }
+
+    /**
+     * Adds the page with the given doc id and words. The builder does not hold on to
+     * the given list.
+     *
+     * @throws IllegalArgumentException  if the doc id is negative, or a page with the
+     *                                   same doc id was already added
+     * @throws IllegalStateException     if this builder was already used to build an
+     *                                   analyzer
+     */
+    public void addPage(int docId, IList<String> words) {
+        this.checkCanAdd(docId);
+
+        StringDoubleDictionary wordCount = new StringDoubleDictionary();
+        for (String word : words) {
+            wordCount.put(word, wordCount.getOrDefault(word, 0.0) + 1.0);
+        }
+
+        int[] termIds = new int[wordCount.size()];
+        double[] tfs = new double[wordCount.size()];
+        double numWords = words.size();
+        int[] next = new int[1];
+        wordCount.forEachEntry((word, count) -> {
+            int termId = this.getProvisionalId(word);
+            this.documentFrequencies[termId]++;
+            termIds[next[0]] = termId;
+            tfs[next[0]] = count / numWords;
+            next[0]++;
+        });
+
+        this.documentTermIds[docId] = termIds;
+        this.documentTfs[docId] = tfs;
+        this.documentLengths[docId] = words.size();
+        this.numPages++;
+    }
+
+    /**
+     * Adds the page with the given doc id and number of words, whose term frequencies
+     * were already computed: for example, by another analyzer (see
+     * TfIdfAnalyzer.getTermFrequencies). The term ids in the vector refer to the given
+     * vocabulary.
+     *
+     * @throws IllegalArgumentException  if the doc id is negative, or a page with the
+     *                                   same doc id was already added
+     * @throws IllegalStateException     if this builder was already used to build an
+     *                                   analyzer
+     */
+    public void addPage(int docId, Vocabulary vocabulary, SparseVector termFrequencies, int length) {
+        this.checkCanAdd(docId);
+
+        int[] termIds = new int[termFrequencies.size()];
+        double[] tfs = new double[termFrequencies.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = this.getProvisionalId(vocabulary.getTerm(termFrequencies.getTermId(i)));
+            this.documentFrequencies[termIds[i]]++;
+            tfs[i] = termFrequencies.getWeight(i);
+        }
+
+        this.documentTermIds[docId] = termIds;
+        this.documentTfs[docId] = tfs;
+        this.documentLengths[docId] = length;
+        this.numPages++;
+    }
+
+    /**
+     * Makes the analyzer compute its IDF scores from the given statistics, instead of
+     * from the pages added to this builder. The statistics are read when the analyzer
+     * is built, and must count every page added.
+     */
+    public void setCollectionStatistics(CollectionStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Makes the analyzer weigh terms with the given scorer, instead of with cosine
+     * TF-IDF weights.
+     */
+    public void setScorer(Scorer scorer) {
+        this.scorer = scorer;
+    }
+
+    /**
+     * Makes the analyzer compress its index's postings with the given codec (see
+     * InvertedIndex.compress), or store them uncompressed if the codec is null.
+     */
+    public void setPostingsCodec(PostingsCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Returns the number of pages added so far.
+     */
+    public int numPages() {
+        return this.numPages;
+    }
+
+    /**
+     * Finishes indexing the pages added so far, and returns an analyzer over them.
+     *
+     * Precondition: every page added must have been registered with the given
+     *               registry under the same doc id.
+     *
+     * @throws IllegalStateException  if this builder was already used to build an
+     *                                analyzer
+     */
+    public TfIdfAnalyzer build(DocumentRegistry registry) {
+        return new TfIdfAnalyzer(this, registry);
+    }
+
+    private void checkCanAdd(int docId) {
+        if (this.finished) {
+            throw new IllegalStateException("This builder has already built its analyzer");
+        }
+        if (docId < 0) {
+            throw new IllegalArgumentException("Negative doc id: " + docId);
+        }
+        if (docId >= this.documentTermIds.length) {
+            int capacity = Math.max(docId + 1, this.documentTermIds.length * 2);
+            this.documentTermIds = Arrays.copyOf(this.documentTermIds, capacity);
+            this.documentTfs = Arrays.copyOf(this.documentTfs, capacity);
+            this.documentLengths = Arrays.copyOf(this.documentLengths, capacity);
+        }
+        if (this.documentTermIds[docId] != null) {
+            throw new IllegalArgumentException("A page with doc id " + docId + " was already added");
+        }
+    }
+
+    private int getProvisionalId(String word) {
+        Integer termId = this.provisionalIds.getOrDefault(word, null);
+        if (termId != null) {
+            return termId;
+        }
+        if (this.numTerms == this.terms.length) {
+            this.terms = Arrays.copyOf(this.terms, this.numTerms * 2);
+            this.documentFrequencies = Arrays.copyOf(this.documentFrequencies, this.numTerms * 2);
+        }
+        this.terms[this.numTerms] = word;
+        this.provisionalIds.put(word, this.numTerms);
+        this.numTerms++;
+        return this.numTerms - 1;
+    }
+
+    /**
+     * Builds the vocabulary, IDF scores, document weight vectors, and inverted index out
+     * of the pages added so far. Each page's term frequencies are dropped as soon as its
+     * vector is built.
+     */
+    void finish(int numDocuments) {
+        if (this.finished) {
+            throw new IllegalStateException("This builder has already built its analyzer");
+        }
+        for (int docId = numDocuments; docId < this.documentTermIds.length; docId++) {
+            if (this.documentTermIds[docId] != null) {
+                throw new IllegalArgumentException("Doc id " + docId + " is not in the registry");
+            }
+        }
+        this.finished = true;
+
+        String[] words = Arrays.copyOf(this.terms, this.numTerms);
+        this.vocabulary = Vocabulary.of(words);
+        this.terms = null;
+        this.provisionalIds = null;
+
+        // Maps each provisional id to its term id in the vocabulary.
+        int[] termIds = new int[this.numTerms];
+        this.idfScores = new double[this.vocabulary.size()];
+        boolean needsIdf = this.scorer.requires(Scorer.Statistic.DOCUMENT_FREQUENCY);
+        for (int i = 0; i < this.numTerms; i++) {
+            termIds[i] = this.vocabulary.getTermId(words[i]);
+            if (!needsIdf) {
+                this.idfScores[termIds[i]] = 1.0;
+            } else if (this.statistics == null) {
+                this.idfScores[termIds[i]] = this.scorer.idf(this.documentFrequencies[i], this.numPages);
+            } else {
+                this.idfScores[termIds[i]] = this.statistics.getIdf(words[i], this.scorer);
+            }
+        }
+        this.documentFrequencies = null;
+
+        // We can't know which scorer will be used until now, so the lengths are always
+        // counted, but only kept if the scorer needs them. Otherwise every page's length
+        // is 0, as Scorer.documentWeight expects.
+        boolean needsLengths = this.scorer.requires(Scorer.Statistic.DOCUMENT_LENGTH);
+        this.lengths = needsLengths ? Arrays.copyOf(this.documentLengths, numDocuments) : null;
+        this.documentLengths = null;
+        this.averageLength = 0.0;
+        if (needsLengths) {
+            if (this.statistics != null) {
+                this.averageLength = this.statistics.getAverageDocumentLength();
+            } else if (this.numPages > 0) {
+                long totalLength = 0;
+                for (int length : this.lengths) {
+                    totalLength += length;
+                }
+                this.averageLength = (double) totalLength / this.numPages;
+            }
+        }
+
+        // We visit the pages in order of doc id so each postings list comes out sorted.
+        this.vectors = new SparseVector[numDocuments];
+        this.index = new InvertedIndex(this.vocabulary, numDocuments);
+        for (int docId = 0; docId < numDocuments; docId++) {
+            int[] provisional = docId < this.documentTermIds.length ? this.documentTermIds[docId] : null;
+            if (provisional == null) {
+                this.vectors[docId] = new SparseVector(new int[0], new double[0]);
+                continue;
+            }
+            double[] tfs = this.documentTfs[docId];
+            this.documentTermIds[docId] = null;
+            this.documentTfs[docId] = null;
+
+            // Sort the page's words by term id, packing (term id, position) pairs
+            // into longs so we don't have to box anything.
+            long[] order = new long[provisional.length];
+            for (int i = 0; i < provisional.length; i++) {
+                order[i] = ((long) termIds[provisional[i]] << 32) | i;
+            }
+            Arrays.sort(order);
+
+            int length = needsLengths ? this.lengths[docId] : 0;
+            int[] vectorTermIds = new int[order.length];
+            double[] vectorWeights = new double[order.length];
+            double norm = 0;
+            for (int i = 0; i < order.length; i++) {
+                int position = (int) order[i];
+                int termId = (int) (order[i] >>> 32);
+                double documentWeight = this.scorer.documentWeight(tfs[position], length, this.averageLength);
+                double weight = documentWeight * this.idfScores[termId];
+                vectorTermIds[i] = termId;
+                vectorWeights[i] = documentWeight;
+                norm += weight * weight;
+                this.index.addPosting(termId, docId, weight);
+            }
+            norm = Math.sqrt(norm);
+            this.index.setDocumentNorm(docId, norm);
+
+            // If the norm is zero then so is every weight, so there's nothing to scale.
+            if (norm != 0.0 && this.scorer.normalizesDocuments()) {
+                for (int i = 0; i < vectorWeights.length; i++) {
+                    vectorWeights[i] /= norm;
+                }
+            }
+            this.vectors[docId] = new SparseVector(vectorTermIds, vectorWeights);
+        }
+        this.documentTermIds = null;
+        this.documentTfs = null;
+        this.index.trim();
+        if (this.codec != null) {
+            this.index.compress(this.codec);
+        }
+    }
+
+    Vocabulary getVocabulary() {
+        return this.vocabulary;
+    }
+
+    double[] getIdfScores() {
+        return this.idfScores;
+    }
+
+    SparseVector[] getVectors() {
+        return this.vectors;
+    }
+
+    int[] getLengths() {
+        return this.lengths;
+    }
+
+    double getAverageLength() {
+        return this.averageLength;
+    }
+
+    Scorer getScorer() {
+        return this.scorer;
+    }
+
+    InvertedIndex getIndex() {
+        return this.index;
+    }
+}
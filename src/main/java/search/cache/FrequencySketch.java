@@ -0,0 +1,94 @@
+package search.cache;
+
+/**
+ * A count-min sketch that estimates how often each key has been seen recently.
+ *
+ * Each key is hashed into one counter in each of DEPTH rows; its estimated frequency
+ * is the smallest of those counters. Counters saturate at MAX_COUNT, and once
+ * 'sampleSize' increments have been recorded every counter is halved. This "aging"
+ * step means the sketch tracks recent popularity rather than all-time popularity,
+ * so a query that was hot yesterday can't hog the cache forever.
+ *
+ * This is the frequency estimator used by the TinyLFU admission policy.
+ */
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+
+    // Arbitrary odd constants used to derive one independent-ish hash per row.
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private int[][] counters;
+    private int mask;
+    private int sampleSize;
+    private int additions;
+
+    /**
+     * Constructs a sketch sized for a cache holding 'capacity' entries.
+     */
+    public FrequencySketch(int capacity) {
+        int width = 16;
+        while (width < capacity * 2) {
+            width *= 2;
+        }
+        this.counters = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(10 * capacity, 16);
+        this.additions = 0;
+    }
+
+    /**
+     * Records one more occurrence of the given key.
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = this.indexOf(hash, row);
+            if (this.counters[row][index] < MAX_COUNT) {
+                this.counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added) {
+            this.additions++;
+            if (this.additions >= this.sampleSize) {
+                this.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent occurrences of the given key.
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, this.counters[row][this.indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        for (int[] row : this.counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] /= 2;
+            }
+        }
+        this.additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x45D9F3B;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,211 @@
+package search.cache;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.models.Result;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of search results, keyed by the query's words and the number of
+ * results requested.
+ *
+ * Entries are kept in least-recently-used order. When the cache is full, a new entry
+ * is only admitted if it has been requested more often recently than the entry it
+ * would evict (the "TinyLFU" admission policy); request frequencies are estimated
+ * with a FrequencySketch. This keeps one-off queries from pushing popular ones out.
+ *
+ * Every entry remembers the index generation it was computed against. Looking up an
+ * entry with a different generation treats it as stale: the entry is dropped and the
+ * lookup counts as a miss.
+ *
+ * All methods are synchronized, so one cache can be shared by concurrent searches.
+ */
+public class QueryResultCache {
+    private int capacity;
+    private IDictionary<String, Entry> entries;
+    private FrequencySketch sketch;
+
+    // A circular doubly-linked list of entries: head.next is the most recently used
+    // entry, and head.prev is the least recently used one.
+    private Entry head;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long invalidations;
+
+    /**
+     * @throws IllegalArgumentException  if capacity <= 0
+     */
+    public QueryResultCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new ChainedHashDictionary<>();
+        this.sketch = new FrequencySketch(capacity);
+        this.head = new Entry(null, null, 0);
+        this.head.next = this.head;
+        this.head.prev = this.head;
+    }
+
+    /**
+     * Returns the cache key for the given query and k. Queries containing the same words
+     * the same number of times produce the same results no matter the word order, so
+     * they share a key.
+     */
+    public static String makeKey(IList<String> query, int k) {
+        String[] words = new String[query.size()];
+        int i = 0;
+        for (String word : query) {
+            words[i] = word;
+            i++;
+        }
+        Arrays.sort(words);
+
+        StringBuilder key = new StringBuilder();
+        key.append(k);
+        for (String word : words) {
+            key.append(' ');
+            key.append(word);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns a copy of the cached results for the given key, or null if there are no
+     * results cached for that key and index generation.
+     */
+    public synchronized IList<Result> get(String key, long generation) {
+        this.sketch.increment(key);
+        Entry entry = this.entries.getOrDefault(key, null);
+        if (entry != null && entry.generation != generation) {
+            this.unlink(entry);
+            this.entries.remove(key);
+            this.invalidations++;
+            entry = null;
+        }
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        this.unlink(entry);
+        this.linkFirst(entry);
+        return copy(entry.results);
+    }
+
+    /**
+     * Offers the given results to the cache. If the cache is full, they are only stored
+     * if their key is requested more often than the least recently used entry's key.
+     */
+    public synchronized void put(String key, long generation, IList<Result> results) {
+        Entry existing = this.entries.getOrDefault(key, null);
+        if (existing != null) {
+            this.unlink(existing);
+            this.entries.remove(key);
+        } else if (this.entries.size() >= this.capacity) {
+            Entry victim = this.head.prev;
+            if (this.sketch.frequency(key) <= this.sketch.frequency(victim.key)) {
+                this.rejections++;
+                return;
+            }
+            this.unlink(victim);
+            this.entries.remove(victim.key);
+            this.evictions++;
+        }
+        Entry entry = new Entry(key, copy(results), generation);
+        this.entries.put(key, entry);
+        this.linkFirst(entry);
+    }
+
+    /**
+     * Removes every entry from the cache. The counters are left untouched.
+     */
+    public synchronized void clear() {
+        this.entries = new ChainedHashDictionary<>();
+        this.head.next = this.head;
+        this.head.prev = this.head;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of lookups that found up-to-date results.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that found nothing (or only stale results).
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for new ones.
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the number of times the admission policy refused to store new results.
+     */
+    public synchronized long getRejections() {
+        return this.rejections;
+    }
+
+    /**
+     * Returns the number of entries dropped because the index generation changed.
+     */
+    public synchronized long getInvalidations() {
+        return this.invalidations;
+    }
+
+    private void unlink(Entry entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+    }
+
+    private void linkFirst(Entry entry) {
+        entry.next = this.head.next;
+        entry.prev = this.head;
+        this.head.next.prev = entry;
+        this.head.next = entry;
+    }
+
+    private static IList<Result> copy(IList<Result> results) {
+        IList<Result> output = new DoubleLinkedList<>();
+        for (Result result : results) {
+            output.add(result);
+        }
+        return output;
+    }
+
+    private static class Entry {
+        public final String key;
+        public final IList<Result> results;
+        public final long generation;
+        public Entry prev;
+        public Entry next;
+
+        public Entry(String key, IList<Result> results, long generation) {
+            this.key = key;
+            this.results = results;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates queries using Block-Max WAND.
+ *
+ * This refines WandEvaluator: each term's postings are split into fixed-size
+ * blocks, and we store the largest score contribution within each block along
+ * with the last doc id in it. Once WAND picks a pivot document using the global
+ * per-term bounds, we check the (usually much tighter) bounds of the blocks that
+ * could contain the pivot. If even those can't beat the threshold, we skip
+ * every cursor past the end of its current block in one go.
+ *
+ * This matters for terms that are common but have a few postings with a huge
+ * weight: those few postings make the global bound useless, but only inflate
+ * the bounds of the blocks they are in.
+ */
+public class BlockMaxWandEvaluator implements QueryEvaluator {
+    public static final int BLOCK_SIZE = 64;
+
+    private double[] boosts;
+    // For each term id, the largest score contribution within each block of its postings,
+    // the last doc id in each block, and the largest contribution overall.
+    private double[][] blockMaxImpacts;
+    private int[][] blockLastDocIds;
+    private double[] maxImpacts;
+    private AtomicLong documentsScored;
+    private AtomicLong postingsSkipped;
+
+    public BlockMaxWandEvaluator(InvertedIndex index, double[] boosts) {
+        this.boosts = boosts;
+        this.blockMaxImpacts = new double[index.numTerms()][];
+        this.blockLastDocIds = new int[index.numTerms()][];
+        this.maxImpacts = new double[index.numTerms()];
+        for (int termId = 0; termId < index.numTerms(); termId++) {
+            PostingsList postings = index.getPostings(termId);
+            int numBlocks = (postings.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            double[] blockMax = new double[numBlocks];
+            int[] blockLast = new int[numBlocks];
+            double max = 0.0;
+            for (int i = 0; i < postings.size(); i++) {
+                int block = i / BLOCK_SIZE;
+                double impact = postings.getWeight(i) * boosts[postings.getDocId(i)];
+                blockMax[block] = Math.max(blockMax[block], impact);
+                blockLast[block] = postings.getDocId(i);
+                max = Math.max(max, impact);
+            }
+            this.blockMaxImpacts[termId] = blockMax;
+            this.blockLastDocIds[termId] = blockLast;
+            this.maxImpacts[termId] = max;
+        }
+        this.documentsScored = new AtomicLong();
+        this.postingsSkipped = new AtomicLong();
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        QueryTerm[] terms = query.getTerms();
+        int n = terms.length;
+        PostingsCursor[] cursors = new PostingsCursor[n];
+        double[] upperBounds = new double[n];
+        double[][] blockMax = new double[n][];
+        int[][] blockLast = new int[n][];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int termId = terms[i].getTermId();
+            cursors[i] = new PostingsCursor(terms[i].getPostings(), minDocId, maxDocId);
+            upperBounds[i] = terms[i].getWeight() * this.maxImpacts[termId];
+            blockMax[i] = this.blockMaxImpacts[termId];
+            blockLast[i] = this.blockLastDocIds[termId];
+            order[i] = i;
+        }
+        long scored = 0;
+
+        while (true) {
+            WandEvaluator.sortByDocId(order, cursors);
+
+            int pivot = WandEvaluator.findPivot(order, cursors, upperBounds, collector);
+            if (pivot == -1) {
+                break;
+            }
+            int pivotDoc = cursors[order[pivot]].docId();
+
+            // Any later cursor sitting on the pivot document also contributes to its score.
+            while (pivot + 1 < n && cursors[order[pivot + 1]].docId() == pivotDoc) {
+                pivot++;
+            }
+
+            // Find the block each cursor would have to be in to contain the pivot document,
+            // and add up the bounds of those blocks.
+            double blockBound = 0.0;
+            int nextCandidate = pivot + 1 < n ? cursors[order[pivot + 1]].docId() : PostingsCursor.NO_MORE_DOCS;
+            for (int i = 0; i <= pivot; i++) {
+                int term = order[i];
+                int block = cursors[term].index() / BLOCK_SIZE;
+                while (block < blockLast[term].length && blockLast[term][block] < pivotDoc) {
+                    block++;
+                }
+                if (block < blockLast[term].length) {
+                    blockBound += terms[term].getWeight() * blockMax[term][block];
+                    if (blockLast[term][block] < nextCandidate) {
+                        nextCandidate = blockLast[term][block] + 1;
+                    }
+                }
+            }
+
+            if (collector.isCompetitive(blockBound)) {
+                if (cursors[order[0]].docId() == pivotDoc) {
+                    double sum = 0.0;
+                    for (int i = 0; i < n; i++) {
+                        if (cursors[i].docId() == pivotDoc) {
+                            sum += terms[i].getWeight() * cursors[i].weight();
+                            cursors[i].next();
+                        }
+                    }
+                    collector.collect(pivotDoc, this.boosts[pivotDoc] * sum);
+                    scored++;
+                } else {
+                    for (int i = 0; i < pivot; i++) {
+                        cursors[order[i]].advance(pivotDoc);
+                    }
+                }
+            } else {
+                // No document before 'nextCandidate' can beat the threshold: each one would
+                // have to fall within the blocks we just bounded.
+                for (int i = 0; i <= pivot; i++) {
+                    cursors[order[i]].advance(nextCandidate);
+                }
+            }
+        }
+
+        long skipped = 0;
+        for (PostingsCursor cursor : cursors) {
+            skipped += cursor.getSkipped();
+        }
+        this.documentsScored.addAndGet(scored);
+        this.postingsSkipped.addAndGet(skipped);
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return this.postingsSkipped.get();
+    }
+}
@@ -0,0 +1,202 @@
+package search.index;
+
+import datastructures.interfaces.IList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers queries from precomputed "champion lists" where it can, and falls back
+ * to another evaluator where it can't.
+ *
+ * A term's champion list holds the r documents to which the term contributes the
+ * most score (posting weight times the document's boost). For a query asking for
+ * k <= r results, we fully score just the documents on the query terms' champion
+ * lists. Any other document gets at most the r-th best contribution from every
+ * term, so if the k-th best champion beats the sum of those, no other document
+ * can make it into the top k and we are done. That always holds for single-term
+ * queries, and usually holds for short ones. If it doesn't, or k > r, we hand the
+ * query to the fallback evaluator instead.
+ *
+ * The candidates are scored in increasing order of doc id, so if the index is
+ * compressed we look up each term's weights with a CompressedPostingsCursor that
+ * skips ahead from one candidate to the next, rather than decoding whole postings
+ * lists. Answering a query from the champion lists then only decodes the parts of
+ * the postings around the candidates.
+ */
+public class ChampionListEvaluator implements QueryEvaluator {
+    private double[] boosts;
+    private QueryEvaluator fallback;
+    private int listSize;
+
+    // For each term id, its champions in decreasing order of score contribution.
+    private int[][] champions;
+
+    // For each term id, the largest contribution the term makes to any document not
+    // on its champion list (zero if every document containing it is a champion).
+    private double[] floors;
+
+    // One cursor per query term, for each thread.
+    private ThreadLocal<CompressedPostingsCursor[]> cursors;
+
+    private AtomicLong documentsScored;
+    private AtomicLong fallbacks;
+
+    /**
+     * @param listSize  the number of champions to keep per term (r)
+     * @param fallback  the evaluator to use when the champion lists aren't enough
+     * @throws IllegalArgumentException  if listSize < 1
+     */
+    public ChampionListEvaluator(InvertedIndex index, double[] boosts, int listSize, QueryEvaluator fallback) {
+        if (listSize < 1) {
+            throw new IllegalArgumentException("Champion lists need at least one entry, got " + listSize);
+        }
+        this.boosts = boosts;
+        this.fallback = fallback;
+        this.listSize = listSize;
+        this.champions = new int[index.numTerms()][];
+        this.floors = new double[index.numTerms()];
+        for (int termId = 0; termId < index.numTerms(); termId++) {
+            PostingsList postings = index.getPostings(termId);
+
+            // Keep the best r + 1 so the last one tells us the floor.
+            TopKCollector best = new TopKCollector(listSize + 1);
+            for (int i = 0; i < postings.size(); i++) {
+                int docId = postings.getDocId(i);
+                best.collect(docId, postings.getWeight(i) * boosts[docId]);
+            }
+            IList<ScoredDocument> ranked = best.drain();
+            int[] termChampions = new int[Math.min(listSize, ranked.size())];
+            int i = 0;
+            for (ScoredDocument doc : ranked) {
+                if (i < termChampions.length) {
+                    termChampions[i] = doc.getDocId();
+                } else {
+                    this.floors[termId] = doc.getScore();
+                }
+                i++;
+            }
+            this.champions[termId] = termChampions;
+        }
+        this.cursors = ThreadLocal.withInitial(() -> new CompressedPostingsCursor[0]);
+        this.documentsScored = new AtomicLong();
+        this.fallbacks = new AtomicLong();
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        QueryTerm[] terms = query.getTerms();
+        if (collector.getK() > this.listSize) {
+            this.fallback(query, collector, minDocId, maxDocId);
+            return;
+        }
+
+        // Gather the (distinct) champions of every query term.
+        int numCandidates = 0;
+        for (QueryTerm term : terms) {
+            numCandidates += this.champions[term.getTermId()].length;
+        }
+        int[] candidates = new int[numCandidates];
+        numCandidates = 0;
+        for (QueryTerm term : terms) {
+            int[] termChampions = this.champions[term.getTermId()];
+            System.arraycopy(termChampions, 0, candidates, numCandidates, termChampions.length);
+            numCandidates += termChampions.length;
+        }
+        Arrays.sort(candidates);
+
+        // Compressed postings are read with a cursor per term, which only ever moves
+        // forwards since the candidates are sorted.
+        CompressedPostingsCursor[] cursors = this.getCursors(terms.length);
+        for (int t = 0; t < terms.length; t++) {
+            CompressedPostings compressed = terms[t].getCompressedPostings();
+            if (compressed != null) {
+                cursors[t].reset(compressed);
+            }
+        }
+
+        // Score the candidates into a scratch collector: if the champion lists turn out
+        // not to be enough, the real collector must not have seen any of them.
+        TopKCollector scratch = new TopKCollector(collector.getK());
+        int scored = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            int docId = candidates[i];
+            if ((i > 0 && candidates[i - 1] == docId) || docId < minDocId || docId >= maxDocId) {
+                continue;
+            }
+            double sum = 0.0;
+            for (int t = 0; t < terms.length; t++) {
+                QueryTerm term = terms[t];
+                if (term.getCompressedPostings() != null) {
+                    if (cursors[t].advance(docId) == docId) {
+                        sum += term.getWeight() * cursors[t].weight();
+                    }
+                    continue;
+                }
+                PostingsList postings = term.getPostings();
+                int index = postings.findFirst(docId);
+                if (index < postings.size() && postings.getDocId(index) == docId) {
+                    sum += term.getWeight() * postings.getWeight(index);
+                }
+            }
+            scratch.collect(docId, this.boosts[docId] * sum);
+            scored++;
+        }
+        this.documentsScored.addAndGet(scored);
+
+        // If every query term's champion list holds its entire postings list, we've
+        // scored every matching document and there's nothing left to check.
+        boolean complete = true;
+        double bound = 0.0;
+        for (QueryTerm term : terms) {
+            complete &= this.champions[term.getTermId()].length == term.getDocumentFrequency();
+            bound += term.getWeight() * this.floors[term.getTermId()];
+        }
+        if (!complete && scratch.isCompetitive(bound)) {
+            // Some document outside the champion lists might still make it in.
+            this.fallback(query, collector, minDocId, maxDocId);
+            return;
+        }
+        for (ScoredDocument doc : scratch.drain()) {
+            collector.collect(doc.getDocId(), doc.getScore());
+        }
+    }
+
+    /**
+     * Returns this thread's cursors, making sure there are at least the given number.
+     */
+    private CompressedPostingsCursor[] getCursors(int numTerms) {
+        CompressedPostingsCursor[] cursors = this.cursors.get();
+        if (cursors.length < numTerms) {
+            CompressedPostingsCursor[] grown = Arrays.copyOf(cursors, numTerms);
+            for (int i = cursors.length; i < numTerms; i++) {
+                grown[i] = new CompressedPostingsCursor();
+            }
+            cursors = grown;
+            this.cursors.set(cursors);
+        }
+        return cursors;
+    }
+
+    private void fallback(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        this.fallbacks.incrementAndGet();
+        this.fallback.evaluate(query, collector, minDocId, maxDocId);
+    }
+
+    /**
+     * Returns the number of queries that had to be handed to the fallback evaluator.
+     */
+    public long getFallbacks() {
+        return this.fallbacks.get();
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get() + this.fallback.getDocumentsScored();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return this.fallback.getPostingsSkipped();
+    }
+}
@@ -0,0 +1,45 @@
+package search.index;
+
+/**
+ * Represents a query that has been preprocessed so it can be scored against any
+ * number of documents without redoing any query-side work.
+ *
+ * A compiled query holds the query's distinct words, each weighted by its entry
+ * in the unit-length TF-IDF query vector times the number of times it appears in
+ * the query, and already resolved to its term id and postings. Words that appear
+ * in no document (or in every document) have a weight of zero and cannot affect
+ * any score, so they are left out.
+ *
+ * Use TfIdfAnalyzer.compile to build one.
+ */
+public class CompiledQuery {
+    private QueryTerm[] terms;
+    private double norm;
+
+    public CompiledQuery(QueryTerm[] terms, double norm) {
+        this.terms = terms;
+        this.norm = norm;
+    }
+
+    /**
+     * Returns the query's terms with non-zero weight.
+     */
+    public QueryTerm[] getTerms() {
+        return this.terms;
+    }
+
+    /**
+     * Returns the length (euclidean norm) of the query's TF-IDF vector before it
+     * was normalized.
+     */
+    public double getNorm() {
+        return this.norm;
+    }
+
+    /**
+     * Returns the number of terms with non-zero weight.
+     */
+    public int size() {
+        return this.terms.length;
+    }
+}
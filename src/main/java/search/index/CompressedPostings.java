@@ -0,0 +1,81 @@
+package search.index;
+
+import search.index.codec.DocIdDecoder;
+import search.index.codec.EncodedDocIds;
+import search.index.codec.PostingsCodec;
+
+/**
+ * Represents the postings for a single term, with the doc ids encoded by some
+ * PostingsCodec. The weights are kept as they are, so scores come out exactly the
+ * same as with a PostingsList.
+ *
+ * Compressed postings can only be read in order: walk over them with a
+ * CompressedPostingsCursor.
+ */
+public class CompressedPostings {
+    private PostingsCodec codec;
+    private EncodedDocIds docIds;
+    private double[] weights;
+
+    /**
+     * Encodes the given postings with the given codec.
+     */
+    public CompressedPostings(PostingsList postings, PostingsCodec codec) {
+        this.codec = codec;
+        this.docIds = codec.encode(postings);
+        this.weights = new double[postings.size()];
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = postings.getWeight(i);
+        }
+    }
+
+    /**
+     * Returns the number of documents containing this term.
+     */
+    public int size() {
+        return this.weights.length;
+    }
+
+    /**
+     * Returns the codec the doc ids were encoded with.
+     */
+    public PostingsCodec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     * Returns the encoded doc ids.
+     */
+    public EncodedDocIds getDocIds() {
+        return this.docIds;
+    }
+
+    /**
+     * Returns the weight of the i-th posting.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the number of bytes these postings take up, not counting object and
+     * array headers.
+     */
+    public long sizeInBytes() {
+        return this.docIds.sizeInBytes() + 8L * this.weights.length;
+    }
+
+    /**
+     * Decodes these postings back into a new PostingsList.
+     */
+    public PostingsList decode() {
+        PostingsList output = new PostingsList();
+        DocIdDecoder decoder = this.codec.newDecoder();
+        decoder.reset(this.docIds);
+        for (int i = 0; i < this.weights.length; i++) {
+            output.add(decoder.next(), this.weights[i]);
+        }
+        output.trim();
+        return output;
+    }
+}
@@ -0,0 +1,81 @@
+package search.index;
+
+import search.index.codec.DocIdDecoder;
+import search.index.codec.PostingsCodec;
+
+/**
+ * Walks over compressed postings one posting at a time, in increasing order of doc id.
+ *
+ * Unlike a PostingsCursor, a cursor is made once and then 'reset' onto each postings
+ * list in turn: it only allocates the first time it meets postings from a new codec
+ * (to make a decoder for it), so evaluators can keep one per thread and iterate over
+ * any number of postings without allocating.
+ */
+public class CompressedPostingsCursor {
+    public static final int NO_MORE_DOCS = DocIdDecoder.NO_MORE_DOCS;
+
+    private PostingsCodec codec;
+    private DocIdDecoder decoder;
+    private CompressedPostings postings;
+    private int index;
+    private int docId;
+
+    public CompressedPostingsCursor() {
+        this.docId = NO_MORE_DOCS;
+    }
+
+    /**
+     * Positions this cursor just before the first posting of the given postings.
+     */
+    public void reset(CompressedPostings postings) {
+        if (postings.getCodec() != this.codec) {
+            this.codec = postings.getCodec();
+            this.decoder = this.codec.newDecoder();
+        }
+        this.decoder.reset(postings.getDocIds());
+        this.postings = postings;
+        this.index = -1;
+        this.docId = -1;
+    }
+
+    /**
+     * Moves on to the next posting, and returns its doc id, or NO_MORE_DOCS if there
+     * are no more.
+     */
+    public int next() {
+        if (this.docId != NO_MORE_DOCS) {
+            this.index++;
+            this.docId = this.index < this.postings.size() ? this.decoder.next() : NO_MORE_DOCS;
+        }
+        return this.docId;
+    }
+
+    /**
+     * Moves on to the first posting whose doc id is at least 'target', and returns its
+     * doc id, or NO_MORE_DOCS if there are no more. Stays put if the current posting's
+     * doc id already is. The codec skips over the postings in between where it can, so
+     * this is much cheaper than calling 'next' until we get there.
+     */
+    public int advance(int target) {
+        if (this.docId >= target) {
+            return this.docId;
+        }
+        this.docId = this.decoder.advance(target);
+        this.index = this.docId == NO_MORE_DOCS ? this.postings.size() : this.decoder.position() - 1;
+        return this.docId;
+    }
+
+    /**
+     * Returns the doc id of the current posting, or NO_MORE_DOCS.
+     */
+    public int docId() {
+        return this.docId;
+    }
+
+    /**
+     * Returns the weight of the current posting.
+     */
+    public double weight() {
+        return this.postings.getWeight(this.index);
+    }
+}
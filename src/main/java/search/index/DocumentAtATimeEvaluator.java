@@ -0,0 +1,60 @@
+package search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates queries by merging the postings of every query term and fully
+ * scoring every document that contains at least one of them.
+ */
+public class DocumentAtATimeEvaluator implements QueryEvaluator {
+    private double[] boosts;
+    private AtomicLong documentsScored;
+
+    public DocumentAtATimeEvaluator(double[] boosts) {
+        this.boosts = boosts;
+        this.documentsScored = new AtomicLong();
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        QueryTerm[] terms = query.getTerms();
+        PostingsCursor[] cursors = new PostingsCursor[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            cursors[i] = new PostingsCursor(terms[i].getPostings(), minDocId, maxDocId);
+        }
+        long scored = 0;
+
+        int docId = minDocId(cursors);
+        while (docId != PostingsCursor.NO_MORE_DOCS) {
+            double sum = 0.0;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i].docId() == docId) {
+                    sum += terms[i].getWeight() * cursors[i].weight();
+                    cursors[i].next();
+                }
+            }
+            collector.collect(docId, this.boosts[docId] * sum);
+            scored++;
+            docId = minDocId(cursors);
+        }
+        this.documentsScored.addAndGet(scored);
+    }
+
+    private static int minDocId(PostingsCursor[] cursors) {
+        int min = PostingsCursor.NO_MORE_DOCS;
+        for (PostingsCursor cursor : cursors) {
+            min = Math.min(min, cursor.docId());
+        }
+        return min;
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return 0;
+    }
+}
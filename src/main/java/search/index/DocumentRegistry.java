@@ -0,0 +1,109 @@
+package search.index;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+import misc.exceptions.NoSuchKeyException;
+import search.models.Webpage;
+
+import java.net.URI;
+
+/**
+ * Assigns every document a compact integer doc id, starting from zero.
+ *
+ * Every analyzer and index shares the same registry, so anything that needs to store
+ * some piece of data per document can use a plain array indexed by doc id instead of a
+ * dictionary keyed by URI. Converting between a URI and its doc id costs a single hash
+ * lookup, which we only need to pay at the edges: when loading pages, and when a caller
+ * asks about a specific URI.
+ */
+public class DocumentRegistry {
+    private IDictionary<URI, Integer> docIds;
+    private URI[] uris;
+    private int size;
+
+    public DocumentRegistry() {
+        this.docIds = new ChainedHashDictionary<>();
+        this.uris = new URI[16];
+        this.size = 0;
+    }
+
+    /**
+     * Returns a new registry containing every given webpage.
+     */
+    public static DocumentRegistry of(ISet<Webpage> webpages) {
+        DocumentRegistry registry = new DocumentRegistry();
+        for (Webpage page : webpages) {
+            registry.register(page.getUri());
+        }
+        return registry;
+    }
+
+    /**
+     * Assigns the given URI the next available doc id and returns it. If the URI was
+     * already registered, returns its existing doc id instead.
+     */
+    public int register(URI uri) {
+        if (this.docIds.containsKey(uri)) {
+            return this.docIds.get(uri);
+        }
+        if (this.size == this.uris.length) {
+            URI[] newUris = new URI[this.uris.length * 2];
+            System.arraycopy(this.uris, 0, newUris, 0, this.size);
+            this.uris = newUris;
+        }
+        this.uris[this.size] = uri;
+        this.docIds.put(uri, this.size);
+        this.size++;
+        return this.size - 1;
+    }
+
+    /**
+     * Returns the doc id of the given URI.
+     *
+     * @throws NoSuchKeyException  if the URI was never registered
+     */
+    public int getDocId(URI uri) {
+        return this.docIds.get(uri);
+    }
+
+    /**
+     * Returns 'true' if the given URI has been registered.
+     */
+    public boolean contains(URI uri) {
+        return this.docIds.containsKey(uri);
+    }
+
+    /**
+     * Returns the URI with the given doc id.
+     *
+     * @throws IndexOutOfBoundsException  if no document has that doc id
+     */
+    public URI getUri(int docId) {
+        if (docId < 0 || docId >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.uris[docId];
+    }
+
+    /**
+     * Returns the number of registered documents. Doc ids range from 0 up to (but not
+     * including) this number.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the given webpages in an array indexed by doc id.
+     *
+     * Precondition: every webpage must have been registered.
+     */
+    public Webpage[] orderById(ISet<Webpage> webpages) {
+        Webpage[] output = new Webpage[this.size];
+        for (Webpage page : webpages) {
+            output[this.getDocId(page.getUri())] = page;
+        }
+        return output;
+    }
+}
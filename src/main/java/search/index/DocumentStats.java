@@ -0,0 +1,161 @@
+package search.index;
+
+import search.scoring.Scorer;
+
+/**
+ * Everything we know about each document that doesn't depend on the query, stored
+ * column by column: one primitive array per statistic, indexed by doc id.
+ *
+ * Scoring a document only ever needs a few of these numbers, so keeping each one in
+ * its own array means we only touch the memory we need, and looking one up is a
+ * single array access. Columns the scorer doesn't require (see Scorer.requires) aren't
+ * stored at all.
+ */
+public class DocumentStats {
+    // The length (euclidean norm) of each document's TF-IDF vector.
+    private double[] norms;
+
+    // The number of words in each document. Null unless the scorer requires
+    // DOCUMENT_LENGTH.
+    private int[] lengths;
+
+    // Each document's page rank, and its square root (see SearchEngine.computeScore).
+    // Null unless the scorer requires STATIC_RANK.
+    private double[] pageRanks;
+    private double[] sqrtPageRanks;
+
+    // Everything in a document's score that doesn't depend on the query (see
+    // QueryEvaluator): sqrt(pageRank) / norm with the default scorer, or zero if the
+    // norm is.
+    private double[] boosts;
+
+    /**
+     * Gathers the statistics of the documents in the given index, which have the given
+     * lengths and page ranks (by doc id) and were weighted by the given scorer. The
+     * arrays are used as-is, not copied.
+     *
+     * The lengths are only kept if the scorer requires DOCUMENT_LENGTH, and the page
+     * ranks if it requires STATIC_RANK: either array may be null if it isn't required.
+     * The boosts only include the page ranks if the scorer requires them, and only
+     * divide by the norms if the scorer normalizes documents.
+     *
+     * @throws IllegalArgumentException  if a required array doesn't have exactly one
+     *                                   entry per document
+     */
+    public DocumentStats(InvertedIndex index, int[] lengths, double[] pageRanks, Scorer scorer) {
+        int numDocuments = index.numDocuments();
+        boolean staticRank = scorer.requires(Scorer.Statistic.STATIC_RANK);
+        if (scorer.requires(Scorer.Statistic.DOCUMENT_LENGTH)) {
+            if (lengths == null || lengths.length != numDocuments) {
+                throw new IllegalArgumentException("Need exactly one length per document");
+            }
+            this.lengths = lengths;
+        }
+        if (staticRank) {
+            if (pageRanks == null || pageRanks.length != numDocuments) {
+                throw new IllegalArgumentException("Need exactly one page rank per document");
+            }
+            this.pageRanks = pageRanks;
+            this.sqrtPageRanks = new double[numDocuments];
+        }
+        this.norms = new double[numDocuments];
+        this.boosts = new double[numDocuments];
+        boolean normalized = scorer.normalizesDocuments();
+        for (int docId = 0; docId < numDocuments; docId++) {
+            this.norms[docId] = index.getDocumentNorm(docId);
+            if (staticRank) {
+                this.sqrtPageRanks[docId] = Math.sqrt(pageRanks[docId]);
+            }
+            if (this.norms[docId] != 0.0) {
+                double boost = staticRank ? this.sqrtPageRanks[docId] : 1.0;
+                this.boosts[docId] = normalized ? boost / this.norms[docId] : boost;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of documents.
+     */
+    public int numDocuments() {
+        return this.norms.length;
+    }
+
+    /**
+     * Returns the length (euclidean norm) of the document's TF-IDF vector.
+     */
+    public double getNorm(int docId) {
+        return this.norms[docId];
+    }
+
+    /**
+     * Returns 'true' if the document lengths were kept.
+     */
+    public boolean hasLengths() {
+        return this.lengths != null;
+    }
+
+    /**
+     * Returns 'true' if the page ranks were kept.
+     */
+    public boolean hasPageRanks() {
+        return this.pageRanks != null;
+    }
+
+    /**
+     * Returns the number of words in the document.
+     *
+     * @throws IllegalStateException  if the scorer doesn't require document lengths
+     */
+    public int getLength(int docId) {
+        if (this.lengths == null) {
+            throw new IllegalStateException("The scorer doesn't require document lengths");
+        }
+        return this.lengths[docId];
+    }
+
+    /**
+     * Returns the document's page rank.
+     *
+     * @throws IllegalStateException  if the scorer doesn't require page ranks
+     */
+    public double getPageRank(int docId) {
+        if (this.pageRanks == null) {
+            throw new IllegalStateException("The scorer doesn't require page ranks");
+        }
+        return this.pageRanks[docId];
+    }
+
+    /**
+     * Returns the square root of the document's page rank.
+     *
+     * @throws IllegalStateException  if the scorer doesn't require page ranks
+     */
+    public double getSqrtPageRank(int docId) {
+        if (this.sqrtPageRanks == null) {
+            throw new IllegalStateException("The scorer doesn't require page ranks");
+        }
+        return this.sqrtPageRanks[docId];
+    }
+
+    /**
+     * Returns the document's boost: sqrt(pageRank) / norm, with the default scorer.
+     */
+    public double getBoost(int docId) {
+        return this.boosts[docId];
+    }
+
+    /**
+     * Returns every document's page rank, by doc id, or null if the scorer doesn't
+     * require page ranks. The array must not be modified.
+     */
+    public double[] getPageRanks() {
+        return this.pageRanks;
+    }
+
+    /**
+     * Returns every document's boost, by doc id. The array must not be modified.
+     */
+    public double[] getBoosts() {
+        return this.boosts;
+    }
+}
@@ -0,0 +1,38 @@
+package search.index;
+
+/**
+ * Computes many dot products against the same vector at once.
+ *
+ * The vectors being multiplied are laid out as the rows of a dense block: row r
+ * occupies block[r * stride] through block[r * stride + length - 1]. Keeping the
+ * rows in one flat array, rather than one array per row, means the whole block is
+ * walked front to back with no pointer chasing, which is what lets a kernel keep
+ * several multiply-adds in flight at once.
+ *
+ * Implementations must be thread-safe.
+ */
+public interface DotProductKernel {
+    /**
+     * Sets output[r] to the dot product of the first 'length' entries of 'vector'
+     * with row r of the block, for every 0 <= r < numRows.
+     *
+     * Precondition: length <= stride.
+     */
+    void dotProducts(float[] vector, float[] block, int length, int stride, int numRows, float[] output);
+
+    /**
+     * Returns the fastest kernel this JVM can run: VectorDotProductKernel if the Vector
+     * API module was added (with '--add-modules jdk.incubator.vector'), and otherwise
+     * UnrolledDotProductKernel, which is plain scalar Java.
+     */
+    static DotProductKernel fastest() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorDotProductKernel();
+            } catch (LinkageError err) {
+                // The module is there but can't be used, so fall back to the scalar kernel.
+            }
+        }
+        return new UnrolledDotProductKernel();
+    }
+}
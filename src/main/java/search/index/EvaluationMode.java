@@ -0,0 +1,49 @@
+package search.index;
+
+/**
+ * The query evaluation strategies SearchEngine can use to find its top k results.
+ *
+ * All of the exact ones return the same results; see the corresponding
+ * QueryEvaluator classes for the trade-offs involved.
+ */
+public enum EvaluationMode {
+    // Scores every document containing at least one query term.
+    DOCUMENT_AT_A_TIME(true),
+
+    // Scores the same documents, but one term at a time into a primitive array of scores.
+    TERM_AT_A_TIME(true),
+
+    // Skips documents that provably cannot make it into the top k.
+    WAND(true),
+
+    // Like WAND, but also uses per-block upper bounds to skip whole blocks of postings.
+    BLOCK_MAX_WAND(true),
+
+    // Scores documents in tiers of decreasing page rank, stopping once no later tier can compete.
+    TIERED(true),
+
+    // Answers from each term's precomputed best documents when that provably suffices,
+    // and falls back to TERM_AT_A_TIME otherwise.
+    CHAMPION_LISTS(true),
+
+    // Like TERM_AT_A_TIME, but over normalized weights rounded to 8 or 16 bits and summed
+    // as integers. Scores are only approximate (see QuantizedEvaluator for the error bound).
+    // The quantized postings are kept on top of the full-precision index, so these modes
+    // use slightly more memory than the others, not less.
+    QUANTIZED_8(false),
+    QUANTIZED_16(false);
+
+    private final boolean exact;
+
+    EvaluationMode(boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * Returns 'true' if this mode returns exactly the same results as scoring every page,
+     * and 'false' if its scores are only approximate.
+     */
+    public boolean isExact() {
+        return this.exact;
+    }
+}
@@ -0,0 +1,223 @@
+package search.index;
+
+import search.index.codec.PostingsCodec;
+
+/**
+ * An inverted index mapping each term to the postings of every document
+ * that contains it.
+ *
+ * Documents are referred to by the doc ids their DocumentRegistry assigned
+ * them, and terms by the term ids of a Vocabulary fixed up front, so anything
+ * that needs to store per-term data can use a plain array instead of a
+ * dictionary keyed by strings.
+ *
+ * Once the index is built, its postings can be compressed with a PostingsCodec (see
+ * 'compress'). The doc ids are then only stored encoded: term-at-a-time evaluation
+ * reads them straight from the compressed postings (see 'getCompressedPostings'),
+ * while 'getPostings' decodes a fresh PostingsList each time it's called.
+ */
+public class InvertedIndex {
+    public static final int UNKNOWN_TERM = -1;
+
+    private static final PostingsList EMPTY_POSTINGS = new PostingsList();
+
+    private Vocabulary vocabulary;
+    private PostingsList[] postings;
+
+    // Non-null once the index has been compressed, at which point 'postings' is null.
+    private PostingsCodec codec;
+    private CompressedPostings[] compressedPostings;
+    private CompressedPostings emptyCompressedPostings;
+
+    private double[] documentNorms;
+
+    /**
+     * Constructs an empty index over the given vocabulary, for documents with doc ids
+     * from 0 up to (but not including) 'numDocuments'.
+     */
+    public InvertedIndex(Vocabulary vocabulary, int numDocuments) {
+        this.vocabulary = vocabulary;
+        this.postings = new PostingsList[vocabulary.size()];
+        this.documentNorms = new double[numDocuments];
+    }
+
+    /**
+     * Sets the length (euclidean norm) of the given document's TF-IDF vector.
+     */
+    public void setDocumentNorm(int docId, double norm) {
+        this.documentNorms[docId] = norm;
+    }
+
+    /**
+     * Records that the term with the given id appears within the given document with
+     * the given weight.
+     *
+     * Precondition: for any one term, postings must be added in increasing order of doc id.
+     */
+    public void addPosting(int termId, int docId, double weight) {
+        if (this.codec != null) {
+            throw new IllegalStateException("Can't add postings to a compressed index");
+        }
+        if (this.postings[termId] == null) {
+            this.postings[termId] = new PostingsList();
+        }
+        this.postings[termId].add(docId, weight);
+    }
+
+    /**
+     * Like 'addPosting' above, but looks the term up in the vocabulary first.
+     *
+     * @throws IllegalArgumentException  if the term is not in the vocabulary
+     */
+    public void addPosting(String term, int docId, double weight) {
+        int termId = this.getTermId(term);
+        if (termId == UNKNOWN_TERM) {
+            throw new IllegalArgumentException("'" + term + "' is not in the vocabulary");
+        }
+        this.addPosting(termId, docId, weight);
+    }
+
+    /**
+     * Releases any spare capacity. Call this once the index is done being built.
+     */
+    public void trim() {
+        if (this.codec != null) {
+            return;
+        }
+        for (PostingsList list : this.postings) {
+            if (list != null) {
+                list.trim();
+            }
+        }
+    }
+
+    /**
+     * Re-encodes every postings list with the given codec, and drops the uncompressed
+     * ones. Call this once the index is done being built: no more postings can be added
+     * afterwards.
+     *
+     * @throws IllegalStateException  if the index has already been compressed
+     */
+    public void compress(PostingsCodec codec) {
+        if (this.codec != null) {
+            throw new IllegalStateException("The index has already been compressed");
+        }
+        this.compressedPostings = new CompressedPostings[this.postings.length];
+        for (int termId = 0; termId < this.postings.length; termId++) {
+            if (this.postings[termId] != null) {
+                this.compressedPostings[termId] = new CompressedPostings(this.postings[termId], codec);
+            }
+        }
+        this.emptyCompressedPostings = new CompressedPostings(EMPTY_POSTINGS, codec);
+        this.codec = codec;
+        this.postings = null;
+    }
+
+    /**
+     * Returns the codec the postings were compressed with, or null if they aren't
+     * compressed.
+     */
+    public PostingsCodec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     * Returns the compressed postings for the term with the given term id, or null if
+     * the index isn't compressed. If the term id is UNKNOWN_TERM, or no document
+     * contains the term, returns empty postings.
+     */
+    public CompressedPostings getCompressedPostings(int termId) {
+        if (this.codec == null) {
+            return null;
+        }
+        if (termId == UNKNOWN_TERM || this.compressedPostings[termId] == null) {
+            return this.emptyCompressedPostings;
+        }
+        return this.compressedPostings[termId];
+    }
+
+    /**
+     * Returns the number of documents containing the term with the given term id.
+     */
+    public int getDocumentFrequency(int termId) {
+        if (this.codec != null) {
+            return this.getCompressedPostings(termId).size();
+        }
+        return this.getPostings(termId).size();
+    }
+
+    /**
+     * Returns the number of bytes every postings list takes up, not counting object
+     * and array headers.
+     */
+    public long postingsSizeInBytes() {
+        long total = 0;
+        for (int termId = 0; termId < this.numTerms(); termId++) {
+            if (this.codec != null) {
+                total += this.getCompressedPostings(termId).sizeInBytes();
+            } else {
+                total += 12L * this.getPostings(termId).size();
+            }
+        }
+        return total;
+    }
+    /**
+     * Returns the vocabulary this index's term ids come from.
+     */
+    public Vocabulary getVocabulary() {
+        return this.vocabulary;
+    }
+
+    /**
+     * Returns the term id of the given term, or UNKNOWN_TERM if it is not in the vocabulary.
+     */
+    public int getTermId(String term) {
+        return this.vocabulary.getTermId(term);
+    }
+
+    /**
+     * Returns the postings for the given term. If no document contains the term,
+     * returns an empty postings list.
+     */
+    public PostingsList getPostings(String term) {
+        return this.getPostings(this.getTermId(term));
+    }
+
+    /**
+     * Returns the postings for the term with the given term id. If the term id is
+     * UNKNOWN_TERM, or no document contains the term, returns an empty postings list.
+     *
+     * If the index is compressed, this decodes the postings into a new list every time.
+     */
+    public PostingsList getPostings(int termId) {
+        if (this.codec != null) {
+            return this.getCompressedPostings(termId).decode();
+        }
+        if (termId == UNKNOWN_TERM || this.postings[termId] == null) {
+            return EMPTY_POSTINGS;
+        }
+        return this.postings[termId];
+    }
+
+    /**
+     * Returns the length (euclidean norm) of the document with the given doc id.
+     */
+    public double getDocumentNorm(int docId) {
+        return this.documentNorms[docId];
+    }
+
+    /**
+     * Returns the number of documents in this index.
+     */
+    public int numDocuments() {
+        return this.documentNorms.length;
+    }
+
+    /**
+     * Returns the number of terms in this index's vocabulary. Term ids range from 0 up
+     * to (but not including) this number.
+     */
+    public int numTerms() {
+        return this.vocabulary.size();
+    }
+}
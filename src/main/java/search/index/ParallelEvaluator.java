@@ -0,0 +1,124 @@
+package search.index;
+
+import datastructures.interfaces.IList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates a single query on several threads at once.
+ *
+ * We split the doc id space into contiguous partitions and have the wrapped
+ * evaluator find the top k documents of each partition on a fork/join pool,
+ * each into its own collector. Since every document of the overall top k is
+ * also in the top k of its own partition, merging the per-partition results
+ * gives exactly the same documents (and scores) as evaluating sequentially.
+ *
+ * Splitting a query up has a fixed cost, so queries whose postings are too short
+ * to be worth it are simply evaluated on the calling thread.
+ */
+public class ParallelEvaluator implements QueryEvaluator {
+    // Queries touching fewer postings than this are evaluated sequentially by default.
+    public static final long DEFAULT_MIN_POSTINGS = 1 << 14;
+
+    private QueryEvaluator delegate;
+    private ForkJoinPool pool;
+    private int numDocuments;
+    private int numPartitions;
+    private long minPostings;
+
+    public ParallelEvaluator(QueryEvaluator delegate, int numDocuments, int numPartitions) {
+        this(delegate, numDocuments, numPartitions, DEFAULT_MIN_POSTINGS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @throws IllegalArgumentException  if numPartitions < 1
+     */
+    public ParallelEvaluator(QueryEvaluator delegate, int numDocuments, int numPartitions,
+                             long minPostings, ForkJoinPool pool) {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("Need at least one partition, got " + numPartitions);
+        }
+        this.delegate = delegate;
+        this.pool = pool;
+        this.numDocuments = numDocuments;
+        this.numPartitions = numPartitions;
+        this.minPostings = minPostings;
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        maxDocId = Math.min(maxDocId, this.numDocuments);
+        long numPostings = 0;
+        for (QueryTerm term : query.getTerms()) {
+            numPostings += term.getDocumentFrequency();
+        }
+        int partitions = Math.min(this.numPartitions, Math.max(1, maxDocId - minDocId));
+        if (partitions == 1 || numPostings < this.minPostings || collector.getK() == 0) {
+            this.delegate.evaluate(query, collector, minDocId, maxDocId);
+            return;
+        }
+
+        IList<ScoredDocument> merged = this.pool.invoke(
+                new PartitionTask(query, collector.getK(), minDocId, maxDocId, partitions));
+        for (ScoredDocument doc : merged) {
+            collector.collect(doc.getDocId(), doc.getScore());
+        }
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.delegate.getDocumentsScored();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return this.delegate.getPostingsSkipped();
+    }
+
+    /**
+     * Finds the top k documents within [minDocId, maxDocId), splitting the range in
+     * half (and forking) until each task covers a single partition.
+     */
+    private class PartitionTask extends RecursiveTask<IList<ScoredDocument>> {
+        private CompiledQuery query;
+        private int k;
+        private int minDocId;
+        private int maxDocId;
+        private int partitions;
+
+        public PartitionTask(CompiledQuery query, int k, int minDocId, int maxDocId, int partitions) {
+            this.query = query;
+            this.k = k;
+            this.minDocId = minDocId;
+            this.maxDocId = maxDocId;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected IList<ScoredDocument> compute() {
+            TopKCollector collector = new TopKCollector(this.k);
+            if (this.partitions == 1) {
+                ParallelEvaluator.this.delegate.evaluate(this.query, collector, this.minDocId, this.maxDocId);
+                return collector.drain();
+            }
+
+            int leftPartitions = this.partitions / 2;
+            int mid = (int) (this.minDocId + (long) (this.maxDocId - this.minDocId) * leftPartitions / this.partitions);
+            PartitionTask left = new PartitionTask(this.query, this.k, this.minDocId, mid, leftPartitions);
+            PartitionTask right = new PartitionTask(
+                    this.query, this.k, mid, this.maxDocId, this.partitions - leftPartitions);
+            left.fork();
+            IList<ScoredDocument> rightResults = right.compute();
+            IList<ScoredDocument> leftResults = left.join();
+
+            for (ScoredDocument doc : leftResults) {
+                collector.collect(doc.getDocId(), doc.getScore());
+            }
+            for (ScoredDocument doc : rightResults) {
+                collector.collect(doc.getDocId(), doc.getScore());
+            }
+            return collector.drain();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up how long each phase of two-phase ranking took, over every query ranked
+ * so far: generating candidates from the postings, and re-ranking them with the
+ * full scoring formula (see SearchEngine.setRerankDepth).
+ *
+ * This class is thread-safe.
+ */
+public class PhaseTimings {
+    private AtomicLong numQueries;
+    private AtomicLong candidatesReranked;
+    private AtomicLong candidateGenerationNanos;
+    private AtomicLong rerankNanos;
+
+    public PhaseTimings() {
+        this.numQueries = new AtomicLong();
+        this.candidatesReranked = new AtomicLong();
+        this.candidateGenerationNanos = new AtomicLong();
+        this.rerankNanos = new AtomicLong();
+    }
+
+    /**
+     * Records one query, which generated the given number of candidates in the given
+     * number of nanoseconds, then re-ranked them in the given number of nanoseconds.
+     */
+    public void record(int numCandidates, long candidateGenerationNanos, long rerankNanos) {
+        this.numQueries.incrementAndGet();
+        this.candidatesReranked.addAndGet(numCandidates);
+        this.candidateGenerationNanos.addAndGet(candidateGenerationNanos);
+        this.rerankNanos.addAndGet(rerankNanos);
+    }
+
+    /**
+     * Returns the number of queries ranked in two phases so far.
+     */
+    public long getNumQueries() {
+        return this.numQueries.get();
+    }
+
+    /**
+     * Returns the total number of candidates re-ranked so far.
+     */
+    public long getCandidatesReranked() {
+        return this.candidatesReranked.get();
+    }
+
+    /**
+     * Returns the total time spent generating candidates so far, in nanoseconds.
+     */
+    public long getCandidateGenerationNanos() {
+        return this.candidateGenerationNanos.get();
+    }
+
+    /**
+     * Returns the total time spent re-ranking candidates so far, in nanoseconds.
+     */
+    public long getRerankNanos() {
+        return this.rerankNanos.get();
+    }
+}
@@ -0,0 +1,131 @@
+package search.index;
+
+/**
+ * Walks over a postings list one posting at a time, in increasing order of doc id.
+ *
+ * The cursor starts out positioned on the first posting. Once it runs off the end
+ * of the list, 'docId()' returns NO_MORE_DOCS.
+ *
+ * A cursor can also be restricted to a range of doc ids, in which case it starts
+ * on the first posting inside the range and acts as though the list ends at the
+ * end of the range.
+ */
+public class PostingsCursor {
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private PostingsList postings;
+    private int index;
+    private int docId;
+    private int maxDocId;
+    private long skipped;
+
+    public PostingsCursor(PostingsList postings) {
+        this(postings, 0, NO_MORE_DOCS);
+    }
+
+    /**
+     * Creates a cursor that only visits postings with minDocId <= docId < maxDocId.
+     */
+    public PostingsCursor(PostingsList postings, int minDocId, int maxDocId) {
+        this.postings = postings;
+        this.index = minDocId == 0 ? 0 : postings.findFirst(minDocId);
+        this.maxDocId = maxDocId;
+        this.skipped = 0;
+        this.update();
+    }
+
+    /**
+     * Returns the doc id of the current posting, or NO_MORE_DOCS.
+     */
+    public int docId() {
+        return this.docId;
+    }
+
+    /**
+     * Returns the weight of the current posting.
+     */
+    public double weight() {
+        return this.postings.getWeight(this.index);
+    }
+
+    /**
+     * Returns the position of the current posting within its postings list.
+     */
+    public int index() {
+        return this.index;
+    }
+
+    /**
+     * Returns the postings list this cursor walks over.
+     */
+    public PostingsList getPostings() {
+        return this.postings;
+    }
+
+    /**
+     * Moves to the next posting.
+     */
+    public void next() {
+        this.index++;
+        this.update();
+    }
+
+    /**
+     * Moves to the first posting whose doc id is greater than or equal to the target.
+     * Does nothing if the cursor is already there.
+     *
+     * This gallops ahead in exponentially growing steps then binary searches, so
+     * skipping over n postings costs O(log(n)) time.
+     */
+    public void advance(int target) {
+        if (this.docId >= target) {
+            return;
+        }
+        if (target >= this.maxDocId) {
+            // Everything left is outside our range.
+            int end = this.postings.findFirst(this.maxDocId);
+            this.skipped += end - this.index;
+            this.index = end;
+            this.update();
+            return;
+        }
+        int size = this.postings.size();
+        int low = this.index;
+        int step = 1;
+        int high = low + step;
+        while (high < size && this.postings.getDocId(high) < target) {
+            low = high;
+            step *= 2;
+            high = low + step;
+        }
+        high = Math.min(high, size);
+
+        // Invariant: postings[low] < target, and postings[high] >= target (or high == size)
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (this.postings.getDocId(mid) < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        this.skipped += high - this.index;
+        this.index = high;
+        this.update();
+    }
+
+    /**
+     * Returns how many postings this cursor has skipped over using 'advance'.
+     */
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    private void update() {
+        if (this.index < this.postings.size() && this.postings.getDocId(this.index) < this.maxDocId) {
+            this.docId = this.postings.getDocId(this.index);
+        } else {
+            this.docId = NO_MORE_DOCS;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package search.index;
+
+/**
+ * Represents the postings for a single term: every document containing that
+ * term, in increasing order of document id, along with the TF-IDF weight the
+ * term has within that document.
+ *
+ * Postings are stored in two parallel primitive arrays rather than as a list
+ * of objects so each posting costs just 12 bytes.
+ */
+public class PostingsList {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] docIds;
+    private double[] weights;
+    private int size;
+
+    public PostingsList() {
+        this.docIds = new int[INITIAL_CAPACITY];
+        this.weights = new double[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Appends a posting to the end of this list.
+     *
+     * @throws IllegalArgumentException  if the doc id is not larger than the last doc id added
+     */
+    public void add(int docId, double weight) {
+        if (this.size > 0 && this.docIds[this.size - 1] >= docId) {
+            throw new IllegalArgumentException("Postings must be added in increasing order of doc id");
+        }
+        if (this.size == this.docIds.length) {
+            this.resize(this.size * 2);
+        }
+        this.docIds[this.size] = docId;
+        this.weights[this.size] = weight;
+        this.size++;
+    }
+
+    /**
+     * Returns the number of documents containing this term.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the doc id of the i-th posting.
+     */
+    public int getDocId(int i) {
+        return this.docIds[i];
+    }
+
+    /**
+     * Returns the TF-IDF weight of the i-th posting.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the position of the first posting whose doc id is greater than or equal
+     * to the given doc id, or 'size()' if there is no such posting.
+     */
+    public int findFirst(int docId) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.docIds[mid] < docId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Shrinks the backing arrays so they hold exactly 'size' postings. Call this
+     * once the index is done being built.
+     */
+    public void trim() {
+        if (this.docIds.length != this.size) {
+            this.resize(this.size);
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] newDocIds = new int[capacity];
+        double[] newWeights = new double[capacity];
+        System.arraycopy(this.docIds, 0, newDocIds, 0, this.size);
+        System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+        this.docIds = newDocIds;
+        this.weights = newWeights;
+    }
+}
@@ -0,0 +1,269 @@
+package search.index;
+
+import search.index.codec.DocIdDecoder;
+import search.index.codec.EncodedDocIds;
+import search.index.codec.PostingsCodec;
+import search.index.codec.VByteCodec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates queries term at a time over a quantized copy of the index, adding up
+ * integers instead of doubles.
+ *
+ * Dividing a posting's weight by its document's norm gives a number between 0 and
+ * 1, which we store rounded to the nearest multiple of 1/(2^bits - 1) in 8 or 16
+ * bits (so 1 or 2 bytes per posting instead of 8). Query weights are divided by
+ * the query's scale, the larger of 1 and its largest weight (they can only go over
+ * 1 if the query repeats a word, see TfIdfAnalyzer.compile), and rounded to 16 bits.
+ * A document's score is then
+ *
+ *     scale[docId] * queryScale * sum(quantizedQueryWeight * quantizedWeight) / (QUERY_LEVELS * levels)
+ *
+ * where the sum is computed exactly in a long, and scale[docId] = boost[docId] *
+ * documentNorm[docId] (that is, sqrt(pageRank) with SearchEngine's boosts).
+ *
+ * The scores are approximate. Each rounded weight is off by at most half a step,
+ * so for a query with n terms, the score of any document is within
+ *
+ *     scale[docId] * (n / (2 * QUERY_LEVELS) + (sqrt(n) + n / (2 * QUERY_LEVELS)) / (2 * levels))
+ *
+ * of its exact score, for a query without repeated words (see 'getRelativeErrorBound'
+ * for the general case). Since scale[docId] is the
+ * largest score the document could get for any query, this is a bound on the error
+ * relative to that. With 8 bits and a 2-term query it's about 0.3%, and with 16 bits
+ * about 0.003%. Two documents can only be ranked the wrong way round if their
+ * exact scores are within the sum of their error bounds of each other.
+ *
+ * The evaluator keeps its own postings and never reads the index's again once it's
+ * built: each term's doc ids are variable-byte encoded, next to its quantized
+ * weights. So a posting takes the 1 or 2 bytes of its weight plus (for the postings
+ * of common terms) a byte or two of doc id gap, rather than the 12 bytes of a
+ * PostingsList (see 'getBytesPerPosting').
+ *
+ * That is only what a query reads, though, not what stays in memory. The quantized
+ * postings are built next to the index, not instead of it: the analyzer still keeps
+ * its InvertedIndex (12 bytes per posting, or the doc id bytes plus an 8-byte weight
+ * if compressed) and its document vectors (another 12), because exact re-ranking,
+ * 'computeScore' and every other evaluation mode need them. So this mode adds 2 or 3
+ * bytes per posting to the 24 or so an uncompressed index already holds, rather than
+ * taking any away: on a 20000-page Zipf corpus, 26.1 bytes per posting in total at 8
+ * bits and 27.1 at 16 bits, against 24.0 in the exact modes.
+ */
+public class QuantizedEvaluator implements QueryEvaluator {
+    public static final int QUERY_LEVELS = (1 << 16) - 1;
+
+    private int bits;
+    private int levels;
+
+    // For each doc id, what a document's normalized score gets multiplied by.
+    private double[] scales;
+
+    // For each term id, the encoded doc ids of its postings, and the quantized
+    // normalized weight of each posting. Exactly one of the weight arrays is non-null,
+    // depending on 'bits'.
+    private PostingsCodec codec;
+    private EncodedDocIds[] docIds;
+    private byte[][] weights8;
+    private char[][] weights16;
+
+    private ThreadLocal<Accumulators> accumulators;
+    private AtomicLong documentsScored;
+
+    /**
+     * @throws IllegalArgumentException  if bits is not 8 or 16
+     */
+    public QuantizedEvaluator(InvertedIndex index, double[] boosts, int bits) {
+        if (bits != 8 && bits != 16) {
+            throw new IllegalArgumentException("Weights can only be quantized to 8 or 16 bits, not " + bits);
+        }
+        this.bits = bits;
+        this.levels = (1 << bits) - 1;
+
+        int numDocuments = boosts.length;
+        this.scales = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            this.scales[docId] = boosts[docId] * index.getDocumentNorm(docId);
+        }
+
+        this.codec = new VByteCodec();
+        this.docIds = new EncodedDocIds[index.numTerms()];
+        if (bits == 8) {
+            this.weights8 = new byte[index.numTerms()][];
+        } else {
+            this.weights16 = new char[index.numTerms()][];
+        }
+        for (int termId = 0; termId < index.numTerms(); termId++) {
+            PostingsList postings = index.getPostings(termId);
+            this.docIds[termId] = this.codec.encode(postings);
+            if (bits == 8) {
+                this.weights8[termId] = new byte[postings.size()];
+            } else {
+                this.weights16[termId] = new char[postings.size()];
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                double norm = index.getDocumentNorm(postings.getDocId(i));
+                int quantized = norm == 0.0 ? 0 : this.quantize(postings.getWeight(i) / norm, this.levels);
+                if (bits == 8) {
+                    this.weights8[termId][i] = (byte) quantized;
+                } else {
+                    this.weights16[termId][i] = (char) quantized;
+                }
+            }
+        }
+
+        this.accumulators = ThreadLocal.withInitial(() -> new Accumulators(numDocuments, this.codec));
+        this.documentsScored = new AtomicLong();
+    }
+
+    private int quantize(double value, int levels) {
+        return (int) Math.round(Math.min(1.0, Math.max(0.0, value)) * levels);
+    }
+
+    /**
+     * Returns the number of bits each weight is stored in.
+     */
+    public int getBits() {
+        return this.bits;
+    }
+
+    /**
+     * Returns the number of bytes the quantized postings take up, doc ids and weights,
+     * not counting object and array headers.
+     */
+    public long postingsSizeInBytes() {
+        long total = 0;
+        for (EncodedDocIds encoded : this.docIds) {
+            total += encoded.sizeInBytes() + (this.bits / 8) * encoded.size();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the average number of bytes each quantized posting takes up, or 0 if
+     * there are none.
+     */
+    public double getBytesPerPosting() {
+        long numPostings = 0;
+        for (EncodedDocIds encoded : this.docIds) {
+            numPostings += encoded.size();
+        }
+        return numPostings == 0 ? 0.0 : (double) this.postingsSizeInBytes() / numPostings;
+    }
+
+    /**
+     * Returns the largest amount by which the score of a document can be off for a query
+     * with the given number of terms and no repeated words, as a fraction of the largest
+     * score the document could get for any query (sqrt(pageRank) with SearchEngine's
+     * boosts).
+     */
+    public double getRelativeErrorBound(int numTerms) {
+        return this.relativeErrorBound(numTerms, 1.0, 1.0);
+    }
+
+    /**
+     * Like the method above, but for the given query, which may repeat words.
+     */
+    public double getRelativeErrorBound(CompiledQuery query) {
+        double length = 0.0;
+        for (QueryTerm term : query.getTerms()) {
+            length += term.getWeight() * term.getWeight();
+        }
+        return this.relativeErrorBound(query.getTerms().length, queryScale(query), Math.sqrt(length));
+    }
+
+    private double relativeErrorBound(int numTerms, double queryScale, double queryLength) {
+        // Each query weight is off by at most half a step of the query's scale, and the
+        // weights add up to at most sqrt(numTerms) times their length.
+        double queryError = numTerms * queryScale / (2.0 * QUERY_LEVELS);
+        return queryError + (Math.sqrt(numTerms) * queryLength + queryError) / (2.0 * this.levels);
+    }
+
+    /**
+     * Returns the largest amount by which the score of the given document can be off for
+     * a query with the given number of terms and no repeated words.
+     */
+    public double getErrorBound(int docId, int numTerms) {
+        return this.scales[docId] * this.getRelativeErrorBound(numTerms);
+    }
+
+    /**
+     * Returns the largest amount by which the score of the given document can be off for
+     * the given query.
+     */
+    public double getErrorBound(int docId, CompiledQuery query) {
+        return this.scales[docId] * this.getRelativeErrorBound(query);
+    }
+
+    private static double queryScale(CompiledQuery query) {
+        double scale = 1.0;
+        for (QueryTerm term : query.getTerms()) {
+            scale = Math.max(scale, term.getWeight());
+        }
+        return scale;
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        Accumulators acc = this.accumulators.get();
+        acc.generation++;
+        int numTouched = 0;
+
+        DocIdDecoder decoder = acc.decoder;
+        double queryScale = queryScale(query);
+        for (QueryTerm term : query.getTerms()) {
+            long queryWeight = this.quantize(term.getWeight() / queryScale, QUERY_LEVELS);
+            byte[] termWeights8 = this.bits == 8 ? this.weights8[term.getTermId()] : null;
+            char[] termWeights16 = this.bits == 16 ? this.weights16[term.getTermId()] : null;
+            decoder.reset(this.docIds[term.getTermId()]);
+            for (int docId = decoder.advance(minDocId); docId < maxDocId; docId = decoder.next()) {
+                int i = decoder.position() - 1;
+                if (acc.lastTouched[docId] != acc.generation) {
+                    acc.lastTouched[docId] = acc.generation;
+                    acc.sums[docId] = 0;
+                    acc.touched[numTouched] = docId;
+                    numTouched++;
+                }
+                int weight = termWeights8 != null ? termWeights8[i] & 0xFF : termWeights16[i];
+                acc.sums[docId] += queryWeight * weight;
+            }
+        }
+
+        double unit = queryScale / ((double) QUERY_LEVELS * this.levels);
+        for (int i = 0; i < numTouched; i++) {
+            int docId = acc.touched[i];
+            collector.collect(docId, this.scales[docId] * (acc.sums[docId] * unit));
+        }
+        this.documentsScored.addAndGet(numTouched);
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return 0;
+    }
+
+    /**
+     * The scratch space used by a single thread. This works just like ScoreAccumulators,
+     * but with exact integer sums, plus a decoder for the doc ids.
+     */
+    private static class Accumulators {
+        public long[] sums;
+        public int[] lastTouched;
+        public int generation;
+        public int[] touched;
+        public DocIdDecoder decoder;
+
+        public Accumulators(int numDocuments, PostingsCodec codec) {
+            this.sums = new long[numDocuments];
+            this.lastTouched = new int[numDocuments];
+            this.generation = 0;
+            this.touched = new int[numDocuments];
+            this.decoder = codec.newDecoder();
+        }
+    }
+}
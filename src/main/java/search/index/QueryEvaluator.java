@@ -0,0 +1,42 @@
+package search.index;
+
+/**
+ * A strategy for finding the highest-scoring documents for a query.
+ *
+ * Every evaluator must produce exactly the same top k documents: they only
+ * differ in how much work they do to find them. A document's score is
+ *
+ *     boost[docId] * sum(term.weight * posting.weight for each term in the query)
+ *
+ * where the boost folds together everything about the document that does not
+ * depend on the query (see SearchEngine for how it is computed).
+ *
+ * Evaluators may be used by several threads at once (for example, to score
+ * different ranges of doc ids in parallel), so any scratch space they reuse
+ * between queries must be per-thread.
+ */
+public interface QueryEvaluator {
+    /**
+     * Finds the best documents for the given query and offers them to the collector.
+     */
+    default void evaluate(CompiledQuery query, TopKCollector collector) {
+        this.evaluate(query, collector, 0, PostingsCursor.NO_MORE_DOCS);
+    }
+
+    /**
+     * Finds the best documents with minDocId <= docId < maxDocId for the given query
+     * and offers them to the collector.
+     */
+    void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId);
+
+    /**
+     * Returns the number of documents this evaluator has fully scored so far.
+     */
+    long getDocumentsScored();
+
+    /**
+     * Returns the number of postings this evaluator has skipped over without scoring
+     * so far.
+     */
+    long getPostingsSkipped();
+}
@@ -0,0 +1,74 @@
+package search.index;
+
+/**
+ * Represents a single distinct word within a query, along with its weight (its entry
+ * in the unit-length query vector, times the number of times it appears in the
+ * query) and its postings.
+ */
+public class QueryTerm {
+    private String term;
+    private int termId;
+    private double weight;
+    private PostingsList postings;
+
+    // Set instead of 'postings' when the term comes from an index, so compressed
+    // postings only get decoded if some evaluator actually asks for a PostingsList.
+    private InvertedIndex index;
+
+    public QueryTerm(String term, int termId, double weight, PostingsList postings) {
+        this.term = term;
+        this.termId = termId;
+        this.weight = weight;
+        this.postings = postings;
+    }
+
+    /**
+     * Makes a term whose postings are those of the given index.
+     */
+    public QueryTerm(String term, int termId, double weight, InvertedIndex index) {
+        this.term = term;
+        this.termId = termId;
+        this.weight = weight;
+        this.index = index;
+    }
+
+    public String getTerm() {
+        return this.term;
+    }
+
+    /**
+     * Returns the id of this term within the inverted index.
+     */
+    public int getTermId() {
+        return this.termId;
+    }
+
+    public double getWeight() {
+        return this.weight;
+    }
+
+    public PostingsList getPostings() {
+        if (this.postings == null) {
+            this.postings = this.index.getPostings(this.termId);
+        }
+        return this.postings;
+    }
+
+    /**
+     * Returns this term's compressed postings, or null if it didn't come from a
+     * compressed index.
+     */
+    public CompressedPostings getCompressedPostings() {
+        return this.index == null ? null : this.index.getCompressedPostings(this.termId);
+    }
+
+    /**
+     * Returns the number of documents containing this term.
+     */
+    public int getDocumentFrequency() {
+        if (this.postings == null) {
+            return this.index.getDocumentFrequency(this.termId);
+        }
+        return this.postings.size();
+    }
+}
@@ -0,0 +1,21 @@
+package search.index;
+
+/**
+ * Computes each dot product with a single running sum, one multiply-add at a time.
+ *
+ * This is the simplest possible kernel, and the baseline the others are measured
+ * against (see Experiment7).
+ */
+public class ScalarDotProductKernel implements DotProductKernel {
+    @Override
+    public void dotProducts(float[] vector, float[] block, int length, int stride, int numRows, float[] output) {
+        for (int row = 0; row < numRows; row++) {
+            int offset = row * stride;
+            float sum = 0.0f;
+            for (int i = 0; i < length; i++) {
+                sum += vector[i] * block[offset + i];
+            }
+            output[row] = sum;
+        }
+    }
+}
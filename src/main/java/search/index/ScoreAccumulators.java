@@ -0,0 +1,70 @@
+package search.index;
+
+/**
+ * Scratch space for evaluators that add up scores one term at a time: a partial
+ * score for every doc id, plus the list of doc ids touched so far.
+ *
+ * An instance must only be used by one thread at a time.
+ */
+class ScoreAccumulators {
+    // scores[docId] holds the partial score for docId, but is only meaningful
+    // if lastTouched[docId] == generation. This way we never have to clear the arrays.
+    private double[] scores;
+    private int[] lastTouched;
+    private int generation;
+
+    // The doc ids touched since the last reset, in the order we first saw them.
+    private int[] touched;
+    private int numTouched;
+
+    public ScoreAccumulators(int numDocuments) {
+        this.scores = new double[numDocuments];
+        this.lastTouched = new int[numDocuments];
+        this.generation = 0;
+        this.touched = new int[numDocuments];
+        this.numTouched = 0;
+    }
+
+    /**
+     * Forgets every partial score, in O(1) time.
+     */
+    public void reset() {
+        this.generation++;
+        this.numTouched = 0;
+    }
+
+    /**
+     * Adds the given amount to the partial score of the given doc id.
+     */
+    public void add(int docId, double amount) {
+        if (this.lastTouched[docId] != this.generation) {
+            this.lastTouched[docId] = this.generation;
+            this.scores[docId] = 0.0;
+            this.touched[this.numTouched] = docId;
+            this.numTouched++;
+        }
+        this.scores[docId] += amount;
+    }
+
+    /**
+     * Returns the number of doc ids touched since the last reset.
+     */
+    public int numTouched() {
+        return this.numTouched;
+    }
+
+    /**
+     * Returns the i-th doc id touched since the last reset.
+     */
+    public int getTouched(int i) {
+        return this.touched[i];
+    }
+
+    /**
+     * Returns the partial score of the given doc id, which must have been touched
+     * since the last reset.
+     */
+    public double getScore(int docId) {
+        return this.scores[docId];
+    }
+}
@@ -0,0 +1,35 @@
+package search.index;
+
+/**
+ * Represents a document id along with the score it received for some query.
+ *
+ * Scored documents are ordered by score. Ties are broken by doc id, where the
+ * *smaller* doc id is considered to be the better match: this makes the top k
+ * documents for a query well-defined, no matter what order they were scored in.
+ */
+public class ScoredDocument implements Comparable<ScoredDocument> {
+    private int docId;
+    private double score;
+
+    public ScoredDocument(int docId, double score) {
+        this.docId = docId;
+        this.score = score;
+    }
+
+    public int getDocId() {
+        return this.docId;
+    }
+
+    public double getScore() {
+        return this.score;
+    }
+
+    @Override
+    public int compareTo(ScoredDocument other) {
+        int result = Double.compare(this.score, other.score);
+        if (result == 0) {
+            result = Integer.compare(other.docId, this.docId);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+package search.index;
+
+/**
+ * A vector of term weights, stored as parallel arrays of term ids (in increasing
+ * order) and weights. Any term not stored has a weight of zero.
+ */
+public class SparseVector {
+    private int[] termIds;
+    private double[] weights;
+
+    /**
+     * Precondition: the term ids must be strictly increasing, and there must be one
+     * weight per term id. The arrays are used as-is, not copied.
+     */
+    public SparseVector(int[] termIds, double[] weights) {
+        if (termIds.length != weights.length) {
+            throw new IllegalArgumentException("Need exactly one weight per term id");
+        }
+        this.termIds = termIds;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the number of terms with a stored weight.
+     */
+    public int size() {
+        return this.termIds.length;
+    }
+
+    /**
+     * Returns the term id of the i-th stored term.
+     */
+    public int getTermId(int i) {
+        return this.termIds[i];
+    }
+
+    /**
+     * Returns the weight of the i-th stored term.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the weight of the term with the given id, or zero if it isn't stored.
+     */
+    public double get(int termId) {
+        int low = 0;
+        int high = this.termIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.termIds[mid] < termId) {
+                low = mid + 1;
+            } else if (this.termIds[mid] > termId) {
+                high = mid - 1;
+            } else {
+                return this.weights[mid];
+            }
+        }
+        return 0.0;
+    }
+}
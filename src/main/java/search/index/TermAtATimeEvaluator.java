@@ -0,0 +1,83 @@
+package search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates queries one term at a time.
+ *
+ * Rather than merging postings lists, we walk each query term's postings once
+ * from start to end and add its contribution into a score accumulator indexed
+ * by doc id. Once every term has been processed, we hand the accumulated scores
+ * over to the top-k collector.
+ *
+ * The accumulators and the list of documents touched are plain primitive arrays
+ * that get reused across queries, so the only allocation on the query path is for
+ * documents that actually make it into the top-k heap. Each thread gets its own
+ * set of arrays, so a single instance can be shared between threads.
+ *
+ * If the index is compressed, we walk the compressed postings directly with a
+ * per-thread CompressedPostingsCursor rather than decoding them into a PostingsList,
+ * so compression doesn't add any allocation either.
+ */
+public class TermAtATimeEvaluator implements QueryEvaluator {
+    private double[] boosts;
+    private ThreadLocal<ScoreAccumulators> accumulators;
+    private ThreadLocal<CompressedPostingsCursor> cursors;
+    private AtomicLong documentsScored;
+
+    public TermAtATimeEvaluator(double[] boosts) {
+        this.boosts = boosts;
+        this.accumulators = ThreadLocal.withInitial(() -> new ScoreAccumulators(boosts.length));
+        this.cursors = ThreadLocal.withInitial(CompressedPostingsCursor::new);
+        this.documentsScored = new AtomicLong();
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        ScoreAccumulators acc = this.accumulators.get();
+        acc.reset();
+
+        for (QueryTerm term : query.getTerms()) {
+            double queryWeight = term.getWeight();
+            CompressedPostings compressed = term.getCompressedPostings();
+            if (compressed != null) {
+                this.accumulate(acc, compressed, queryWeight, minDocId, maxDocId);
+                continue;
+            }
+            PostingsList postings = term.getPostings();
+            for (int i = postings.findFirst(minDocId); i < postings.size(); i++) {
+                int docId = postings.getDocId(i);
+                if (docId >= maxDocId) {
+                    break;
+                }
+                acc.add(docId, queryWeight * postings.getWeight(i));
+            }
+        }
+
+        for (int i = 0; i < acc.numTouched(); i++) {
+            int docId = acc.getTouched(i);
+            collector.collect(docId, this.boosts[docId] * acc.getScore(docId));
+        }
+        this.documentsScored.addAndGet(acc.numTouched());
+    }
+
+    private void accumulate(ScoreAccumulators acc, CompressedPostings postings, double queryWeight,
+                            int minDocId, int maxDocId) {
+        CompressedPostingsCursor cursor = this.cursors.get();
+        cursor.reset(postings);
+        // Under a ParallelEvaluator, each partition skips straight to its own doc ids.
+        for (int docId = cursor.advance(minDocId); docId < maxDocId; docId = cursor.next()) {
+            acc.add(docId, queryWeight * cursor.weight());
+        }
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return 0;
+    }
+}
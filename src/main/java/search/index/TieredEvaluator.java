@@ -0,0 +1,284 @@
+package search.index;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates queries against a copy of the index whose documents are ordered by
+ * static rank (page rank), and stops as soon as the remaining documents provably
+ * can't make it into the top k.
+ *
+ * We renumber the documents so that rank 0 is the document with the highest
+ * static rank, rank 1 the next highest, and so on, and split that order into
+ * tiers. Each tier is twice the size of the one before it, so head queries can
+ * often be answered from the first few (small) tiers. For each term, we store
+ * the order of its postings by rank, along with where each tier starts and the
+ * largest score contribution the term makes within each tier or any later one.
+ *
+ * The rank order is kept as positions into the index's own postings list, so on
+ * an uncompressed index this evaluator only adds 4 bytes per posting (an int)
+ * next to the index's 12, rather than a second copy of every list. Compressed
+ * postings can only be read in order, though, so for a compressed index we keep a
+ * rank-ordered copy of each list instead (ranks and weights, 12 bytes per posting).
+ * See 'postingsSizeInBytes'.
+ *
+ * By Cauchy-Schwarz, a document's score is also at most its boost times its norm
+ * times the length of the query's weights. That length is 1 unless the query
+ * repeats a word (see TfIdfAnalyzer.compile), so with the usual boosts the cap is
+ * just sqrt(pageRank) for most queries. We keep the largest cap of each tier or any
+ * later one too, which is what makes ordering by page rank pay off for queries with
+ * several terms.
+ *
+ * We then score the query one tier at a time (term at a time within a tier).
+ * After each tier, if even the best possible score of any later document can't
+ * beat the current k-th best score, we are done. Scores are computed the same
+ * way as in every other evaluator, so the results are identical; the ordering
+ * only decides how soon we get to stop.
+ */
+public class TieredEvaluator implements QueryEvaluator {
+    public static final int NUM_TIERS = 8;
+
+    private double[] boosts;
+
+    // rankToDocId[rank] is the doc id of the document with that static rank.
+    private int[] rankToDocId;
+
+    // tierStarts[tier] is the first rank in that tier; tierStarts[NUM_TIERS] is the number of documents.
+    private int[] tierStarts;
+
+    // If the index is uncompressed, for each term id, its postings (shared with the
+    // index), and the positions within them in rank order. Otherwise both are null.
+    private PostingsList[] postings;
+    private int[][] rankOrder;
+
+    // If the index is compressed, for each term id, a copy of its postings in rank
+    // order (the "doc ids" in these lists are ranks). Otherwise null.
+    private PostingsList[] rankedPostings;
+
+    // For each term id, the position in its rank order where each tier starts.
+    private int[][] postingTierStarts;
+
+    // For each term id and tier, the largest score contribution the term makes in that tier or any later one.
+    private double[][] remainingMaxImpacts;
+
+    // For each tier, the largest score any document in that tier or a later one can get, for any query.
+    private double[] remainingMaxScores;
+
+    private ThreadLocal<ScoreAccumulators> accumulators;
+    private AtomicLong documentsScored;
+    private AtomicLong postingsSkipped;
+
+    /**
+     * @param staticRanks  the static rank of each doc id; higher is better. If null
+     *                     (say, the scorer doesn't use page ranks), the documents are
+     *                     ordered by the largest score they can get instead.
+     */
+    public TieredEvaluator(InvertedIndex index, double[] boosts, double[] staticRanks) {
+        int numDocuments = boosts.length;
+        this.boosts = boosts;
+        double[] ranks = staticRanks;
+        if (ranks == null) {
+            ranks = new double[numDocuments];
+            for (int docId = 0; docId < numDocuments; docId++) {
+                ranks[docId] = boosts[docId] * index.getDocumentNorm(docId);
+            }
+        }
+        this.rankToDocId = orderByStaticRank(ranks);
+        int[] docIdToRank = new int[numDocuments];
+        for (int rank = 0; rank < numDocuments; rank++) {
+            docIdToRank[this.rankToDocId[rank]] = rank;
+        }
+
+        this.tierStarts = new int[NUM_TIERS + 1];
+        for (int tier = 0; tier < NUM_TIERS; tier++) {
+            this.tierStarts[tier] = numDocuments >> (NUM_TIERS - tier);
+        }
+        this.tierStarts[0] = 0;
+        this.tierStarts[NUM_TIERS] = numDocuments;
+
+        this.remainingMaxScores = new double[NUM_TIERS + 1];
+        for (int tier = NUM_TIERS - 1; tier >= 0; tier--) {
+            double max = this.remainingMaxScores[tier + 1];
+            for (int rank = this.tierStarts[tier]; rank < this.tierStarts[tier + 1]; rank++) {
+                int docId = this.rankToDocId[rank];
+                max = Math.max(max, boosts[docId] * index.getDocumentNorm(docId));
+            }
+            this.remainingMaxScores[tier] = max;
+        }
+
+        int numTerms = index.numTerms();
+        if (index.getCodec() == null) {
+            this.postings = new PostingsList[numTerms];
+            this.rankOrder = new int[numTerms][];
+        } else {
+            this.rankedPostings = new PostingsList[numTerms];
+        }
+        this.postingTierStarts = new int[numTerms][];
+        this.remainingMaxImpacts = new double[numTerms][];
+        for (int termId = 0; termId < numTerms; termId++) {
+            this.addTerm(termId, index.getPostings(termId), docIdToRank);
+        }
+
+        this.accumulators = ThreadLocal.withInitial(() -> new ScoreAccumulators(numDocuments));
+        this.documentsScored = new AtomicLong();
+        this.postingsSkipped = new AtomicLong();
+    }
+
+    /**
+     * Returns every doc id, sorted by decreasing static rank (ties go to the smaller doc id).
+     */
+    private static int[] orderByStaticRank(double[] staticRanks) {
+        // Sort (rank, doc id) pairs packed into longs so we don't have to box anything.
+        // The bits of a non-negative float sort the same way as the float itself, so
+        // negating them puts the highest ranks first. Losing precision here is fine: the
+        // order only affects how soon we can stop, never the results.
+        long[] keys = new long[staticRanks.length];
+        for (int docId = 0; docId < staticRanks.length; docId++) {
+            float rank = (float) staticRanks[docId];
+            keys[docId] = ((long) -Float.floatToIntBits(rank) << 32) | docId;
+        }
+        Arrays.sort(keys);
+        int[] output = new int[staticRanks.length];
+        for (int i = 0; i < keys.length; i++) {
+            output[i] = (int) keys[i];
+        }
+        return output;
+    }
+
+    private void addTerm(int termId, PostingsList postings, int[] docIdToRank) {
+        // Sort the postings by rank, again packing (rank, original position) into longs.
+        long[] keys = new long[postings.size()];
+        for (int i = 0; i < postings.size(); i++) {
+            keys[i] = ((long) docIdToRank[postings.getDocId(i)] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        PostingsList ranked = this.rankedPostings == null ? null : new PostingsList();
+        int[] order = this.rankedPostings == null ? new int[keys.length] : null;
+        int[] starts = new int[NUM_TIERS + 1];
+        double[] maxImpacts = new double[NUM_TIERS + 1];
+        int tier = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int rank = (int) (keys[i] >>> 32);
+            int original = (int) keys[i];
+            while (rank >= this.tierStarts[tier + 1]) {
+                tier++;
+                starts[tier] = i;
+            }
+            double weight = postings.getWeight(original);
+            if (ranked != null) {
+                ranked.add(rank, weight);
+            } else {
+                order[i] = original;
+            }
+            maxImpacts[tier] = Math.max(maxImpacts[tier], weight * this.boosts[this.rankToDocId[rank]]);
+        }
+        while (tier < NUM_TIERS) {
+            tier++;
+            starts[tier] = keys.length;
+        }
+        for (int i = NUM_TIERS - 1; i >= 0; i--) {
+            maxImpacts[i] = Math.max(maxImpacts[i], maxImpacts[i + 1]);
+        }
+        if (ranked != null) {
+            ranked.trim();
+            this.rankedPostings[termId] = ranked;
+        } else {
+            this.postings[termId] = postings;
+            this.rankOrder[termId] = order;
+        }
+        this.postingTierStarts[termId] = starts;
+        this.remainingMaxImpacts[termId] = maxImpacts;
+    }
+
+    @Override
+    public void evaluate(CompiledQuery query, TopKCollector collector, int minDocId, int maxDocId) {
+        QueryTerm[] terms = query.getTerms();
+        ScoreAccumulators acc = this.accumulators.get();
+        long scored = 0;
+        long skipped = 0;
+
+        double queryLength = 0.0;
+        for (QueryTerm term : terms) {
+            queryLength += term.getWeight() * term.getWeight();
+        }
+        queryLength = Math.sqrt(queryLength);
+
+        for (int tier = 0; tier < NUM_TIERS; tier++) {
+            double bound = 0.0;
+            for (QueryTerm term : terms) {
+                bound += term.getWeight() * this.remainingMaxImpacts[term.getTermId()][tier];
+            }
+            bound = Math.min(bound, queryLength * this.remainingMaxScores[tier]);
+            if (!collector.isCompetitive(bound)) {
+                // Nothing in this tier or any later one can make it into the top k.
+                for (QueryTerm term : terms) {
+                    int[] starts = this.postingTierStarts[term.getTermId()];
+                    skipped += starts[NUM_TIERS] - starts[tier];
+                }
+                break;
+            }
+
+            acc.reset();
+            for (QueryTerm term : terms) {
+                int termId = term.getTermId();
+                int start = this.postingTierStarts[termId][tier];
+                int end = this.postingTierStarts[termId][tier + 1];
+                if (this.rankOrder != null) {
+                    PostingsList postings = this.postings[termId];
+                    int[] order = this.rankOrder[termId];
+                    for (int i = start; i < end; i++) {
+                        int position = order[i];
+                        int docId = postings.getDocId(position);
+                        if (docId >= minDocId && docId < maxDocId) {
+                            acc.add(docId, term.getWeight() * postings.getWeight(position));
+                        }
+                    }
+                } else {
+                    PostingsList postings = this.rankedPostings[termId];
+                    for (int i = start; i < end; i++) {
+                        int docId = this.rankToDocId[postings.getDocId(i)];
+                        if (docId >= minDocId && docId < maxDocId) {
+                            acc.add(docId, term.getWeight() * postings.getWeight(i));
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < acc.numTouched(); i++) {
+                int docId = acc.getTouched(i);
+                collector.collect(docId, this.boosts[docId] * acc.getScore(docId));
+            }
+            scored += acc.numTouched();
+        }
+
+        this.documentsScored.addAndGet(scored);
+        this.postingsSkipped.addAndGet(skipped);
+    }
+
+    /**
+     * Returns the number of bytes this evaluator keeps per posting on top of the index,
+     * not counting object and array headers: 4 per posting on an uncompressed index,
+     * and 12 on a compressed one.
+     */
+    public long postingsSizeInBytes() {
+        long total = 0;
+        for (int termId = 0; termId < this.postingTierStarts.length; termId++) {
+            if (this.rankOrder != null) {
+                total += 4L * this.rankOrder[termId].length;
+            } else {
+                total += 12L * this.rankedPostings[termId].size();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getDocumentsScored() {
+        return this.documentsScored.get();
+    }
+
+    @Override
+    public long getPostingsSkipped() {
+        return this.postingsSkipped.get();
+    }
+}
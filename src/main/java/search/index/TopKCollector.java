@@ -0,0 +1,104 @@
+package search.index;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.IPriorityQueue;
+
+/**
+ * Keeps track of the k best documents seen so far while evaluating a query.
+ *
+ * Like Searcher.topKSort, this keeps the k best documents in a min-heap, so the
+ * worst of them is always at the top. Once the heap is full, that document's
+ * score is the "threshold" a new document needs to beat to get in, which is what
+ * lets the pruning evaluators skip documents without fully scoring them.
+ */
+public class TopKCollector {
+    // Upper bounds are summed in a different order than the scores they bound,
+    // so they can come out a few ulps too low. We pad them by this (relative)
+    // amount before comparing them against the threshold.
+    private static final double ROUNDING_SLACK = 1e-9;
+
+    private IPriorityQueue<ScoredDocument> heap;
+    private int k;
+
+    /**
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public TopKCollector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.heap = new ArrayHeap<>();
+        this.k = k;
+    }
+
+    /**
+     * Offers a document to this collector. Returns 'true' if it is (for now) one of
+     * the k best documents.
+     */
+    public boolean collect(int docId, double score) {
+        if (this.k == 0) {
+            return false;
+        }
+        if (this.heap.size() < this.k) {
+            this.heap.insert(new ScoredDocument(docId, score));
+            return true;
+        }
+        ScoredDocument worst = this.heap.peekMin();
+        if (score < worst.getScore() || (score == worst.getScore() && docId > worst.getDocId())) {
+            return false;
+        }
+        this.heap.removeMin();
+        this.heap.insert(new ScoredDocument(docId, score));
+        return true;
+    }
+
+    /**
+     * Returns 'true' if a document whose score is at most the given upper bound
+     * could still make it into the top k.
+     */
+    public boolean isCompetitive(double upperBound) {
+        if (this.k == 0) {
+            return false;
+        }
+        return this.heap.size() < this.k || upperBound * (1.0 + ROUNDING_SLACK) >= this.threshold();
+    }
+
+    /**
+     * Returns the score of the worst document currently in the top k, or zero
+     * if fewer than k documents have been collected.
+     */
+    public double threshold() {
+        if (this.heap.size() < this.k || this.heap.isEmpty()) {
+            return 0.0;
+        }
+        return this.heap.peekMin().getScore();
+    }
+
+    /**
+     * Returns the most documents this collector will hold.
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Returns the number of documents currently held.
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     * Returns the collected documents, best first. This empties the collector.
+     */
+    public IList<ScoredDocument> drain() {
+        IList<ScoredDocument> output = new DoubleLinkedList<>();
+        while (!this.heap.isEmpty()) {
+            output.insert(0, this.heap.removeMin());
+        }
+        this.heap = new ArrayHeap<>();
+        return output;
+    }
+}
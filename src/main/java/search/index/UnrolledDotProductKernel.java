@@ -0,0 +1,39 @@
+package search.index;
+
+/**
+ * Computes each dot product with four independent running sums, added together at
+ * the end.
+ *
+ * With a single running sum, every multiply-add has to wait for the one before it to
+ * finish. The JIT won't reorder floating point additions for us, since that changes
+ * the rounding, so we do it by hand: the four sums don't depend on each other, so the
+ * CPU can work on all four at once. This gives the same speedup a SIMD kernel gets from
+ * its independent lanes, without needing the incubating Vector API.
+ *
+ * The results can differ from ScalarDotProductKernel's in the last few bits, since the
+ * products are added up in a different order.
+ */
+public class UnrolledDotProductKernel implements DotProductKernel {
+    @Override
+    public void dotProducts(float[] vector, float[] block, int length, int stride, int numRows, float[] output) {
+        int unrolledLength = length & ~3;
+        for (int row = 0; row < numRows; row++) {
+            int offset = row * stride;
+            float sum0 = 0.0f;
+            float sum1 = 0.0f;
+            float sum2 = 0.0f;
+            float sum3 = 0.0f;
+            int i = 0;
+            for (; i < unrolledLength; i += 4) {
+                sum0 += vector[i] * block[offset + i];
+                sum1 += vector[i + 1] * block[offset + i + 1];
+                sum2 += vector[i + 2] * block[offset + i + 2];
+                sum3 += vector[i + 3] * block[offset + i + 3];
+            }
+            for (; i < length; i++) {
+                sum0 += vector[i] * block[offset + i];
+            }
+            output[row] = (sum0 + sum1) + (sum2 + sum3);
+        }
+    }
+}
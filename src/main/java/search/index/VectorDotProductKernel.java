@@ -0,0 +1,50 @@
+package search.index;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes each dot product with SIMD multiply-adds, using the incubating Vector API.
+ *
+ * Each step multiplies a whole vector's worth of entries of a row by the matching
+ * entries of 'vector' and adds them into a vector of running sums, which are added
+ * together at the end. Whatever is left over past the last whole vector is added in
+ * one entry at a time.
+ *
+ * We use the widest vectors the CPU supports, but no wider than 8 floats: the rows
+ * DenseRelevanceScorer lays out are usually a single 8-float block (queries are
+ * short), and a wider vector would leave every entry of those to the leftover loop.
+ *
+ * This class can only be loaded if the JVM was started with
+ * '--add-modules jdk.incubator.vector'. Use DotProductKernel.fastest() to get this
+ * kernel when it's available, and a scalar one otherwise.
+ *
+ * The results can differ from ScalarDotProductKernel's in the last few bits, since the
+ * products are added up in a different order.
+ */
+public class VectorDotProductKernel implements DotProductKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED.length() > 8
+            ? FloatVector.SPECIES_256
+            : FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void dotProducts(float[] vector, float[] block, int length, int stride, int numRows, float[] output) {
+        int vectorLength = SPECIES.loopBound(length);
+        for (int row = 0; row < numRows; row++) {
+            int offset = row * stride;
+            FloatVector sums = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < vectorLength; i += SPECIES.length()) {
+                FloatVector a = FloatVector.fromArray(SPECIES, vector, i);
+                FloatVector b = FloatVector.fromArray(SPECIES, block, offset + i);
+                sums = a.fma(b, sums);
+            }
+            float sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; i < length; i++) {
+                sum += vector[i] * block[offset + i];
+            }
+            output[row] = sum;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package search.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable, sorted set of terms, each identified by its position in sorted
+ * order (its term id).
+ *
+ * Terms are stored front-coded: we sort them by their UTF-8 bytes and split them
+ * into blocks of BLOCK_SIZE. The first term of each block is stored in full; every
+ * other term is stored as the length of the prefix it shares with the term before
+ * it, followed by the rest of its bytes. Neighbouring terms in sorted order tend to
+ * share long prefixes, so this takes far less space than a String per term, and
+ * everything lives in a single byte array.
+ *
+ * Looking up a term binary searches the first terms of the blocks, then walks
+ * forward through a single block.
+ */
+public class Vocabulary {
+    public static final int BLOCK_SIZE = 16;
+
+    // The encoded terms, and where each block starts within them.
+    private byte[] data;
+    private int[] blockOffsets;
+    private int size;
+
+    // The length in bytes of the longest term, so lookups know how big a buffer to use.
+    private int maxTermLength;
+
+    private Vocabulary(byte[] data, int[] blockOffsets, int size, int maxTermLength) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.maxTermLength = maxTermLength;
+    }
+
+    /**
+     * Builds a vocabulary out of the given terms, which may be in any order and may
+     * contain duplicates.
+     */
+    public static Vocabulary of(String... terms) {
+        byte[][] encoded = new byte[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            encoded[i] = terms[i].getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(encoded, Vocabulary::compare);
+
+        // Every term takes at most its own bytes plus two 5-byte lengths.
+        int capacity = 0;
+        for (byte[] term : encoded) {
+            capacity += term.length + 10;
+        }
+        byte[] data = new byte[capacity];
+        int[] blockOffsets = new int[(terms.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        int length = 0;
+        int size = 0;
+        int maxTermLength = 0;
+        byte[] previous = null;
+        for (byte[] term : encoded) {
+            if (previous != null && compare(previous, term) == 0) {
+                continue;
+            }
+            if (size % BLOCK_SIZE == 0) {
+                blockOffsets[size / BLOCK_SIZE] = length;
+                length = writeVInt(data, length, term.length);
+                System.arraycopy(term, 0, data, length, term.length);
+                length += term.length;
+            } else {
+                int prefix = commonPrefix(previous, term);
+                length = writeVInt(data, length, prefix);
+                length = writeVInt(data, length, term.length - prefix);
+                System.arraycopy(term, prefix, data, length, term.length - prefix);
+                length += term.length - prefix;
+            }
+            maxTermLength = Math.max(maxTermLength, term.length);
+            previous = term;
+            size++;
+        }
+        return new Vocabulary(
+                Arrays.copyOf(data, length),
+                Arrays.copyOf(blockOffsets, (size + BLOCK_SIZE - 1) / BLOCK_SIZE),
+                size,
+                maxTermLength);
+    }
+
+    /**
+     * Returns the number of terms.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the term id of the given term, or InvertedIndex.UNKNOWN_TERM if it isn't
+     * part of this vocabulary.
+     */
+    public int getTermId(String term) {
+        if (this.size == 0) {
+            return InvertedIndex.UNKNOWN_TERM;
+        }
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+
+        // Find the last block whose first term is <= key.
+        int low = 0;
+        int high = this.blockOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (this.compareBlockHead(mid, key) <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int block = low;
+
+        // Walk through the block, rebuilding each term in turn.
+        byte[] buffer = new byte[this.maxTermLength];
+        int position = this.blockOffsets[block];
+        int termLength = 0;
+        int end = Math.min(this.size, (block + 1) * BLOCK_SIZE);
+        for (int termId = block * BLOCK_SIZE; termId < end; termId++) {
+            int prefix = 0;
+            if (termId != block * BLOCK_SIZE) {
+                prefix = readVInt(this.data, position);
+                position += vIntLength(prefix);
+            }
+            int suffix = readVInt(this.data, position);
+            position += vIntLength(suffix);
+            System.arraycopy(this.data, position, buffer, prefix, suffix);
+            position += suffix;
+            termLength = prefix + suffix;
+
+            int comparison = compare(buffer, termLength, key);
+            if (comparison == 0) {
+                return termId;
+            } else if (comparison > 0) {
+                break;
+            }
+        }
+        return InvertedIndex.UNKNOWN_TERM;
+    }
+
+    /**
+     * Returns the term with the given term id.
+     *
+     * @throws IndexOutOfBoundsException  if there is no such term id
+     */
+    public String getTerm(int termId) {
+        if (termId < 0 || termId >= this.size) {
+            throw new IndexOutOfBoundsException("No term with id " + termId);
+        }
+        int block = termId / BLOCK_SIZE;
+        byte[] buffer = new byte[this.maxTermLength];
+        int position = this.blockOffsets[block];
+        int termLength = 0;
+        for (int i = block * BLOCK_SIZE; i <= termId; i++) {
+            int prefix = 0;
+            if (i != block * BLOCK_SIZE) {
+                prefix = readVInt(this.data, position);
+                position += vIntLength(prefix);
+            }
+            int suffix = readVInt(this.data, position);
+            position += vIntLength(suffix);
+            System.arraycopy(this.data, position, buffer, prefix, suffix);
+            position += suffix;
+            termLength = prefix + suffix;
+        }
+        return new String(buffer, 0, termLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of bytes the encoded terms take up, not counting object and
+     * array headers.
+     */
+    public long sizeInBytes() {
+        return this.data.length + 4L * this.blockOffsets.length;
+    }
+
+    private int compareBlockHead(int block, byte[] key) {
+        int position = this.blockOffsets[block];
+        int length = readVInt(this.data, position);
+        position += vIntLength(length);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (this.data[position + i] & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Compares byte strings as unsigned bytes, which orders UTF-8 strings by code point.
+     */
+    private static int compare(byte[] a, byte[] b) {
+        return compare(a, a.length, b);
+    }
+
+    private static int compare(byte[] a, int aLength, byte[] b) {
+        int common = Math.min(aLength, b.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - b.length;
+    }
+
+    private static int commonPrefix(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < common && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int writeVInt(byte[] data, int position, int value) {
+        while (value >= 0x80) {
+            data[position] = (byte) ((value & 0x7F) | 0x80);
+            position++;
+            value >>>= 7;
+        }
+        data[position] = (byte) value;
+        return position + 1;
+    }
+
+    private static int readVInt(byte[] data, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b = data[position];
+        while ((b & 0x80) != 0) {
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+            position++;
+            b = data[position];
+        }
+        return value | (b << shift);
+    }
+
+    private static int vIntLength(int value) {
+        int length = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,56 @@
+package search.index;
+
+/**
+ * Represents a query's distinct words, each weighted by its entry in the unit-length
+ * TF-IDF query vector (or the scorer's query weights) times the number of times it
+ * appears in the query, but not yet looked up in any particular index.
+ *
+ * An index split into several segments weighs a query once, over the statistics of
+ * the whole collection, and then resolves it against each segment's own vocabulary
+ * (see TfIdfAnalyzer.resolve). That way a word missing from one segment still counts
+ * towards the query's norm there, just like it would in a single index.
+ *
+ * Words that appear in no document (or in every document) have a weight of zero, and
+ * are left out.
+ */
+public class WeightedQuery {
+    private String[] words;
+    private double[] weights;
+    private double norm;
+
+    /**
+     * Precondition: 'weights' must already be divided by 'norm'.
+     */
+    public WeightedQuery(String[] words, double[] weights, double norm) {
+        this.words = words;
+        this.weights = weights;
+        this.norm = norm;
+    }
+
+    /**
+     * Returns the number of words with non-zero weight.
+     */
+    public int size() {
+        return this.words.length;
+    }
+
+    public String getWord(int i) {
+        return this.words[i];
+    }
+
+    /**
+     * Returns the i-th word's weight: its entry in the unit-length query vector, times
+     * the number of times it appears in the query.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the length (euclidean norm) of the query vector before it was
+     * normalized.
+     */
+    public double getNorm() {
+        return this.norm;
+    }
+}
@@ -0,0 +1,38 @@
+package search.index.codec;
+
+/**
+ * Reads back doc ids encoded by a PostingsCodec, one at a time and in order.
+ *
+ * A decoder can be reused for any number of encoded lists (from the same codec),
+ * and never allocates while decoding. It can also skip ahead to a given doc id (see
+ * 'advance'), which lets an evaluator that only wants part of the doc id space start
+ * there without decoding everything before it.
+ */
+public interface DocIdDecoder {
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * Starts decoding the given doc ids from the beginning.
+     *
+     * @throws IllegalArgumentException  if the doc ids were encoded by a different codec
+     */
+    void reset(EncodedDocIds encoded);
+
+    /**
+     * Returns the next doc id, or NO_MORE_DOCS once every doc id has been returned.
+     */
+    int next();
+
+    /**
+     * Skips to the first doc id that is at least 'target' and hasn't been returned yet,
+     * and returns it, or NO_MORE_DOCS if there is none. Doc ids skipped over count as
+     * returned.
+     */
+    int advance(int target);
+
+    /**
+     * Returns the number of doc ids returned (or skipped over) so far. This is the index
+     * within the encoded list of the doc id 'next' returns next.
+     */
+    int position();
+}
@@ -0,0 +1,163 @@
+package search.index.codec;
+
+import search.index.PostingsList;
+
+/**
+ * Stores doc ids using the Elias-Fano encoding.
+ *
+ * For n doc ids less than u, we pick l = floor(log2(u / n)) and split each doc id
+ * into its l low bits and the remaining high bits. The low bits are packed one
+ * after another. The high bits are stored in unary: for the i-th doc id, we set
+ * bit (high + i) of a bitmap of n + (u >> l) + 1 bits. Altogether this takes at
+ * most 2 + ceil(log2(u / n)) bits per doc id, no matter how the gaps between them
+ * are distributed.
+ *
+ * Skipping ahead doesn't need any extra data: the number of zeros before a position
+ * in the high bits is the high part of the doc ids that follow, so 'advance' can step
+ * over a whole 64-bit word at a time while its doc ids are all too small.
+ */
+public class EliasFanoCodec implements PostingsCodec {
+    @Override
+    public String getName() {
+        return "elias-fano";
+    }
+
+    @Override
+    public EncodedDocIds encode(PostingsList postings) {
+        int n = postings.size();
+        if (n == 0) {
+            return new Encoded(new long[0], new long[0], 0, 0);
+        }
+        int universe = postings.getDocId(n - 1) + 1;
+        int lowWidth = universe / n == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(universe / n);
+        long lowMask = (1L << lowWidth) - 1;
+
+        long[] lowBits = new long[(int) (((long) n * lowWidth + 63) / 64)];
+        long[] highBits = new long[(int) (((long) n + (universe >>> lowWidth) + 1 + 63) / 64)];
+        for (int i = 0; i < n; i++) {
+            int docId = postings.getDocId(i);
+            long highPosition = (long) (docId >>> lowWidth) + i;
+            highBits[(int) (highPosition >>> 6)] |= 1L << (highPosition & 63);
+
+            if (lowWidth > 0) {
+                long low = docId & lowMask;
+                long lowPosition = (long) i * lowWidth;
+                int word = (int) (lowPosition >>> 6);
+                int offset = (int) (lowPosition & 63);
+                lowBits[word] |= low << offset;
+                if (offset + lowWidth > 64) {
+                    lowBits[word + 1] |= low >>> (64 - offset);
+                }
+            }
+        }
+        return new Encoded(lowBits, highBits, lowWidth, n);
+    }
+
+    @Override
+    public DocIdDecoder newDecoder() {
+        return new Decoder();
+    }
+
+    private static class Encoded implements EncodedDocIds {
+        public final long[] lowBits;
+        public final long[] highBits;
+        public final int lowWidth;
+        public final int size;
+
+        public Encoded(long[] lowBits, long[] highBits, int lowWidth, int size) {
+            this.lowBits = lowBits;
+            this.highBits = highBits;
+            this.lowWidth = lowWidth;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 8L * (this.lowBits.length + this.highBits.length);
+        }
+    }
+
+    private static class Decoder implements DocIdDecoder {
+        private Encoded encoded;
+        private long lowMask;
+        private int index;
+
+        // The high bits word we are currently scanning, with the bits we've already
+        // used cleared.
+        private int word;
+        private long bits;
+
+        @Override
+        public void reset(EncodedDocIds encoded) {
+            if (!(encoded instanceof Encoded)) {
+                throw new IllegalArgumentException("Doc ids were not encoded by EliasFanoCodec");
+            }
+            this.encoded = (Encoded) encoded;
+            this.lowMask = (1L << this.encoded.lowWidth) - 1;
+            this.index = 0;
+            this.word = 0;
+            this.bits = this.encoded.highBits.length == 0 ? 0 : this.encoded.highBits[0];
+        }
+
+        @Override
+        public int next() {
+            if (this.index == this.encoded.size) {
+                return NO_MORE_DOCS;
+            }
+            while (this.bits == 0) {
+                this.word++;
+                this.bits = this.encoded.highBits[this.word];
+            }
+            long highPosition = ((long) this.word << 6) + Long.numberOfTrailingZeros(this.bits);
+            this.bits &= this.bits - 1;
+            long high = highPosition - this.index;
+
+            int lowWidth = this.encoded.lowWidth;
+            long low = 0;
+            if (lowWidth > 0) {
+                long lowPosition = (long) this.index * lowWidth;
+                int lowWord = (int) (lowPosition >>> 6);
+                int offset = (int) (lowPosition & 63);
+                low = this.encoded.lowBits[lowWord] >>> offset;
+                if (offset + lowWidth > 64) {
+                    low |= this.encoded.lowBits[lowWord + 1] << (64 - offset);
+                }
+                low &= this.lowMask;
+            }
+            this.index++;
+            return (int) ((high << lowWidth) | low);
+        }
+
+        @Override
+        public int advance(int target) {
+            long targetHigh = target >>> this.encoded.lowWidth;
+            while (this.index < this.encoded.size) {
+                // Every doc id left in this word has a high part of at most the number of
+                // zeros up to the end of the word.
+                int remaining = Long.bitCount(this.bits);
+                long zerosAtEnd = ((long) (this.word + 1) << 6) - (this.index + remaining);
+                if (zerosAtEnd >= targetHigh) {
+                    break;
+                }
+                this.index += remaining;
+                this.word++;
+                this.bits = this.word < this.encoded.highBits.length ? this.encoded.highBits[this.word] : 0;
+            }
+            int docId = this.next();
+            while (docId < target) {
+                docId = this.next();
+            }
+            return docId;
+        }
+
+        @Override
+        public int position() {
+            return this.index;
+        }
+    }
+}
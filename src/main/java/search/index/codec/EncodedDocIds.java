@@ -0,0 +1,17 @@
+package search.index.codec;
+
+/**
+ * The doc ids of a postings list, as encoded by some PostingsCodec.
+ */
+public interface EncodedDocIds {
+    /**
+     * Returns the number of doc ids encoded.
+     */
+    int size();
+
+    /**
+     * Returns the number of bytes the encoded doc ids take up, not counting object
+     * and array headers.
+     */
+    long sizeInBytes();
+}
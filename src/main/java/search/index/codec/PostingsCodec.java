@@ -0,0 +1,27 @@
+package search.index.codec;
+
+import search.index.PostingsList;
+
+/**
+ * A way of compactly storing the (strictly increasing) doc ids of a postings list.
+ *
+ * Codecs only deal with doc ids: weights are stored separately. To read the doc
+ * ids back, create a decoder once and 'reset' it onto each encoded list in turn,
+ * so iterating over postings never allocates.
+ */
+public interface PostingsCodec {
+    /**
+     * Returns a short, human-readable name for this codec.
+     */
+    String getName();
+
+    /**
+     * Encodes the doc ids of the given postings list.
+     */
+    EncodedDocIds encode(PostingsList postings);
+
+    /**
+     * Returns a new decoder for doc ids encoded by this codec.
+     */
+    DocIdDecoder newDecoder();
+}
@@ -0,0 +1,92 @@
+package search.index.codec;
+
+import search.index.PostingsList;
+
+/**
+ * Stores doc ids as plain 4-byte ints. This is what PostingsList does, and is
+ * here as a baseline for the other codecs.
+ */
+public class RawCodec implements PostingsCodec {
+    @Override
+    public String getName() {
+        return "raw";
+    }
+
+    @Override
+    public EncodedDocIds encode(PostingsList postings) {
+        int[] docIds = new int[postings.size()];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = postings.getDocId(i);
+        }
+        return new Encoded(docIds);
+    }
+
+    @Override
+    public DocIdDecoder newDecoder() {
+        return new Decoder();
+    }
+
+    private static class Encoded implements EncodedDocIds {
+        public final int[] docIds;
+
+        public Encoded(int[] docIds) {
+            this.docIds = docIds;
+        }
+
+        @Override
+        public int size() {
+            return this.docIds.length;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 4L * this.docIds.length;
+        }
+    }
+
+    private static class Decoder implements DocIdDecoder {
+        private int[] docIds;
+        private int index;
+
+        @Override
+        public void reset(EncodedDocIds encoded) {
+            if (!(encoded instanceof Encoded)) {
+                throw new IllegalArgumentException("Doc ids were not encoded by RawCodec");
+            }
+            this.docIds = ((Encoded) encoded).docIds;
+            this.index = 0;
+        }
+
+        @Override
+        public int next() {
+            if (this.index == this.docIds.length) {
+                return NO_MORE_DOCS;
+            }
+            int docId = this.docIds[this.index];
+            this.index++;
+            return docId;
+        }
+
+        @Override
+        public int advance(int target) {
+            // Binary search for the first doc id >= target among those not yet returned.
+            int low = this.index;
+            int high = this.docIds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (this.docIds[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            this.index = low;
+            return this.next();
+        }
+
+        @Override
+        public int position() {
+            return this.index;
+        }
+    }
+}
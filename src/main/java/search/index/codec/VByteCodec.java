@@ -0,0 +1,154 @@
+package search.index.codec;
+
+import search.index.PostingsList;
+
+/**
+ * Stores the gaps between consecutive doc ids using variable-byte encoding.
+ *
+ * Each gap is split into 7-bit groups, lowest group first, one group per byte.
+ * The high bit of a byte is set on the last byte of each gap. Since most gaps in
+ * the postings of common terms are small, most take a single byte.
+ *
+ * Gaps can only be decoded from the start, so every SKIP_INTERVAL doc ids we also
+ * store where the next one's bytes start and the doc id before it. Skipping ahead
+ * (see DocIdDecoder.advance) can then jump straight to the last such point before
+ * the target, at the cost of 8 bytes per SKIP_INTERVAL doc ids.
+ */
+public class VByteCodec implements PostingsCodec {
+    public static final int SKIP_INTERVAL = 128;
+
+    @Override
+    public String getName() {
+        return "vbyte";
+    }
+
+    @Override
+    public EncodedDocIds encode(PostingsList postings) {
+        // A gap takes at most 5 bytes; we trim the array once we know the real length.
+        byte[] bytes = new byte[5 * postings.size()];
+        int numSkips = postings.size() == 0 ? 0 : (postings.size() - 1) / SKIP_INTERVAL;
+        int[] skipDocIds = new int[numSkips];
+        int[] skipPositions = new int[numSkips];
+        int length = 0;
+        int previous = 0;
+        for (int i = 0; i < postings.size(); i++) {
+            if (i > 0 && i % SKIP_INTERVAL == 0) {
+                skipDocIds[i / SKIP_INTERVAL - 1] = previous;
+                skipPositions[i / SKIP_INTERVAL - 1] = length;
+            }
+            int gap = postings.getDocId(i) - previous;
+            previous = postings.getDocId(i);
+            while (gap >= 0x80) {
+                bytes[length] = (byte) (gap & 0x7F);
+                length++;
+                gap >>>= 7;
+            }
+            bytes[length] = (byte) (gap | 0x80);
+            length++;
+        }
+        byte[] trimmed = new byte[length];
+        System.arraycopy(bytes, 0, trimmed, 0, length);
+        return new Encoded(trimmed, postings.size(), skipDocIds, skipPositions);
+    }
+
+    @Override
+    public DocIdDecoder newDecoder() {
+        return new Decoder();
+    }
+
+    private static class Encoded implements EncodedDocIds {
+        public final byte[] bytes;
+        public final int size;
+
+        // skipPositions[s] is where the bytes of doc id number (s + 1) * SKIP_INTERVAL
+        // start, and skipDocIds[s] is the doc id just before it.
+        public final int[] skipDocIds;
+        public final int[] skipPositions;
+
+        public Encoded(byte[] bytes, int size, int[] skipDocIds, int[] skipPositions) {
+            this.bytes = bytes;
+            this.size = size;
+            this.skipDocIds = skipDocIds;
+            this.skipPositions = skipPositions;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return this.bytes.length + 8L * this.skipDocIds.length;
+        }
+    }
+
+    private static class Decoder implements DocIdDecoder {
+        private Encoded encoded;
+        private byte[] bytes;
+        private int position;
+        private int docId;
+        private int index;
+
+        @Override
+        public void reset(EncodedDocIds encoded) {
+            if (!(encoded instanceof Encoded)) {
+                throw new IllegalArgumentException("Doc ids were not encoded by VByteCodec");
+            }
+            this.encoded = (Encoded) encoded;
+            this.bytes = this.encoded.bytes;
+            this.position = 0;
+            this.docId = 0;
+            this.index = 0;
+        }
+
+        @Override
+        public int next() {
+            if (this.position == this.bytes.length) {
+                return NO_MORE_DOCS;
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b = this.bytes[this.position];
+            this.position++;
+            while (b >= 0) {
+                gap |= b << shift;
+                shift += 7;
+                b = this.bytes[this.position];
+                this.position++;
+            }
+            gap |= (b & 0x7F) << shift;
+            this.docId += gap;
+            this.index++;
+            return this.docId;
+        }
+
+        @Override
+        public int advance(int target) {
+            // Jump to the last skip point we haven't passed yet whose doc id before it is
+            // still below the target.
+            int skip = -1;
+            for (int s = this.index / SKIP_INTERVAL; s < this.encoded.skipDocIds.length; s++) {
+                if (this.encoded.skipDocIds[s] >= target) {
+                    break;
+                }
+                skip = s;
+            }
+            if (skip >= 0 && (skip + 1) * SKIP_INTERVAL > this.index) {
+                this.position = this.encoded.skipPositions[skip];
+                this.docId = this.encoded.skipDocIds[skip];
+                this.index = (skip + 1) * SKIP_INTERVAL;
+            }
+            int next = this.next();
+            while (next < target) {
+                next = this.next();
+            }
+            return next;
+        }
+
+        @Override
+        public int position() {
+            return this.index;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package search.scoring;
+
+/**
+ * Scores documents with Okapi BM25. A term that appears c times in a document of
+ * length len contributes
+ *
+ *     idf * c * (k1 + 1) / (c + k1 * (1 - b + b * len / averageLength))
+ *
+ * for every time it appears in the query, where idf = ln(1 + (N - df + 0.5) / (df + 0.5)).
+ * Unlike with TF-IDF, repeating a word in a document quickly stops helping it, and
+ * long documents are penalized for having more chances to contain any given word.
+ *
+ * As with every scorer, the query's weights are scaled to unit length, so the scores
+ * are the usual BM25 scores divided by the length of the vector of query word counts.
+ */
+public class Bm25Scorer implements Scorer {
+    public static final double DEFAULT_K1 = 1.2;
+    public static final double DEFAULT_B = 0.75;
+
+    private double k1;
+    private double b;
+
+    public Bm25Scorer() {
+        this(DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * @throws IllegalArgumentException  if k1 <= 0, or b is not between 0 and 1
+     */
+    public Bm25Scorer(double k1, double b) {
+        if (!(k1 > 0.0)) {
+            throw new IllegalArgumentException("k1 must be positive, got " + k1);
+        }
+        if (!(b >= 0.0 && b <= 1.0)) {
+            throw new IllegalArgumentException("b must be between 0 and 1, got " + b);
+        }
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    @Override
+    public boolean requires(Statistic statistic) {
+        return true;
+    }
+
+    @Override
+    public double idf(int documentFrequency, int numDocuments) {
+        return Math.log(1.0 + (numDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    @Override
+    public double documentWeight(double tf, int length, double averageLength) {
+        double count = tf * length;
+        return count * (this.k1 + 1.0) / (count + this.lengthNorm(length, averageLength));
+    }
+
+    @Override
+    public double termFrequency(double documentWeight, int length, double averageLength) {
+        // Solving the formula above for the count. The count is a whole number, so we
+        // round away whatever error the division introduced.
+        double count = documentWeight * this.lengthNorm(length, averageLength) / (this.k1 + 1.0 - documentWeight);
+        return Math.rint(count) / length;
+    }
+
+    private double lengthNorm(int length, double averageLength) {
+        return this.k1 * (1.0 - this.b + this.b * length / averageLength);
+    }
+
+    @Override
+    public double queryWeight(int count, int length, double idf) {
+        return count;
+    }
+
+    @Override
+    public boolean countsRepeatedWords() {
+        return false;
+    }
+
+    @Override
+    public boolean normalizesDocuments() {
+        return false;
+    }
+}
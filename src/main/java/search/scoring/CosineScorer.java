@@ -0,0 +1,42 @@
+package search.scoring;
+
+/**
+ * Scores documents by the cosine similarity of their TF-IDF vector and the query's.
+ * This is the scorer the search engine uses by default.
+ */
+public class CosineScorer implements Scorer {
+    @Override
+    public boolean requires(Statistic statistic) {
+        return statistic != Statistic.DOCUMENT_LENGTH;
+    }
+
+    @Override
+    public double idf(int documentFrequency, int numDocuments) {
+        return Math.log((double) numDocuments / documentFrequency);
+    }
+
+    @Override
+    public double documentWeight(double tf, int length, double averageLength) {
+        return tf;
+    }
+
+    @Override
+    public double termFrequency(double documentWeight, int length, double averageLength) {
+        return documentWeight;
+    }
+
+    @Override
+    public double queryWeight(int count, int length, double idf) {
+        return (double) count / length * idf;
+    }
+
+    @Override
+    public boolean countsRepeatedWords() {
+        return true;
+    }
+
+    @Override
+    public boolean normalizesDocuments() {
+        return true;
+    }
+}
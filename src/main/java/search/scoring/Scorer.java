@@ -0,0 +1,91 @@
+package search.scoring;
+
+/**
+ * Decides how documents are scored against a query.
+ *
+ * Every scorer scores a document the same basic way, as
+ *
+ *     boost[docId] * sum(queryWeight * idf * documentWeight for each term in the query)
+ *
+ * and only gets to decide how each of those numbers is computed. That's what lets
+ * every QueryEvaluator work with every scorer: the scorer is only consulted while
+ * the index is built and while queries are compiled, so the postings hold each
+ * term's final weight and the evaluators' inner loops never call back into it.
+ *
+ * The query's weights are always scaled to unit length afterwards. That multiplies
+ * every document's score by the same amount, so it doesn't change the ranking, but
+ * it does let the evaluators bound scores the same way whatever the scorer. Then,
+ * if the scorer asks for it (see 'countsRepeatedWords'), each term's weight is
+ * multiplied by the number of times it appears in the query.
+ *
+ * A scorer declares which statistics it needs (see 'requires'). The index only
+ * computes and passes in the ones it asks for: anything else is given as a neutral
+ * placeholder value. Term frequencies are always available.
+ */
+public interface Scorer {
+    /**
+     * The statistics a scorer may depend on, besides term frequencies.
+     */
+    enum Statistic {
+        // How many documents contain each term, and how many documents there are.
+        DOCUMENT_FREQUENCY,
+
+        // How many words there are in each document, and on average.
+        DOCUMENT_LENGTH,
+
+        // Each document's page rank.
+        STATIC_RANK,
+    }
+
+    /**
+     * Returns 'true' if this scorer depends on the given statistic.
+     */
+    boolean requires(Statistic statistic);
+
+    /**
+     * Returns the weight of a term that appears in the given number of documents,
+     * out of the given total. If this scorer doesn't require DOCUMENT_FREQUENCY, this
+     * is never called and every term's weight is 1.
+     *
+     * Precondition: 0 < documentFrequency <= numDocuments
+     */
+    double idf(int documentFrequency, int numDocuments);
+
+    /**
+     * Returns the weight of a term within a document, not counting its idf: 'tf' is
+     * the number of times the term appears in the document divided by the document's
+     * length. If this scorer doesn't require DOCUMENT_LENGTH, the length and average
+     * length are both 0.
+     *
+     * Precondition: tf > 0, and length > 0 if this scorer requires DOCUMENT_LENGTH
+     */
+    double documentWeight(double tf, int length, double averageLength);
+
+    /**
+     * Returns the tf that 'documentWeight' turns into the given weight: the index
+     * stores document weights, and uses this to get the term frequencies back when
+     * it needs to re-index a document.
+     */
+    double termFrequency(double documentWeight, int length, double averageLength);
+
+    /**
+     * Returns the weight of a term that appears 'count' times in a query of the given
+     * length, where the term has the given idf. The query's weights are scaled to unit
+     * length afterwards.
+     */
+    double queryWeight(int count, int length, double idf);
+
+    /**
+     * Returns 'true' if a term that appears 'count' times in a query should add its
+     * share of the score 'count' times over (so its unit-length weight is multiplied
+     * by 'count', without changing the norm), and 'false' if 'queryWeight' already
+     * accounts for repeats.
+     */
+    boolean countsRepeatedWords();
+
+    /**
+     * Returns 'true' if a document's weights should be divided by their norm (so the
+     * score is a cosine similarity), and 'false' if they should be used as is.
+     */
+    boolean normalizesDocuments();
+}
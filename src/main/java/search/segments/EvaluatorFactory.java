@@ -0,0 +1,16 @@
+package search.segments;
+
+import search.index.DocumentStats;
+import search.index.InvertedIndex;
+import search.index.QueryEvaluator;
+
+/**
+ * Makes the evaluator used to search a segment.
+ */
+public interface EvaluatorFactory {
+    /**
+     * Returns an evaluator over the given index, whose documents have the given
+     * statistics.
+     */
+    QueryEvaluator create(InvertedIndex index, DocumentStats stats);
+}
@@ -0,0 +1,21 @@
+package search.segments;
+
+import datastructures.interfaces.IList;
+
+/**
+ * Decides which segments of a SegmentedIndex to merge together.
+ *
+ * Merging segments drops their deleted documents and re-weighs the rest with the
+ * current IDF scores, at the cost of re-indexing every document in them. A good
+ * policy keeps the number of segments a query has to search small, without merging
+ * the same documents over and over.
+ */
+public interface MergePolicy {
+    /**
+     * Returns the merges to run: each is a list of the segments to merge into one.
+     * Every segment given may be included in at most one merge.
+     *
+     * The given segments exclude any already being merged.
+     */
+    IList<IList<Segment>> findMerges(IList<Segment> segments);
+}
@@ -0,0 +1,170 @@
+package search.segments;
+
+import search.analyzers.TfIdfAnalyzer;
+import search.index.DocumentRegistry;
+import search.index.DocumentStats;
+import search.index.QueryEvaluator;
+import search.scoring.Scorer;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * An immutable index over some of the documents of a SegmentedIndex.
+ *
+ * A segment numbers its documents with its own local doc ids, 0 through size() - 1,
+ * in the same order as their global doc ids, so evaluators can work on it exactly as
+ * they would on a standalone index. Nothing about a segment changes after it is built,
+ * except that its documents can be marked deleted: a deleted document stays in the
+ * index, and is filtered out of results, until the segment is merged away.
+ */
+public class Segment {
+    private TfIdfAnalyzer analyzer;
+
+    // Maps each local doc id to the document's URI.
+    private DocumentRegistry registry;
+
+    // The global doc id of each local doc id, in increasing order.
+    private int[] globalDocIds;
+
+    // The norm, boost, and (if the scorer requires them) length and page rank of each
+    // document, by local doc id.
+    private DocumentStats stats;
+
+    // The documents marked deleted. Guarded by 'this'.
+    private BitSet deleted;
+    private volatile int numDeleted;
+
+    private volatile QueryEvaluator evaluator;
+
+    /**
+     * Builds a segment over the documents in the given analyzer.
+     *
+     * Precondition: the registry must assign the analyzer's documents their local doc
+     *               ids, and the global doc ids must be in increasing order.
+     */
+    Segment(TfIdfAnalyzer analyzer, DocumentRegistry registry, int[] globalDocIds, IntToDoubleFunction pageRanks) {
+        this.analyzer = analyzer;
+        this.registry = registry;
+        this.globalDocIds = globalDocIds;
+        this.deleted = new BitSet(globalDocIds.length);
+        this.numDeleted = 0;
+
+        // Only gather the statistics the scorer will actually use.
+        Scorer scorer = analyzer.getScorer();
+        int[] lengths = null;
+        if (scorer.requires(Scorer.Statistic.DOCUMENT_LENGTH)) {
+            lengths = new int[globalDocIds.length];
+            for (int docId = 0; docId < globalDocIds.length; docId++) {
+                lengths[docId] = analyzer.getDocumentLength(docId);
+            }
+        }
+        double[] localPageRanks = null;
+        if (scorer.requires(Scorer.Statistic.STATIC_RANK)) {
+            localPageRanks = new double[globalDocIds.length];
+            for (int docId = 0; docId < globalDocIds.length; docId++) {
+                localPageRanks[docId] = pageRanks.applyAsDouble(globalDocIds[docId]);
+            }
+        }
+        this.stats = new DocumentStats(analyzer.getIndex(), lengths, localPageRanks, scorer);
+    }
+
+    /**
+     * Returns the number of documents in this segment, including deleted ones.
+     */
+    public int size() {
+        return this.globalDocIds.length;
+    }
+
+    /**
+     * Returns the number of documents in this segment marked deleted.
+     */
+    public int numDeleted() {
+        return this.numDeleted;
+    }
+
+    /**
+     * Returns the number of documents in this segment not marked deleted.
+     */
+    public int numLive() {
+        return this.size() - this.numDeleted;
+    }
+
+    /**
+     * Returns the local doc id of the document with the given global doc id, or -1 if
+     * it isn't in this segment.
+     */
+    public int getLocalDocId(int globalDocId) {
+        int docId = Arrays.binarySearch(this.globalDocIds, globalDocId);
+        return docId < 0 ? -1 : docId;
+    }
+
+    /**
+     * Returns the global doc id of the document with the given local doc id.
+     */
+    public int getGlobalDocId(int docId) {
+        return this.globalDocIds[docId];
+    }
+
+    /**
+     * Returns the URI of the document with the given local doc id.
+     */
+    public URI getUri(int docId) {
+        return this.registry.getUri(docId);
+    }
+
+    /**
+     * Returns 'true' if the document with the given local doc id is marked deleted.
+     */
+    public synchronized boolean isDeleted(int docId) {
+        return this.deleted.get(docId);
+    }
+
+    /**
+     * Returns a copy of the set of local doc ids marked deleted.
+     */
+    public synchronized BitSet getDeletedDocs() {
+        return (BitSet) this.deleted.clone();
+    }
+
+    /**
+     * Marks the document with the given local doc id deleted. Returns 'false' if it
+     * already was.
+     */
+    synchronized boolean delete(int docId) {
+        if (this.deleted.get(docId)) {
+            return false;
+        }
+        this.deleted.set(docId);
+        this.numDeleted++;
+        return true;
+    }
+
+    /**
+     * Returns the analyzer holding this segment's vocabulary, term frequencies, and
+     * inverted index.
+     */
+    public TfIdfAnalyzer getAnalyzer() {
+        return this.analyzer;
+    }
+
+    /**
+     * Returns the norm, length, page rank, and boost of each document, by local doc id.
+     */
+    public DocumentStats getDocumentStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the evaluator used to search this segment.
+     */
+    public QueryEvaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    void setEvaluator(QueryEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+}
@@ -0,0 +1,433 @@
+package search.segments;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.CollectionStatistics;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TfIdfIndexBuilder;
+import search.index.DocumentRegistry;
+import search.index.QueryEvaluator;
+import search.index.ScoredDocument;
+import search.index.TopKCollector;
+import search.index.WeightedQuery;
+import search.index.codec.PostingsCodec;
+import search.models.Webpage;
+import search.scoring.Scorer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * An index that can have documents added and removed without being rebuilt.
+ *
+ * The index is split into segments (see Segment), each an immutable index over some of
+ * the documents. Adding documents builds a new, small segment out of just them. Removing
+ * a document marks it deleted in its segment. Searching searches every segment and
+ * combines the results.
+ *
+ * To keep the number of segments down, and to reclaim the space of deleted documents,
+ * the merge policy picks segments to merge together. Merges run in the background, on
+ * the given executor: a merge builds the merged segment while queries carry on against
+ * the old ones, then swaps it in.
+ *
+ * The IDF scores are approximate. The index keeps exact statistics of how many
+ * documents contain each word, but a segment's weights are only computed from them
+ * when it is built. Scores in older segments drift as documents come and go, and are
+ * brought up to date whenever the segment is merged.
+ *
+ * Every change to the index (including a merge) increments its generation.
+ *
+ * Every method is thread-safe, and searches never wait for a change or merge to finish.
+ */
+public class SegmentedIndex {
+    private CollectionStatistics statistics;
+    private Scorer scorer;
+    private PostingsCodec codec;
+    private IntToDoubleFunction pageRanks;
+    private MergePolicy mergePolicy;
+    private Executor mergeExecutor;
+
+    // Everything below is guarded by 'this', though searches read 'segments' without
+    // locking: it's replaced, never modified.
+    private volatile EvaluatorFactory evaluatorFactory;
+    private volatile Segment[] segments;
+    private volatile long generation;
+    private ISet<Segment> merging;
+    private int numPendingMerges;
+
+    /**
+     * Constructs an index whose first segment holds the documents of the given
+     * analyzer, whose doc ids are their global doc ids.
+     *
+     * The page ranks of documents, by global doc id, are looked up as each segment is
+     * built. Every segment is weighted with the initial analyzer's scorer, and its
+     * postings compressed with the same codec as the initial analyzer's (if any).
+     *
+     * Precondition: the analyzer's IDF scores must have been computed from exactly its
+     *               own documents.
+     */
+    public SegmentedIndex(
+            TfIdfAnalyzer initial,
+            DocumentRegistry registry,
+            IntToDoubleFunction pageRanks,
+            EvaluatorFactory evaluatorFactory,
+            MergePolicy mergePolicy,
+            Executor mergeExecutor) {
+        this.statistics = new CollectionStatistics();
+        this.scorer = initial.getScorer();
+        this.codec = initial.getIndex().getCodec();
+        this.pageRanks = pageRanks;
+        this.evaluatorFactory = evaluatorFactory;
+        this.mergePolicy = mergePolicy;
+        this.mergeExecutor = mergeExecutor;
+        this.merging = new ChainedHashSet<>();
+        this.numPendingMerges = 0;
+        this.generation = 0;
+
+        int numDocuments = initial.getIndex().numDocuments();
+        int[] globalDocIds = new int[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            globalDocIds[docId] = docId;
+            this.statistics.addDocument(
+                    initial.getVocabulary(), initial.getTermFrequencies(docId), initial.getDocumentLength(docId));
+        }
+        Segment segment = new Segment(initial, registry, globalDocIds, pageRanks);
+        segment.setEvaluator(this.makeEvaluator(segment, evaluatorFactory));
+        this.segments = new Segment[] {segment};
+    }
+
+    /**
+     * Returns the index's current segments. The returned array must not be modified.
+     */
+    public Segment[] getSegments() {
+        return this.segments;
+    }
+
+    /**
+     * Returns the current generation of the index. Results computed against one
+     * generation of the index are not valid for any other generation.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Returns the statistics the IDF scores and average document length are computed
+     * from.
+     */
+    public CollectionStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Returns the number of documents in the index, not counting deleted ones.
+     */
+    public int numDocuments() {
+        int count = 0;
+        for (Segment segment : this.segments) {
+            count += segment.numLive();
+        }
+        return count;
+    }
+
+    /**
+     * Returns 'true' if the document with the given global doc id is in the index (and
+     * not deleted).
+     */
+    public boolean contains(int globalDocId) {
+        return this.findLive(this.segments, globalDocId) != null;
+    }
+
+    /**
+     * Returns the segment holding the live document with the given global doc id, or
+     * null if there is none.
+     */
+    public Segment getSegment(int globalDocId) {
+        return this.findLive(this.segments, globalDocId);
+    }
+
+    /**
+     * Adds the given webpages as a new segment, and returns it. If an earlier version of
+     * any of the webpages is in the index, it gets removed.
+     *
+     * Precondition: globalDocIds[i] must be the global doc id of pages[i], and no two
+     *               pages may share a doc id.
+     */
+    public synchronized Segment add(Webpage[] pages, int[] globalDocIds) {
+        if (pages.length != globalDocIds.length) {
+            throw new IllegalArgumentException("Need exactly one doc id per page");
+        }
+        for (int globalDocId : globalDocIds) {
+            this.deleteLive(globalDocId);
+        }
+
+        // Local doc ids are assigned in order of global doc id.
+        long[] order = new long[pages.length];
+        for (int i = 0; i < pages.length; i++) {
+            order[i] = ((long) globalDocIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.setCollectionStatistics(this.statistics);
+        builder.setScorer(this.scorer);
+        builder.setPostingsCodec(this.codec);
+        int[] segmentDocIds = new int[pages.length];
+        for (int docId = 0; docId < order.length; docId++) {
+            Webpage page = pages[(int) order[docId]];
+            segmentDocIds[docId] = (int) (order[docId] >>> 32);
+            registry.register(page.getUri());
+            this.statistics.addDocument(page.getWords());
+            builder.addPage(docId, page.getWords());
+        }
+
+        Segment segment = new Segment(builder.build(registry), registry, segmentDocIds, this.pageRanks);
+        segment.setEvaluator(this.makeEvaluator(segment, this.evaluatorFactory));
+
+        Segment[] newSegments = Arrays.copyOf(this.segments, this.segments.length + 1);
+        newSegments[this.segments.length] = segment;
+        this.segments = newSegments;
+        this.generation++;
+        this.maybeMerge();
+        return segment;
+    }
+
+    /**
+     * Removes the document with the given global doc id. Returns 'false' if it wasn't in
+     * the index.
+     */
+    public synchronized boolean delete(int globalDocId) {
+        if (!this.deleteLive(globalDocId)) {
+            return false;
+        }
+        this.generation++;
+        this.maybeMerge();
+        return true;
+    }
+
+    private boolean deleteLive(int globalDocId) {
+        Segment segment = this.findLive(this.segments, globalDocId);
+        if (segment == null) {
+            return false;
+        }
+        int docId = segment.getLocalDocId(globalDocId);
+        segment.delete(docId);
+        TfIdfAnalyzer analyzer = segment.getAnalyzer();
+        this.statistics.removeDocument(
+                analyzer.getVocabulary(), analyzer.getTermFrequencies(docId), analyzer.getDocumentLength(docId));
+        return true;
+    }
+
+    private Segment findLive(Segment[] segments, int globalDocId) {
+        for (Segment segment : segments) {
+            int docId = segment.getLocalDocId(globalDocId);
+            if (docId != -1 && !segment.isDeleted(docId)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the query vector for the given query, weighted with the IDF scores of the
+     * whole index. Resolve it against a segment's analyzer (see TfIdfAnalyzer.resolve)
+     * to score that segment's documents.
+     *
+     * Each segment only knows about its own words, so a query compiled by a segment's
+     * own analyzer leaves out the words it hasn't seen, and gives the others more weight
+     * than they have in the index as a whole.
+     */
+    public WeightedQuery weigh(IList<String> query) {
+        return TfIdfAnalyzer.weigh(query, this.statistics, this.scorer);
+    }
+
+    /**
+     * Finds the best documents in every segment for the given query, and offers them to
+     * the collector by global doc id.
+     */
+    public void evaluate(IList<String> query, TopKCollector collector) {
+        this.evaluate(this.weigh(query), collector);
+    }
+
+    /**
+     * Like the method above, for a query that has already been weighed (see 'weigh').
+     */
+    public void evaluate(WeightedQuery query, TopKCollector collector) {
+        for (Segment segment : this.segments) {
+            // We don't want the deleted documents, but the evaluator can't tell them
+            // apart. So we ask it for as many more documents as there are deleted ones:
+            // even if they're all in there, we're still left with the best k others.
+            BitSet deleted = segment.getDeletedDocs();
+            int numDeleted = deleted.cardinality();
+            if (numDeleted == segment.size()) {
+                continue;
+            }
+            TopKCollector segmentCollector = new TopKCollector(collector.getK() + numDeleted);
+            segment.getEvaluator().evaluate(segment.getAnalyzer().resolve(query), segmentCollector);
+            for (ScoredDocument doc : segmentCollector.drain()) {
+                if (!deleted.get(doc.getDocId())) {
+                    collector.collect(segment.getGlobalDocId(doc.getDocId()), doc.getScore());
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes every segment use evaluators from the given factory from now on. Since the
+     * new evaluators may score documents differently, this counts as a change to the
+     * index and increments its generation.
+     */
+    public synchronized void setEvaluatorFactory(EvaluatorFactory evaluatorFactory) {
+        this.evaluatorFactory = evaluatorFactory;
+        for (Segment segment : this.segments) {
+            segment.setEvaluator(this.makeEvaluator(segment, evaluatorFactory));
+        }
+        this.generation++;
+    }
+
+    /**
+     * Blocks until every merge started so far has finished.
+     */
+    public synchronized void waitForMerges() throws InterruptedException {
+        while (this.numPendingMerges > 0) {
+            this.wait();
+        }
+    }
+
+    /**
+     * Swaps the merged segment in for the segments it was built from.
+     */
+    private synchronized void commitMerge(
+            Segment[] sources, BitSet[] deletedAtStart, Segment merged, EvaluatorFactory factory) {
+        // Documents deleted while we were merging are still live in the merged segment.
+        for (int i = 0; i < sources.length; i++) {
+            BitSet deleted = sources[i].getDeletedDocs();
+            deleted.andNot(deletedAtStart[i]);
+            for (int docId = deleted.nextSetBit(0); docId >= 0; docId = deleted.nextSetBit(docId + 1)) {
+                merged.delete(merged.getLocalDocId(sources[i].getGlobalDocId(docId)));
+            }
+        }
+        if (factory != this.evaluatorFactory) {
+            merged.setEvaluator(this.makeEvaluator(merged, this.evaluatorFactory));
+        }
+
+        ISet<Segment> replaced = new ChainedHashSet<>();
+        for (Segment source : sources) {
+            replaced.add(source);
+        }
+        IList<Segment> newSegments = new DoubleLinkedList<>();
+        boolean added = merged.size() == 0;
+        for (Segment segment : this.segments) {
+            if (!replaced.contains(segment)) {
+                newSegments.add(segment);
+            } else if (!added) {
+                newSegments.add(merged);
+                added = true;
+            }
+        }
+        Segment[] output = new Segment[newSegments.size()];
+        int i = 0;
+        for (Segment segment : newSegments) {
+            output[i] = segment;
+            i++;
+        }
+        this.segments = output;
+        this.generation++;
+        this.maybeMerge();
+    }
+
+    private QueryEvaluator makeEvaluator(Segment segment, EvaluatorFactory factory) {
+        return factory.create(segment.getAnalyzer().getIndex(), segment.getDocumentStats());
+    }
+
+    private void maybeMerge() {
+        IList<Segment> candidates = new DoubleLinkedList<>();
+        for (Segment segment : this.segments) {
+            if (!this.merging.contains(segment)) {
+                candidates.add(segment);
+            }
+        }
+        IList<IList<Segment>> merges = this.mergePolicy.findMerges(candidates);
+        for (IList<Segment> merge : merges) {
+            for (Segment segment : merge) {
+                this.merging.add(segment);
+            }
+            this.numPendingMerges++;
+        }
+        for (IList<Segment> merge : merges) {
+            this.mergeExecutor.execute(() -> this.merge(merge));
+        }
+    }
+
+    /**
+     * Merges the given segments into one, dropping their deleted documents, then swaps
+     * it in for them.
+     */
+    private void merge(IList<Segment> sources) {
+        try {
+            Segment[] sourceArray = new Segment[sources.size()];
+            BitSet[] deletedAtStart = new BitSet[sources.size()];
+            EvaluatorFactory factory = this.evaluatorFactory;
+            int numDocuments = 0;
+            int i = 0;
+            for (Segment segment : sources) {
+                sourceArray[i] = segment;
+                deletedAtStart[i] = segment.getDeletedDocs();
+                numDocuments += segment.size() - deletedAtStart[i].cardinality();
+                i++;
+            }
+
+            // Collect the live documents in order of global doc id, packing each one's
+            // global doc id with its position in 'sourceIndexes' and 'sourceDocIds'.
+            long[] order = new long[numDocuments];
+            int[] sourceIndexes = new int[numDocuments];
+            int[] sourceDocIds = new int[numDocuments];
+            int next = 0;
+            for (i = 0; i < sourceArray.length; i++) {
+                for (int docId = 0; docId < sourceArray[i].size(); docId++) {
+                    if (!deletedAtStart[i].get(docId)) {
+                        order[next] = ((long) sourceArray[i].getGlobalDocId(docId) << 32) | next;
+                        sourceIndexes[next] = i;
+                        sourceDocIds[next] = docId;
+                        next++;
+                    }
+                }
+            }
+            Arrays.sort(order);
+
+            DocumentRegistry registry = new DocumentRegistry();
+            TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+            builder.setCollectionStatistics(this.statistics);
+            builder.setScorer(this.scorer);
+            builder.setPostingsCodec(this.codec);
+            int[] globalDocIds = new int[numDocuments];
+            for (int docId = 0; docId < numDocuments; docId++) {
+                int position = (int) order[docId];
+                Segment source = sourceArray[sourceIndexes[position]];
+                int sourceDocId = sourceDocIds[position];
+                TfIdfAnalyzer analyzer = source.getAnalyzer();
+                globalDocIds[docId] = (int) (order[docId] >>> 32);
+                registry.register(source.getUri(sourceDocId));
+                builder.addPage(docId, analyzer.getVocabulary(), analyzer.getTermFrequencies(sourceDocId),
+                        analyzer.getDocumentLength(sourceDocId));
+            }
+
+            Segment merged = new Segment(builder.build(registry), registry, globalDocIds, this.pageRanks);
+            merged.setEvaluator(this.makeEvaluator(merged, factory));
+            this.commitMerge(sourceArray, deletedAtStart, merged, factory);
+        } finally {
+            synchronized (this) {
+                for (Segment segment : sources) {
+                    this.merging.remove(segment);
+                }
+                this.numPendingMerges--;
+                this.notifyAll();
+            }
+        }
+    }
+}
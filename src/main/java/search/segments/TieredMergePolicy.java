@@ -0,0 +1,82 @@
+package search.segments;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+
+/**
+ * Groups segments into tiers by size, and merges a tier once it holds enough segments.
+ *
+ * A segment with n live documents is in tier floor(log(n) / log(segmentsPerTier)):
+ * so with 10 segments per tier, segments with 1-9 documents are in tier 0, 10-99 in
+ * tier 1, and so on. Once a tier holds segmentsPerTier segments, they get merged into
+ * a single segment one tier up. Each document is therefore only re-indexed once per
+ * tier, so a document is re-indexed O(log n) times over the life of an index of n
+ * documents.
+ *
+ * Separately, any segment in which more than maxDeletedFraction of the documents are
+ * marked deleted is merged on its own, to reclaim the space and stop searching them.
+ */
+public class TieredMergePolicy implements MergePolicy {
+    public static final int DEFAULT_SEGMENTS_PER_TIER = 10;
+    public static final double DEFAULT_MAX_DELETED_FRACTION = 0.2;
+
+    private int segmentsPerTier;
+    private double maxDeletedFraction;
+
+    public TieredMergePolicy() {
+        this(DEFAULT_SEGMENTS_PER_TIER, DEFAULT_MAX_DELETED_FRACTION);
+    }
+
+    /**
+     * @throws IllegalArgumentException  if segmentsPerTier < 2, or maxDeletedFraction is
+     *                                   not between 0 and 1
+     */
+    public TieredMergePolicy(int segmentsPerTier, double maxDeletedFraction) {
+        if (segmentsPerTier < 2) {
+            throw new IllegalArgumentException("Need at least 2 segments per tier, got " + segmentsPerTier);
+        }
+        if (!(maxDeletedFraction >= 0.0 && maxDeletedFraction <= 1.0)) {
+            throw new IllegalArgumentException("Deleted fraction must be between 0 and 1, got " + maxDeletedFraction);
+        }
+        this.segmentsPerTier = segmentsPerTier;
+        this.maxDeletedFraction = maxDeletedFraction;
+    }
+
+    @Override
+    public IList<IList<Segment>> findMerges(IList<Segment> segments) {
+        IDictionary<Integer, IList<Segment>> tiers = new ChainedHashDictionary<>();
+        IList<IList<Segment>> merges = new DoubleLinkedList<>();
+        for (Segment segment : segments) {
+            if (segment.numDeleted() > this.maxDeletedFraction * segment.size()) {
+                IList<Segment> merge = new DoubleLinkedList<>();
+                merge.add(segment);
+                merges.add(merge);
+                continue;
+            }
+
+            int tier = this.getTier(segment.numLive());
+            if (!tiers.containsKey(tier)) {
+                tiers.put(tier, new DoubleLinkedList<>());
+            }
+            IList<Segment> tierSegments = tiers.get(tier);
+            tierSegments.add(segment);
+            if (tierSegments.size() == this.segmentsPerTier) {
+                merges.add(tierSegments);
+                tiers.put(tier, new DoubleLinkedList<>());
+            }
+        }
+        return merges;
+    }
+
+    private int getTier(int numLive) {
+        int tier = 0;
+        long limit = this.segmentsPerTier;
+        while (numLive >= limit) {
+            tier++;
+            limit *= this.segmentsPerTier;
+        }
+        return tier;
+    }
+}
@@ -0,0 +1,171 @@
+package datastructures.dictionaries;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.StringDoubleDictionary;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * StringDoubleDictionary only holds strings and doubles, so it can't reuse the
+ * generic tests in TestDictionary; these cover the same ground.
+ */
+public class TestStringDoubleDictionary extends BaseTest {
+    public static final double DELTA = 0.0;
+
+    @Test(timeout=SECOND)
+    public void testPutAndGetBasic() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        dict.put("a", 1.0);
+        dict.put("b", 2.0);
+        dict.put("c", 3.0);
+
+        assertEquals(3, dict.size());
+        assertEquals(1.0, dict.get("a"), DELTA);
+        assertEquals(2.0, dict.getDouble("b"), DELTA);
+        assertEquals(3.0, dict.getOrDefault("c", -1.0), DELTA);
+        assertEquals(-1.0, dict.getOrDefault("d", -1.0), DELTA);
+        assertEquals(null, dict.getOrDefault("d", (Double) null));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPutSameKeyReplaces() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        dict.put("a", 1.0);
+        dict.put("a", 5.0);
+        assertEquals(1, dict.size());
+        assertEquals(5.0, dict.get("a"), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testNullKey() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        assertFalse(dict.containsKey(null));
+        dict.put(null, 4.0);
+        dict.put("a", 1.0);
+        assertTrue(dict.containsKey(null));
+        assertEquals(2, dict.size());
+        assertEquals(4.0, dict.get(null), DELTA);
+
+        int count = 0;
+        int nullKeys = 0;
+        for (KVPair<String, Double> pair : dict) {
+            count++;
+            if (pair.getKey() == null) {
+                nullKeys++;
+            }
+        }
+        assertEquals(2, count);
+        assertEquals(1, nullKeys);
+
+        assertEquals(4.0, dict.remove(null), DELTA);
+        assertFalse(dict.containsKey(null));
+        assertEquals(1, dict.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNullValueRejected() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        try {
+            dict.put("a", (Double) null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testMissingKeys() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        dict.put("a", 1.0);
+        try {
+            dict.get("b");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // All ok -- expected result
+        }
+        try {
+            dict.remove("b");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // All ok -- expected result
+        }
+        try {
+            dict.get(null);
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIteratorExhausted() {
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        dict.put("a", 1.0);
+        Iterator<KVPair<String, Double>> iter = dict.iterator();
+        assertTrue(iter.hasNext());
+        assertEquals("a", iter.next().getKey());
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesHashMapUnderRandomOperations() {
+        // Keys drawn from a small range, so we get plenty of collisions, replacements and
+        // removals from the middle of probe runs.
+        Random rand = new Random(3);
+        StringDoubleDictionary dict = new StringDoubleDictionary();
+        Map<String, Double> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            String key = "k" + rand.nextInt(500);
+            int op = rand.nextInt(3);
+            if (op == 0) {
+                double value = rand.nextDouble();
+                dict.put(key, value);
+                expected.put(key, value);
+            } else if (op == 1 && expected.containsKey(key)) {
+                assertEquals(expected.remove(key), dict.remove(key), DELTA);
+            } else {
+                assertEquals(expected.containsKey(key), dict.containsKey(key));
+            }
+            assertEquals(expected.size(), dict.size());
+        }
+
+        Map<String, Double> seen = new HashMap<>();
+        for (KVPair<String, Double> pair : dict) {
+            seen.put(pair.getKey(), pair.getValue());
+        }
+        assertEquals(expected, seen);
+
+        Map<String, Double> visited = new HashMap<>();
+        dict.forEachEntry(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testManyKeys() {
+        StringDoubleDictionary dict = new StringDoubleDictionary(10);
+        for (int i = 0; i < 100000; i++) {
+            dict.put("key" + i, i);
+        }
+        assertEquals(100000, dict.size());
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, dict.getDouble("key" + i), DELTA);
+        }
+    }
+}
@@ -120,6 +120,16 @@ public class TestArrayHeapFunctionality extends BaseTest {
         }
        
     }
+
+    @Test(timeout=SECOND)
+    public void testInsertAfterRemovingLastItem() {
+        IPriorityQueue<Integer> heap = this.makeInstance();
+        heap.insert(1);
+        assertEquals(1, heap.removeMin());
+        heap.insert(2);
+        assertEquals(1, heap.size());
+        assertEquals(2, heap.peekMin());
+    }
     
     //TO DO: TEST RESIZE
     
@@ -0,0 +1,108 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.DenseRelevanceScorer;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.CompiledQuery;
+import search.index.DotProductKernel;
+import search.index.ScalarDotProductKernel;
+import search.index.UnrolledDotProductKernel;
+import search.index.VectorDotProductKernel;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+public class TestDenseRelevanceScorer extends BaseTest {
+    private static final DotProductKernel[] KERNELS = {
+        new ScalarDotProductKernel(),
+        new UnrolledDotProductKernel(),
+        DotProductKernel.fastest(),
+    };
+
+    private static IList<String> query(String... words) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : words) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    @Test(timeout=SECOND)
+    public void testKernelsComputeDotProducts() {
+        Random rand = new Random(1);
+        for (int length = 0; length <= 19; length++) {
+            int stride = length + rand.nextInt(4);
+            int numRows = 1 + rand.nextInt(10);
+            float[] vector = new float[stride];
+            float[] block = new float[numRows * stride];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = rand.nextFloat() - 0.5f;
+            }
+            for (int i = 0; i < block.length; i++) {
+                block[i] = rand.nextFloat() - 0.5f;
+            }
+
+            for (DotProductKernel kernel : KERNELS) {
+                float[] output = new float[numRows];
+                kernel.dotProducts(vector, block, length, stride, numRows, output);
+                for (int row = 0; row < numRows; row++) {
+                    double expected = 0.0;
+                    for (int i = 0; i < length; i++) {
+                        expected += (double) vector[i] * block[row * stride + i];
+                    }
+                    assertEquals(expected, output[row], 1e-5);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testFastestUsesVectorApiIfAvailable() {
+        boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(available, DotProductKernel.fastest() instanceof VectorDotProductKernel);
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesComputeRelevance() {
+        Random rand = new Random(2);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = 1 + rand.nextInt(30);
+            for (int j = 0; j < numWords; j++) {
+                words.add("w" + rand.nextInt(1 + rand.nextInt(50)));
+            }
+            pages.add(new Webpage(URI.create("http://example.com/page-" + i + ".html"),
+                    new DoubleLinkedList<>(), words, "title " + i, "blurb " + i));
+        }
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(pages);
+
+        int[] docIds = new int[100];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = i;
+        }
+
+        IList<IList<String>> queries = new DoubleLinkedList<>();
+        queries.add(query("w0"));
+        queries.add(query("w1", "w2", "w3"));
+        queries.add(query("w4", "w5", "w6", "w7", "w8", "w9", "w10", "w11", "w12", "w45"));
+        queries.add(query("unknown"));
+        for (DotProductKernel kernel : KERNELS) {
+            DenseRelevanceScorer scorer = new DenseRelevanceScorer(analyzer, kernel);
+            for (IList<String> words : queries) {
+                CompiledQuery query = analyzer.compile(words);
+                double[] actual = scorer.computeRelevance(query, docIds);
+                for (int i = 0; i < docIds.length; i++) {
+                    double expected = analyzer.computeRelevance(query, docIds[i]);
+                    assertEquals(expected, actual[i], 1e-5 * Math.max(1.0, expected));
+                }
+            }
+        }
+    }
+}
@@ -6,10 +6,26 @@ import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 import misc.BaseTest;
 import org.junit.Test;
+import search.analyzers.AdaptivePageRankSolver;
+import search.analyzers.GaussSeidelPageRankSolver;
+import search.analyzers.LinkGraph;
 import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PageRankSnapshot;
+import search.analyzers.PageRankSolver;
+import search.analyzers.ParallelPageRankSolver;
+import search.analyzers.SolverStatistics;
+import search.index.DocumentRegistry;
 import search.models.Webpage;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestPageRankAnalyzer extends BaseTest {
     // We say two floating point numbers are equal if they're within
@@ -92,4 +108,288 @@ public class TestPageRankAnalyzer extends BaseTest {
         assertEquals(0.05244, analyzer.computePageRank(pageEUri), DELTA);
     }
 
+    /**
+     * Builds a random graph where about one page in 'danglingOneIn' has no links.
+     */
+    private ISet<Webpage> makeRandomPages(long seed, int numPages, int danglingOneIn) {
+        Random rand = new Random(seed);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            int numLinks = rand.nextInt(danglingOneIn) == 0 ? 0 : 1 + rand.nextInt(5);
+            URI[] links = new URI[numLinks];
+            for (int j = 0; j < numLinks; j++) {
+                links[j] = URI.create("http://example.com/page-" + rand.nextInt(numPages) + ".html");
+            }
+            pages.add(this.buildPage(URI.create("http://example.com/page-" + i + ".html"), links));
+        }
+        return pages;
+    }
+
+    @Test(timeout=SECOND)
+    public void testParallelSolverMatchesSequential() {
+        ISet<Webpage> pages = this.makeRandomPages(1, 2000, 5);
+        LinkGraph graph = LinkGraph.of(pages, DocumentRegistry.of(pages));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] sequential = new ParallelPageRankSolver(1, 1, pool).solve(graph, 0.85, 1e-6, 100);
+            double[] parallel = new ParallelPageRankSolver(7, 1, pool).solve(graph, 0.85, 1e-6, 100);
+            double total = 0.0;
+            for (int node = 0; node < graph.numNodes(); node++) {
+                // Each node's rank is summed the same way however the nodes are split up.
+                assertEquals(sequential[node], parallel[node], 0.0);
+                total += parallel[node];
+            }
+            assertEquals(1.0, total, DELTA);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes page ranks straight from the definition: every page with no links
+     * hands a share of its rank to every page, one page at a time.
+     */
+    private double[] bruteForcePageRanks(LinkGraph graph, double decay, double epsilon, int limit) {
+        int n = graph.numNodes();
+        double[] rank = new double[n];
+        for (int page = 0; page < n; page++) {
+            rank[page] = 1.0 / n;
+        }
+        for (int i = 0; i < limit; i++) {
+            double[] next = new double[n];
+            for (int page = 0; page < n; page++) {
+                next[page] = (1 - decay) / n;
+            }
+            for (int page = 0; page < n; page++) {
+                if (graph.outDegree(page) == 0) {
+                    for (int other = 0; other < n; other++) {
+                        next[other] += decay * rank[page] / n;
+                    }
+                }
+                for (int j = graph.getOutOffsets()[page]; j < graph.getOutOffsets()[page + 1]; j++) {
+                    next[graph.getOutTargets()[j]] += decay * rank[page] / graph.outDegree(page);
+                }
+            }
+            boolean converged = true;
+            for (int page = 0; page < n; page++) {
+                converged &= Math.abs(next[page] - rank[page]) < epsilon;
+            }
+            rank = next;
+            if (converged) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    @Test(timeout=SECOND)
+    public void testDanglingPagesMatchBruteForce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // From no dangling pages at all up to nearly all of them.
+            for (int danglingOneIn : new int[] {1000000, 20, 3, 2, 1}) {
+                ISet<Webpage> pages = this.makeRandomPages(danglingOneIn, 500, danglingOneIn);
+                LinkGraph graph = LinkGraph.of(pages, DocumentRegistry.of(pages));
+                double[] expected = this.bruteForcePageRanks(graph, 0.85, 1e-9, 200);
+                double[] actual = new ParallelPageRankSolver(3, 1, pool).solve(graph, 0.85, 1e-9, 200);
+                for (int node = 0; node < graph.numNodes(); node++) {
+                    assertEquals(expected[node], actual[node], 1e-15);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSolversMatchBruteForce() {
+        ISet<Webpage> pages = this.makeRandomPages(3, 1000, 4);
+        LinkGraph graph = LinkGraph.of(pages, DocumentRegistry.of(pages));
+        double[] expected = this.bruteForcePageRanks(graph, 0.85, 1e-14, 1000);
+
+        PageRankSolver[] solvers = {
+            new ParallelPageRankSolver(),
+            new GaussSeidelPageRankSolver(),
+            new AdaptivePageRankSolver(),
+        };
+        for (PageRankSolver solver : solvers) {
+            double[] actual = solver.solve(graph, 0.85, 1e-10, 1000);
+            for (int node = 0; node < graph.numNodes(); node++) {
+                assertEquals(solver.getClass().getSimpleName(), expected[node], actual[node], 1e-8);
+            }
+
+            SolverStatistics statistics = solver.getStatistics();
+            assertEquals(1L, statistics.getNumSolves());
+            assertTrue(statistics.getIterations() > 0 && statistics.getIterations() < 1000);
+            assertTrue(statistics.getNodeUpdates() <= statistics.getIterations() * graph.numNodes());
+            assertTrue(statistics.getNanos() > 0);
+        }
+
+        // Gauss-Seidel needs fewer iterations than power iteration, and the adaptive
+        // solver fewer node updates.
+        long jacobi = solvers[0].getStatistics().getIterations();
+        assertTrue(solvers[1].getStatistics().getIterations() < jacobi);
+        assertTrue(solvers[2].getStatistics().getNodeUpdates() < jacobi * graph.numNodes());
+    }
+
+    @Test(timeout=SECOND)
+    public void testSolversOnSpecExample() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(pageAUri, new URI[] {pageBUri}));
+        pages.add(this.buildPage(pageBUri, new URI[] {pageCUri}));
+        pages.add(this.buildPage(pageCUri, new URI[] {pageAUri}));
+
+        PageRankSolver[] solvers = {new GaussSeidelPageRankSolver(), new AdaptivePageRankSolver()};
+        for (PageRankSolver solver : solvers) {
+            PageRankAnalyzer analyzer = new PageRankAnalyzer(
+                    pages, DocumentRegistry.of(pages), 0.85, 0.00001, 100, solver);
+            assertEquals(0.33333, analyzer.computePageRank(pageAUri), DELTA);
+            assertEquals(0.33333, analyzer.computePageRank(pageBUri), DELTA);
+            assertEquals(0.33333, analyzer.computePageRank(pageCUri), DELTA);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSnapshotSaveAndLoad() throws IOException {
+        ISet<Webpage> pages = this.makeRandomPages(4, 100, 5);
+        PageRankSnapshot snapshot = new PageRankAnalyzer(pages, 0.85, 1e-10, 100).getSnapshot();
+        Path file = Files.createTempFile("ranks", ".txt");
+        try {
+            snapshot.save(file);
+            PageRankSnapshot loaded = PageRankSnapshot.load(file);
+            assertEquals(snapshot.size(), loaded.size());
+            for (int i = 0; i < snapshot.size(); i++) {
+                assertEquals(snapshot.getUri(i), loaded.getUri(i));
+                assertEquals(snapshot.getRank(i), loaded.getRank(i), 0.0);
+            }
+
+            Files.write(file, "0.5 http://example.com/a.html\nnot-a-rank http://example.com/b.html\n".getBytes());
+            try {
+                PageRankSnapshot.load(file);
+                fail("Expected IOException");
+            } catch (IOException ex) {
+                // All ok -- expected result
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSnapshotInitialRanks() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+        URI pageDUri = URI.create("http://example.com/page-d.html");
+        PageRankSnapshot snapshot = new PageRankSnapshot(
+                new URI[] {pageAUri, pageBUri, pageCUri}, new double[] {0.2, 0.6, 0.2});
+
+        // Page c is gone, and page d is new, so it starts at the mean of a and b.
+        DocumentRegistry registry = new DocumentRegistry();
+        registry.register(pageDUri);
+        registry.register(pageBUri);
+        registry.register(pageAUri);
+        double[] ranks = snapshot.initialRanks(registry);
+        assertEquals(3, ranks.length);
+        assertEquals(0.4 / 1.2, ranks[registry.getDocId(pageDUri)], 1e-15);
+        assertEquals(0.6 / 1.2, ranks[registry.getDocId(pageBUri)], 1e-15);
+        assertEquals(0.2 / 1.2, ranks[registry.getDocId(pageAUri)], 1e-15);
+    }
+
+    @Test(timeout=SECOND)
+    public void testWarmStart() {
+        ISet<Webpage> pages = this.makeRandomPages(5, 1000, 5);
+        DocumentRegistry registry = DocumentRegistry.of(pages);
+        PageRankSnapshot snapshot = new PageRankAnalyzer(
+                pages, registry, 0.85, 1e-12, 1000, new GaussSeidelPageRankSolver()).getSnapshot();
+
+        // Re-link a few pages, and add a few new ones.
+        Random rand = new Random(5);
+        ISet<Webpage> recrawled = new ChainedHashSet<>();
+        for (Webpage page : pages) {
+            if (rand.nextInt(50) == 0) {
+                URI[] links = {URI.create("http://example.com/page-" + rand.nextInt(1010) + ".html")};
+                recrawled.add(this.buildPage(page.getUri(), links));
+            } else {
+                recrawled.add(page);
+            }
+        }
+        for (int i = 1000; i < 1010; i++) {
+            URI[] links = {URI.create("http://example.com/page-" + rand.nextInt(1010) + ".html")};
+            recrawled.add(this.buildPage(URI.create("http://example.com/page-" + i + ".html"), links));
+        }
+        DocumentRegistry newRegistry = DocumentRegistry.of(recrawled);
+
+        PageRankSolver[] solvers = {
+            new ParallelPageRankSolver(), new GaussSeidelPageRankSolver(), new AdaptivePageRankSolver(),
+        };
+        for (PageRankSolver solver : solvers) {
+            // Starting from the final ranks, there's nothing left to do.
+            PageRankAnalyzer same = new PageRankAnalyzer(pages, registry, 0.85, 1e-10, 1000, solver, snapshot);
+            assertTrue(solver.getStatistics().getIterations() <= 2);
+            for (int i = 0; i < snapshot.size(); i++) {
+                assertEquals(snapshot.getRank(i), same.computePageRank(snapshot.getUri(i)), 1e-10);
+            }
+
+            // Starting from the old ranks, we still end up at the new ones.
+            PageRankAnalyzer cold = new PageRankAnalyzer(recrawled, newRegistry, 0.85, 1e-10, 1000, solver);
+            PageRankAnalyzer warm = new PageRankAnalyzer(
+                    recrawled, newRegistry, 0.85, 1e-10, 1000, solver, snapshot);
+            for (int docId = 0; docId < newRegistry.size(); docId++) {
+                assertEquals(cold.computePageRank(docId), warm.computePageRank(docId), 1e-8);
+            }
+        }
+
+        try {
+            new GaussSeidelPageRankSolver().solve(LinkGraph.of(pages, registry), 0.85, 1e-10, 100, new double[3]);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testLinkGraph() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+        URI outsideUri = URI.create("http://example.com/elsewhere.html");
+
+        // Self links, links outside the set, and repeated links are all dropped.
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(pageAUri, new URI[] {pageCUri, pageBUri, pageAUri, pageCUri, outsideUri}));
+        pages.add(this.buildPage(pageBUri, new URI[] {}));
+        pages.add(this.buildPage(pageCUri, new URI[] {pageAUri}));
+        DocumentRegistry registry = new DocumentRegistry();
+        int a = registry.register(pageAUri);
+        int b = registry.register(pageBUri);
+        int c = registry.register(pageCUri);
+
+        LinkGraph graph = LinkGraph.of(pages, registry);
+        assertEquals(3, graph.numNodes());
+        assertEquals(3, graph.numEdges());
+        assertEquals(2, graph.outDegree(a));
+        assertEquals(0, graph.outDegree(b));
+        assertEquals(1, graph.outDegree(c));
+        assertEquals(1, graph.inDegree(a));
+        assertEquals(1, graph.inDegree(b));
+        assertEquals(1, graph.inDegree(c));
+
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        assertEquals(b, targets[offsets[a]]);
+        assertEquals(c, targets[offsets[a] + 1]);
+        assertEquals(a, targets[offsets[c]]);
+
+        int[] inOffsets = graph.getInOffsets();
+        int[] sources = graph.getInSources();
+        assertEquals(c, sources[inOffsets[a]]);
+        assertEquals(a, sources[inOffsets[b]]);
+        assertEquals(a, sources[inOffsets[c]]);
+    }
+
 }
@@ -0,0 +1,342 @@
+package search;
+
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.ChampionListEvaluator;
+import search.index.CompiledQuery;
+import search.index.CompressedPostings;
+import search.index.CompressedPostingsCursor;
+import search.index.DocumentAtATimeEvaluator;
+import search.index.InvertedIndex;
+import search.index.PostingsList;
+import search.index.QueryEvaluator;
+import search.index.QueryTerm;
+import search.index.ScoredDocument;
+import search.index.TermAtATimeEvaluator;
+import search.index.TieredEvaluator;
+import search.index.TopKCollector;
+import search.index.Vocabulary;
+import search.index.codec.DocIdDecoder;
+import search.index.codec.EliasFanoCodec;
+import search.index.codec.EncodedDocIds;
+import search.index.codec.PostingsCodec;
+import search.index.codec.RawCodec;
+import search.index.codec.VByteCodec;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestPostingsCodecs extends BaseTest {
+    private static final PostingsCodec[] CODECS = {
+        new RawCodec(),
+        new VByteCodec(),
+        new EliasFanoCodec(),
+    };
+
+    private static PostingsList makePostings(int[] docIds) {
+        PostingsList postings = new PostingsList();
+        for (int docId : docIds) {
+            postings.add(docId, 1.0);
+        }
+        return postings;
+    }
+
+    private static void assertRoundTrips(PostingsCodec codec, DocIdDecoder decoder, int[] docIds) {
+        EncodedDocIds encoded = codec.encode(makePostings(docIds));
+        assertEquals(docIds.length, encoded.size());
+        decoder.reset(encoded);
+        for (int i = 0; i < docIds.length; i++) {
+            assertEquals(codec.getName() + " decoded doc " + i + " wrong", docIds[i], decoder.next());
+        }
+        assertEquals(DocIdDecoder.NO_MORE_DOCS, decoder.next());
+    }
+
+    private static int[] makeDocIds(Random rand, int size, int maxGap) {
+        int[] docIds = new int[size];
+        int docId = -1;
+        for (int i = 0; i < size; i++) {
+            docId += 1 + rand.nextInt(maxGap);
+            docIds[i] = docId;
+        }
+        return docIds;
+    }
+
+    @Test(timeout=SECOND)
+    public void testEdgeCases() {
+        for (PostingsCodec codec : CODECS) {
+            DocIdDecoder decoder = codec.newDecoder();
+            assertRoundTrips(codec, decoder, new int[] {});
+            assertRoundTrips(codec, decoder, new int[] {0});
+            assertRoundTrips(codec, decoder, new int[] {0, 1, 2, 3});
+            assertRoundTrips(codec, decoder, new int[] {127, 128, 16383, 16384});
+            assertRoundTrips(codec, decoder, new int[] {5, Integer.MAX_VALUE - 1});
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testRandomLists() {
+        Random rand = new Random(11);
+        for (PostingsCodec codec : CODECS) {
+            // Reuse one decoder for every list, as callers are meant to.
+            DocIdDecoder decoder = codec.newDecoder();
+            for (int maxGap : new int[] {1, 3, 100, 100000}) {
+                for (int size : new int[] {1, 63, 64, 65, 1000}) {
+                    assertRoundTrips(codec, decoder, makeDocIds(rand, size, maxGap));
+                }
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testAdvance() {
+        Random rand = new Random(15);
+        for (PostingsCodec codec : CODECS) {
+            DocIdDecoder decoder = codec.newDecoder();
+            for (int maxGap : new int[] {1, 3, 100, 100000}) {
+                for (int size : new int[] {0, 1, 127, 128, 129, 1000}) {
+                    int[] docIds = makeDocIds(rand, size, maxGap);
+                    EncodedDocIds encoded = codec.encode(makePostings(docIds));
+
+                    // Mix skips of every length with plain steps, like an evaluator would.
+                    decoder.reset(encoded);
+                    int i = 0;
+                    int target = 0;
+                    while (true) {
+                        target += 1 + rand.nextInt(1 + rand.nextInt(maxGap * 300));
+                        while (i < size && docIds[i] < target) {
+                            i++;
+                        }
+                        int docId = decoder.advance(target);
+                        if (i == size) {
+                            assertEquals(DocIdDecoder.NO_MORE_DOCS, docId);
+                            break;
+                        }
+                        assertEquals(codec.getName() + " skipped to the wrong doc", docIds[i], docId);
+                        assertEquals(i + 1, decoder.position());
+                        i++;
+                        if (i < size && rand.nextBoolean()) {
+                            assertEquals(docIds[i], decoder.next());
+                            i++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCursorAdvance() {
+        int[] docIds = {3, 4, 200, 70000};
+        PostingsList postings = new PostingsList();
+        for (int docId : docIds) {
+            postings.add(docId, docId / 2.0);
+        }
+        CompressedPostingsCursor cursor = new CompressedPostingsCursor();
+        for (PostingsCodec codec : CODECS) {
+            cursor.reset(new CompressedPostings(postings, codec));
+            assertEquals(4, cursor.advance(4));
+            assertEquals(2.0, cursor.weight());
+            // Advancing to where we already are stays put.
+            assertEquals(4, cursor.advance(1));
+            assertEquals(200, cursor.next());
+            assertEquals(70000, cursor.advance(201));
+            assertEquals(35000.0, cursor.weight());
+            assertEquals(CompressedPostingsCursor.NO_MORE_DOCS, cursor.advance(70001));
+            assertEquals(CompressedPostingsCursor.NO_MORE_DOCS, cursor.next());
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCompressesDenseLists() {
+        PostingsList postings = makePostings(makeDocIds(new Random(12), 10000, 8));
+        long raw = new RawCodec().encode(postings).sizeInBytes();
+        assertTrue(new VByteCodec().encode(postings).sizeInBytes() * 3 < raw);
+        assertTrue(new EliasFanoCodec().encode(postings).sizeInBytes() * 4 < raw);
+    }
+
+    private static InvertedIndex makeIndex(long seed, int numDocuments, PostingsCodec codec) {
+        Random rand = new Random(seed);
+        InvertedIndex index = new InvertedIndex(Vocabulary.of("t0", "t1", "t2", "t3"), numDocuments);
+        for (int docId = 0; docId < numDocuments; docId++) {
+            for (int term = 0; term < 4; term++) {
+                if (rand.nextInt(term + 2) == 0) {
+                    index.addPosting(term, docId, rand.nextDouble());
+                }
+            }
+            index.setDocumentNorm(docId, 1.0);
+        }
+        index.trim();
+        if (codec != null) {
+            index.compress(codec);
+        }
+        return index;
+    }
+
+    private static double[] scoreEverything(
+            QueryEvaluator evaluator, InvertedIndex index, int minDocId, int maxDocId) {
+        QueryTerm[] terms = new QueryTerm[index.numTerms()];
+        for (int termId = 0; termId < terms.length; termId++) {
+            terms[termId] = new QueryTerm("t" + termId, termId, 0.5, index);
+        }
+        TopKCollector collector = new TopKCollector(index.numDocuments());
+        evaluator.evaluate(new CompiledQuery(terms, 1.0), collector, minDocId, maxDocId);
+        double[] scores = new double[index.numDocuments()];
+        for (ScoredDocument doc : collector.drain()) {
+            scores[doc.getDocId()] = doc.getScore();
+        }
+        return scores;
+    }
+
+    @Test(timeout=SECOND)
+    public void testCursorWalksPostings() {
+        int[] docIds = {3, 4, 200, 70000};
+        PostingsList postings = new PostingsList();
+        for (int docId : docIds) {
+            postings.add(docId, docId / 2.0);
+        }
+        CompressedPostingsCursor cursor = new CompressedPostingsCursor();
+        for (PostingsCodec codec : CODECS) {
+            // Walk it twice, to check that resetting starts over.
+            for (int pass = 0; pass < 2; pass++) {
+                cursor.reset(new CompressedPostings(postings, codec));
+                for (int docId : docIds) {
+                    assertEquals(docId, cursor.next());
+                    assertEquals(docId, cursor.docId());
+                    assertEquals(docId / 2.0, cursor.weight());
+                }
+                assertEquals(CompressedPostingsCursor.NO_MORE_DOCS, cursor.next());
+                assertEquals(CompressedPostingsCursor.NO_MORE_DOCS, cursor.next());
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testCompressedIndexScoresTheSame() {
+        int numDocuments = 3000;
+        InvertedIndex raw = makeIndex(13, numDocuments, null);
+        double[] boosts = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            boosts[docId] = 1.0 + docId % 7;
+        }
+
+        for (PostingsCodec codec : CODECS) {
+            InvertedIndex compressed = makeIndex(13, numDocuments, codec);
+            assertEquals(codec, compressed.getCodec());
+            assertTrue(compressed.getCompressedPostings(0) != null);
+            assertEquals(raw.getDocumentFrequency(1), compressed.getDocumentFrequency(1));
+
+            // Term-at-a-time walks the compressed postings, document-at-a-time decodes them.
+            for (QueryEvaluator evaluator : new QueryEvaluator[] {
+                    new TermAtATimeEvaluator(boosts), new DocumentAtATimeEvaluator(boosts)}) {
+                for (int[] range : new int[][] {{0, numDocuments}, {1000, 2000}}) {
+                    double[] expected = scoreEverything(evaluator, raw, range[0], range[1]);
+                    double[] actual = scoreEverything(evaluator, compressed, range[0], range[1]);
+                    for (int docId = 0; docId < numDocuments; docId++) {
+                        assertEquals(codec.getName() + " doc " + docId, expected[docId], actual[docId]);
+                    }
+                }
+            }
+        }
+
+        long rawBytes = raw.postingsSizeInBytes();
+        assertTrue(makeIndex(13, numDocuments, new EliasFanoCodec()).postingsSizeInBytes() < rawBytes);
+        assertTrue(makeIndex(13, numDocuments, new VByteCodec()).postingsSizeInBytes() < rawBytes);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testTiersOnCompressedIndex() {
+        int numDocuments = 3000;
+        InvertedIndex raw = makeIndex(17, numDocuments, null);
+        double[] boosts = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            boosts[docId] = 1.0 + docId % 7;
+        }
+        long numPostings = 0;
+        for (int termId = 0; termId < raw.numTerms(); termId++) {
+            numPostings += raw.getDocumentFrequency(termId);
+        }
+
+        // On an uncompressed index the tiers point into the index's own postings.
+        TieredEvaluator rawTiers = new TieredEvaluator(raw, boosts, boosts);
+        assertEquals(4 * numPostings, rawTiers.postingsSizeInBytes());
+
+        for (PostingsCodec codec : CODECS) {
+            InvertedIndex compressed = makeIndex(17, numDocuments, codec);
+            TieredEvaluator tiers = new TieredEvaluator(compressed, boosts, boosts);
+            assertEquals(12 * numPostings, tiers.postingsSizeInBytes());
+            for (int[] range : new int[][] {{0, numDocuments}, {1000, 2000}}) {
+                double[] expected = scoreEverything(rawTiers, raw, range[0], range[1]);
+                double[] actual = scoreEverything(tiers, compressed, range[0], range[1]);
+                for (int docId = 0; docId < numDocuments; docId++) {
+                    assertEquals(codec.getName() + " doc " + docId, expected[docId], actual[docId]);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testChampionListsOnCompressedIndex() {
+        int numDocuments = 3000;
+        InvertedIndex raw = makeIndex(16, numDocuments, null);
+        double[] boosts = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            boosts[docId] = 1.0 + docId % 7;
+        }
+        DocumentAtATimeEvaluator exact = new DocumentAtATimeEvaluator(boosts);
+
+        for (PostingsCodec codec : CODECS) {
+            InvertedIndex compressed = makeIndex(16, numDocuments, codec);
+            ChampionListEvaluator champions = new ChampionListEvaluator(
+                    compressed, boosts, 50, new TermAtATimeEvaluator(boosts));
+            for (int[] termIds : new int[][] {{0}, {3}, {0, 1}, {2, 3}}) {
+                QueryTerm[] rawTerms = new QueryTerm[termIds.length];
+                QueryTerm[] compressedTerms = new QueryTerm[termIds.length];
+                for (int i = 0; i < termIds.length; i++) {
+                    String term = "t" + termIds[i];
+                    rawTerms[i] = new QueryTerm(term, termIds[i], 0.5 + i, raw);
+                    compressedTerms[i] = new QueryTerm(term, termIds[i], 0.5 + i, compressed);
+                }
+                TopKCollector expected = new TopKCollector(10);
+                exact.evaluate(new CompiledQuery(rawTerms, 1.0), expected);
+                TopKCollector actual = new TopKCollector(10);
+                champions.evaluate(new CompiledQuery(compressedTerms, 1.0), actual);
+
+                IList<ScoredDocument> expectedDocs = expected.drain();
+                IList<ScoredDocument> actualDocs = actual.drain();
+                assertEquals(expectedDocs.size(), actualDocs.size());
+                for (int i = 0; i < expectedDocs.size(); i++) {
+                    assertEquals(codec.getName() + " result " + i,
+                            expectedDocs.get(i).getDocId(), actualDocs.get(i).getDocId());
+                    assertEquals(expectedDocs.get(i).getScore(), actualDocs.get(i).getScore());
+                }
+            }
+            // Single-term queries never need the fallback.
+            assertTrue(champions.getFallbacks() <= 2);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCompressedIndexRejectsPostings() {
+        InvertedIndex index = makeIndex(14, 10, new VByteCodec());
+        try {
+            index.addPosting(0, 20, 1.0);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsOtherCodecs() {
+        EncodedDocIds encoded = new VByteCodec().encode(makePostings(new int[] {1, 2}));
+        try {
+            new EliasFanoCodec().newDecoder().reset(encoded);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+}
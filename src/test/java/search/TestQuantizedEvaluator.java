@@ -0,0 +1,230 @@
+package search;
+
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.CompiledQuery;
+import search.index.DocumentAtATimeEvaluator;
+import search.index.InvertedIndex;
+import search.index.QuantizedEvaluator;
+import search.index.QueryEvaluator;
+import search.index.QueryTerm;
+import search.index.ScoredDocument;
+import search.index.TopKCollector;
+import search.index.Vocabulary;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestQuantizedEvaluator extends BaseTest {
+    private static final int NUM_DOCUMENTS = 2000;
+    private static final int NUM_TERMS = 6;
+
+    private InvertedIndex index;
+    private double[] boosts;
+
+    private void makeIndex(long seed) {
+        Random rand = new Random(seed);
+        String[] terms = new String[NUM_TERMS];
+        for (int term = 0; term < NUM_TERMS; term++) {
+            terms[term] = "t" + term;
+        }
+        this.index = new InvertedIndex(Vocabulary.of(terms), NUM_DOCUMENTS);
+        this.boosts = new double[NUM_DOCUMENTS];
+        for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+            double normSquared = 0.0;
+            for (int term = 0; term < NUM_TERMS; term++) {
+                if (rand.nextInt(term + 2) == 0) {
+                    double weight = rand.nextDouble() * 5;
+                    this.index.addPosting("t" + term, docId, weight);
+                    normSquared += weight * weight;
+                }
+            }
+            // Documents can contain words that aren't in any query.
+            normSquared += rand.nextDouble() * 10;
+            double norm = Math.sqrt(normSquared);
+            double pageRank = 1.0 / (1 + rand.nextInt(NUM_DOCUMENTS));
+            this.index.setDocumentNorm(docId, norm);
+            this.boosts[docId] = Math.sqrt(pageRank) / norm;
+        }
+        this.index.trim();
+    }
+
+    private CompiledQuery makeQuery(double... weights) {
+        double norm = 0.0;
+        for (double weight : weights) {
+            norm += weight * weight;
+        }
+        norm = Math.sqrt(norm);
+        QueryTerm[] terms = new QueryTerm[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            String term = "t" + i;
+            terms[i] = new QueryTerm(term, this.index.getTermId(term), weights[i] / norm, this.index.getPostings(term));
+        }
+        return new CompiledQuery(terms, norm);
+    }
+
+    private static double[] scoreEverything(QueryEvaluator evaluator, CompiledQuery query) {
+        TopKCollector collector = new TopKCollector(NUM_DOCUMENTS);
+        evaluator.evaluate(query, collector);
+        double[] scores = new double[NUM_DOCUMENTS];
+        for (ScoredDocument doc : collector.drain()) {
+            scores[doc.getDocId()] = doc.getScore();
+        }
+        return scores;
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testScoresWithinErrorBound() {
+        this.makeIndex(1);
+        DocumentAtATimeEvaluator exact = new DocumentAtATimeEvaluator(this.boosts);
+        for (int bits : new int[] {8, 16}) {
+            QuantizedEvaluator quantized = new QuantizedEvaluator(this.index, this.boosts, bits);
+            for (CompiledQuery query : new CompiledQuery[] {
+                    this.makeQuery(1.0), this.makeQuery(1.0, 2.0), this.makeQuery(0.3, 1.0, 0.1, 2.0, 5.0, 1.0)}) {
+                double[] expected = scoreEverything(exact, query);
+                double[] actual = scoreEverything(quantized, query);
+                for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+                    double bound = quantized.getErrorBound(docId, query.size()) + 1e-12;
+                    assertTrue(bits + "-bit score of doc " + docId + " is off by more than the bound",
+                            Math.abs(expected[docId] - actual[docId]) <= bound);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testRepeatedWordsWithinErrorBound() {
+        this.makeIndex(4);
+        DocumentAtATimeEvaluator exact = new DocumentAtATimeEvaluator(this.boosts);
+
+        // A query that repeats its words has weights over 1, which can't be rounded as is.
+        CompiledQuery unit = this.makeQuery(2.0, 1.0, 0.5);
+        QueryTerm[] terms = unit.getTerms();
+        int[] counts = {3, 1, 2};
+        QueryTerm[] repeated = new QueryTerm[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            QueryTerm term = terms[i];
+            repeated[i] = new QueryTerm(term.getTerm(), term.getTermId(),
+                    counts[i] * term.getWeight(), term.getPostings());
+        }
+        CompiledQuery query = new CompiledQuery(repeated, unit.getNorm());
+
+        for (int bits : new int[] {8, 16}) {
+            QuantizedEvaluator quantized = new QuantizedEvaluator(this.index, this.boosts, bits);
+            double[] expected = scoreEverything(exact, query);
+            double[] actual = scoreEverything(quantized, query);
+            for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+                double bound = quantized.getErrorBound(docId, query) + 1e-12;
+                assertTrue(bits + "-bit score of doc " + docId + " is off by more than the bound",
+                        Math.abs(expected[docId] - actual[docId]) <= bound);
+            }
+            assertTrue(quantized.getRelativeErrorBound(query) > quantized.getRelativeErrorBound(query.size()));
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDocIdRange() {
+        this.makeIndex(6);
+        QuantizedEvaluator quantized = new QuantizedEvaluator(this.index, this.boosts, 8);
+        CompiledQuery query = this.makeQuery(1.0, 2.0, 0.5);
+        double[] everything = scoreEverything(quantized, query);
+
+        TopKCollector collector = new TopKCollector(NUM_DOCUMENTS);
+        quantized.evaluate(query, collector, 500, 1500);
+        double[] range = new double[NUM_DOCUMENTS];
+        for (ScoredDocument doc : collector.drain()) {
+            range[doc.getDocId()] = doc.getScore();
+        }
+        for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+            double expected = docId >= 500 && docId < 1500 ? everything[docId] : 0.0;
+            assertEquals("Doc " + docId + " has the wrong score", expected, range[docId], 0.0);
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testSixteenBitsIsTighter() {
+        this.makeIndex(2);
+        QuantizedEvaluator eight = new QuantizedEvaluator(this.index, this.boosts, 8);
+        QuantizedEvaluator sixteen = new QuantizedEvaluator(this.index, this.boosts, 16);
+        assertTrue(eight.getRelativeErrorBound(2) < 0.005);
+        assertTrue(sixteen.getRelativeErrorBound(2) < eight.getRelativeErrorBound(2) / 100);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testTopResultsOnlyDifferWithinBound() {
+        this.makeIndex(3);
+        CompiledQuery query = this.makeQuery(1.0, 1.0, 1.0);
+        DocumentAtATimeEvaluator exact = new DocumentAtATimeEvaluator(this.boosts);
+        QuantizedEvaluator quantized = new QuantizedEvaluator(this.index, this.boosts, 8);
+        double[] exactScores = scoreEverything(exact, query);
+
+        TopKCollector collector = new TopKCollector(10);
+        quantized.evaluate(query, collector);
+        IList<ScoredDocument> results = collector.drain();
+        assertEquals(10, results.size());
+
+        // Anything left out must have an exact score that could, within the error bounds,
+        // be no better than the worst document we did return.
+        double worstReturned = Double.POSITIVE_INFINITY;
+        boolean[] returned = new boolean[NUM_DOCUMENTS];
+        for (ScoredDocument doc : results) {
+            returned[doc.getDocId()] = true;
+            worstReturned = Math.min(worstReturned,
+                    exactScores[doc.getDocId()] + quantized.getErrorBound(doc.getDocId(), query.size()));
+        }
+        for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+            if (!returned[docId]) {
+                assertTrue(exactScores[docId] - quantized.getErrorBound(docId, query.size())
+                        <= worstReturned + 1e-12);
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testPostingsAreCompact() {
+        this.makeIndex(5);
+        long numPostings = 0;
+        for (int termId = 0; termId < this.index.numTerms(); termId++) {
+            numPostings += this.index.getPostings(termId).size();
+        }
+        QuantizedEvaluator eight = new QuantizedEvaluator(this.index, this.boosts, 8);
+        QuantizedEvaluator sixteen = new QuantizedEvaluator(this.index, this.boosts, 16);
+        assertEquals(eight.postingsSizeInBytes() / (double) numPostings, eight.getBytesPerPosting());
+        // Every gap fits in a byte or two, next to a 1 or 2 byte weight.
+        assertTrue(eight.getBytesPerPosting() <= 3.0);
+        assertTrue(sixteen.getBytesPerPosting() <= 4.0);
+        assertEquals(numPostings, sixteen.postingsSizeInBytes() - eight.postingsSizeInBytes());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testScoresDocIdRanges() {
+        this.makeIndex(6);
+        CompiledQuery query = this.makeQuery(1.0, 2.0, 0.5);
+        QuantizedEvaluator quantized = new QuantizedEvaluator(this.index, this.boosts, 16);
+        double[] everything = scoreEverything(quantized, query);
+
+        TopKCollector collector = new TopKCollector(NUM_DOCUMENTS);
+        quantized.evaluate(query, collector, 500, 1500);
+        double[] range = new double[NUM_DOCUMENTS];
+        for (ScoredDocument doc : collector.drain()) {
+            range[doc.getDocId()] = doc.getScore();
+        }
+        for (int docId = 0; docId < NUM_DOCUMENTS; docId++) {
+            assertEquals(docId >= 500 && docId < 1500 ? everything[docId] : 0.0, range[docId]);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsOtherWidths() {
+        this.makeIndex(4);
+        try {
+            new QuantizedEvaluator(this.index, this.boosts, 4);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.cache.QueryResultCache;
+import search.models.Result;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestQueryResultCache extends BaseTest {
+    private static IList<Result> makeResults(String name) {
+        WebpageSummary summary = new WebpageSummary(
+                URI.create("http://example.com/" + name + ".html"), name, "blurb");
+        IList<Result> results = new DoubleLinkedList<>();
+        results.add(new Result(summary, 1.0));
+        return results;
+    }
+
+    private static IList<String> query(String... words) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : words) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    @Test(timeout=SECOND)
+    public void testKeyIgnoresWordOrderButNotK() {
+        assertEquals(
+                QueryResultCache.makeKey(query("a", "b", "a"), 5),
+                QueryResultCache.makeKey(query("b", "a", "a"), 5));
+        assertTrue(!QueryResultCache.makeKey(query("a", "b"), 5).equals(
+                QueryResultCache.makeKey(query("a", "b", "b"), 5)));
+        assertTrue(!QueryResultCache.makeKey(query("a"), 5).equals(
+                QueryResultCache.makeKey(query("a"), 6)));
+    }
+
+    @Test(timeout=SECOND)
+    public void testHitsAndMisses() {
+        QueryResultCache cache = new QueryResultCache(10);
+        assertNull(cache.get("a", 0));
+        cache.put("a", 0, makeResults("a"));
+
+        IList<Result> results = cache.get("a", 0);
+        assertEquals(1, results.size());
+        assertEquals("a", results.get(0).getTitle());
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNewGenerationInvalidates() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.put("a", 0, makeResults("a"));
+
+        assertNull(cache.get("a", 1));
+        assertEquals(1L, cache.getInvalidations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testPopularEntriesSurviveOneOffQueries() {
+        QueryResultCache cache = new QueryResultCache(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot1", 0);
+            cache.get("hot2", 0);
+        }
+        cache.put("hot1", 0, makeResults("hot1"));
+        cache.put("hot2", 0, makeResults("hot2"));
+
+        // A stream of queries that are each only seen once should be turned away.
+        for (int i = 0; i < 20; i++) {
+            String key = "cold" + i;
+            if (cache.get(key, 0) == null) {
+                cache.put(key, 0, makeResults(key));
+            }
+        }
+        assertTrue(cache.getRejections() > 0);
+        assertTrue(cache.get("hot1", 0) != null);
+        assertTrue(cache.get("hot2", 0) != null);
+    }
+
+    @Test(timeout=SECOND)
+    public void testFrequentNewcomerEvictsLeastRecentlyUsed() {
+        QueryResultCache cache = new QueryResultCache(2);
+        cache.put("a", 0, makeResults("a"));
+        cache.put("b", 0, makeResults("b"));
+        for (int i = 0; i < 5; i++) {
+            cache.get("c", 0);
+        }
+        cache.put("c", 0, makeResults("c"));
+
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a", 0));
+        assertTrue(cache.get("c", 0) != null);
+    }
+}
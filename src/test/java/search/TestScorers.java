@@ -0,0 +1,225 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TfIdfIndexBuilder;
+import search.index.CompiledQuery;
+import search.index.DocumentRegistry;
+import search.index.DocumentStats;
+import search.index.EvaluationMode;
+import search.index.SparseVector;
+import search.models.Result;
+import search.models.Webpage;
+import search.scoring.Bm25Scorer;
+import search.scoring.CosineScorer;
+import search.scoring.Scorer;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestScorers extends BaseTest {
+    private static final String[] DOCUMENTS = {
+        "the mouse played with the cat",
+        "the quick brown fox jumped over the lazy dog",
+        "dog 1 and dog 2 ate the hot dog",
+        "a cat and a dog",
+    };
+
+    private static URI pageUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    private static IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private static TfIdfAnalyzer build(Scorer scorer) {
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.setScorer(scorer);
+        for (int i = 0; i < DOCUMENTS.length; i++) {
+            builder.addPage(registry.register(pageUri(i)), strToIList(DOCUMENTS[i]));
+        }
+        return builder.build(registry);
+    }
+
+    private static ISet<Webpage> makeCorpus(long seed, int numPages) {
+        Random rand = new Random(seed);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = 1 + rand.nextInt(40);
+            for (int j = 0; j < numWords; j++) {
+                words.add("w" + rand.nextInt(1 + rand.nextInt(60)));
+            }
+            IList<URI> links = new DoubleLinkedList<>();
+            for (int j = rand.nextInt(4); j > 0; j--) {
+                links.add(pageUri(rand.nextInt(numPages)));
+            }
+            pages.add(new Webpage(pageUri(i), links, words, "title " + i, "blurb " + i));
+        }
+        return pages;
+    }
+
+    @Test(timeout=SECOND)
+    public void testBm25MatchesFormula() {
+        TfIdfAnalyzer analyzer = build(new Bm25Scorer());
+        double averageLength = (6 + 9 + 9 + 5) / 4.0;
+
+        // "dog" is in 3 of the 4 documents, and "cat" in 2.
+        double dogIdf = Math.log(1.0 + (4 - 3 + 0.5) / (3 + 0.5));
+        double catIdf = Math.log(1.0 + (4 - 2 + 0.5) / (2 + 0.5));
+        int[][] counts = {{0, 1}, {1, 0}, {3, 0}, {1, 1}};
+        int[] lengths = {6, 9, 9, 5};
+
+        // The query "dog dog cat" has word counts (2, 1), scaled to unit length.
+        CompiledQuery query = analyzer.compile(strToIList("dog dog cat"));
+        double queryNorm = Math.sqrt(5.0);
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            double lengthNorm = 1.2 * (1.0 - 0.75 + 0.75 * lengths[docId] / averageLength);
+            double expected = 2 * dogIdf * counts[docId][0] * 2.2 / (counts[docId][0] + lengthNorm)
+                    + catIdf * counts[docId][1] * 2.2 / (counts[docId][1] + lengthNorm);
+            assertEquals(expected / queryNorm, analyzer.computeRelevance(query, docId), 1e-12);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testTermFrequenciesSurviveWeighting() {
+        TfIdfAnalyzer cosine = build(new CosineScorer());
+        TfIdfAnalyzer bm25 = build(new Bm25Scorer(2.0, 0.5));
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            assertEquals(DOCUMENTS[docId].split(" ").length, bm25.getDocumentLength(docId));
+            SparseVector expected = cosine.getTermFrequencies(docId);
+            SparseVector actual = bm25.getTermFrequencies(docId);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getTermId(i), actual.getTermId(i));
+                assertEquals(expected.getWeight(i), actual.getWeight(i), 1e-15);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testDefaultScorerIsCosine() {
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        for (int i = 0; i < DOCUMENTS.length; i++) {
+            builder.addPage(registry.register(pageUri(i)), strToIList(DOCUMENTS[i]));
+        }
+        TfIdfAnalyzer byDefault = builder.build(registry);
+        TfIdfAnalyzer cosine = build(new CosineScorer());
+
+        IList<String> words = strToIList("the dog and the cat");
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            assertEquals(
+                    byDefault.computeRelevance(byDefault.compile(words), docId),
+                    cosine.computeRelevance(cosine.compile(words), docId),
+                    0.0);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testBm25IndexedMatchesExhaustive() {
+        ISet<Webpage> pages = makeCorpus(7, 200);
+        SearchEngine engine = new SearchEngine(pages, DocumentRegistry.of(pages), new Bm25Scorer());
+
+        IList<IList<String>> queries = new DoubleLinkedList<>();
+        queries.add(strToIList("w0"));
+        queries.add(strToIList("w1 w2"));
+        queries.add(strToIList("w3 w3 w50 w7"));
+        queries.add(strToIList("w59 unknown"));
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            if (!mode.isExact()) {
+                continue;
+            }
+            engine.setEvaluationMode(mode);
+            for (IList<String> query : queries) {
+                for (int k : new int[] {1, 10, 250}) {
+                    IList<Result> expected = engine.getTopKResultsExhaustive(query, k);
+                    IList<Result> actual = engine.getTopKResults(query, k);
+                    assertEquals(expected.size(), actual.size());
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(mode + ": result " + i + " has the wrong score",
+                                expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testOnlyRequiredStatisticsAreKept() {
+        TfIdfAnalyzer bm25 = build(new Bm25Scorer());
+        DocumentStats all = new DocumentStats(
+                bm25.getIndex(), new int[] {6, 9, 9, 5}, new double[] {0.25, 0.25, 0.25, 0.25}, bm25.getScorer());
+        assertTrue(all.hasLengths());
+        assertTrue(all.hasPageRanks());
+        assertEquals(9, all.getLength(1));
+
+        // A cosine scorer that ignores page ranks only needs the norms and boosts.
+        Scorer noRanks = new CosineScorer() {
+            @Override
+            public boolean requires(Statistic statistic) {
+                return statistic == Statistic.DOCUMENT_FREQUENCY;
+            }
+        };
+        TfIdfAnalyzer analyzer = build(noRanks);
+        DocumentStats stats = new DocumentStats(analyzer.getIndex(), null, null, noRanks);
+        assertTrue(!stats.hasLengths());
+        assertTrue(!stats.hasPageRanks());
+        assertEquals(null, stats.getPageRanks());
+        assertEquals(1.0 / stats.getNorm(0), stats.getBoost(0), 1e-12);
+        try {
+            stats.getPageRank(0);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // All ok -- expected result
+        }
+
+        // Every evaluator, including the tiered one that orders documents by page rank
+        // when it has them, still finds the right results.
+        ISet<Webpage> pages = makeCorpus(8, 150);
+        SearchEngine engine = new SearchEngine(pages, DocumentRegistry.of(pages), noRanks);
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            if (!mode.isExact()) {
+                continue;
+            }
+            engine.setEvaluationMode(mode);
+            IList<String> query = strToIList("w1 w4 w30");
+            IList<Result> expected = engine.getTopKResultsExhaustive(query, 10);
+            IList<Result> actual = engine.getTopKResults(query, 10);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(mode + ": result " + i + " has the wrong score",
+                        expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBm25RejectsBadParameters() {
+        try {
+            new Bm25Scorer(0.0, 0.5);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+        try {
+            new Bm25Scorer(1.2, 1.5);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+}
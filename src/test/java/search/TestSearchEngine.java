@@ -0,0 +1,497 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+import search.cache.QueryResultCache;
+import search.index.BlockMaxWandEvaluator;
+import search.index.ChampionListEvaluator;
+import search.index.CompiledQuery;
+import search.index.DocumentAtATimeEvaluator;
+import search.index.DotProductKernel;
+import search.index.EvaluationMode;
+import search.index.InvertedIndex;
+import search.index.ParallelEvaluator;
+import search.index.QueryEvaluator;
+import search.index.QueryTerm;
+import search.index.ScalarDotProductKernel;
+import search.index.ScoredDocument;
+import search.index.TermAtATimeEvaluator;
+import search.index.TieredEvaluator;
+import search.index.TopKCollector;
+import search.index.Vocabulary;
+import search.index.WandEvaluator;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSearchEngine extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    private static final int NUM_PAGES = 300;
+    private static final int VOCABULARY_SIZE = 400;
+    private static final int WORDS_PER_PAGE = 60;
+    private static final int LINKS_PER_PAGE = 4;
+
+    private static URI pageUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    /**
+     * Builds a corpus where word 'wN' shows up with a frequency roughly proportional
+     * to 1/N, so the index contains both very common and very rare words.
+     */
+    private static ISet<Webpage> makeCorpus(long seed) {
+        Random rand = new Random(seed);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < NUM_PAGES; i++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = 1 + rand.nextInt(WORDS_PER_PAGE);
+            for (int j = 0; j < numWords; j++) {
+                words.add("w" + zipf(rand, VOCABULARY_SIZE));
+            }
+            IList<URI> links = new DoubleLinkedList<>();
+            int numLinks = rand.nextInt(LINKS_PER_PAGE + 1);
+            for (int j = 0; j < numLinks; j++) {
+                links.add(pageUri(zipf(rand, NUM_PAGES)));
+            }
+            pages.add(new Webpage(pageUri(i), links, words, "title " + i, "blurb " + i));
+        }
+        return pages;
+    }
+
+    private static int zipf(Random rand, int max) {
+        return (int) Math.min(max - 1, Math.floor(1.0 / (rand.nextDouble() + 1.0 / max)));
+    }
+
+    private static IList<String> query(String... words) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : words) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    /**
+     * Pages with equal scores may come back in any order, so we check that the scores
+     * line up and that every returned page really does have the score it claims.
+     */
+    private static void assertSameResults(SearchEngine engine, IList<String> query,
+                                          IList<Result> expected, IList<Result> actual) {
+        assertEquals("Result lists have different sizes", expected.size(), actual.size());
+        int i = 0;
+        for (Result actualResult : actual) {
+            Result expectedResult = expected.get(i);
+            assertEquals("Result " + i + " has the wrong score",
+                    expectedResult.getScore(), actualResult.getScore(), DELTA);
+            assertEquals("Result " + i + " has a score that doesn't match its page",
+                    engine.computeScore(query, actualResult.getUri()), actualResult.getScore(), DELTA);
+            i++;
+        }
+    }
+
+    private static IList<IList<String>> makeQueries() {
+        IList<IList<String>> queries = new DoubleLinkedList<>();
+        queries.add(query("w1"));
+        queries.add(query("w2", "w3"));
+        queries.add(query("w350"));
+        queries.add(query("w1", "w7", "w42", "w120"));
+        queries.add(query("w5", "w5", "w9"));
+        queries.add(query("unknown"));
+        queries.add(query("unknown", "w17"));
+        return queries;
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testIndexedMatchesExhaustive() {
+        SearchEngine engine = new SearchEngine(makeCorpus(1));
+        for (IList<String> query : makeQueries()) {
+            for (int k : new int[] {0, 1, 5, 20, NUM_PAGES + 10}) {
+                assertSameResults(engine, query,
+                        engine.getTopKResultsExhaustive(query, k),
+                        engine.getTopKResults(query, k));
+            }
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testRepeatedQueryWord() {
+        // None of these pages link anywhere, so they all have a page rank of 1/3.
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(new Webpage(pageUri(0), new DoubleLinkedList<>(), query("cat", "dog"), "title 0", "blurb 0"));
+        pages.add(new Webpage(pageUri(1), new DoubleLinkedList<>(), query("cat"), "title 1", "blurb 1"));
+        pages.add(new Webpage(pageUri(2), new DoubleLinkedList<>(), query("bird"), "title 2", "blurb 2"));
+        SearchEngine engine = new SearchEngine(pages);
+
+        // Every occurrence of a query word counts, as in the spec: "dog dog cat" has the
+        // vector (2/3 idf(dog), 1/3 idf(cat)), where idf(dog) is ln 3 and idf(cat) is
+        // ln 3/2, and page 0's dog weight is added in twice. Each score is then divided by
+        // both norms and multiplied by sqrt(1/3).
+        IList<String> repeated = query("dog", "dog", "cat");
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            if (!mode.isExact()) {
+                continue;
+            }
+            engine.setEvaluationMode(mode);
+            IList<Result> results = engine.getTopKResults(repeated, 2);
+            assertEquals(2, results.size());
+            assertEquals(pageUri(0), results.get(0).getUri());
+            assertEquals(mode + " returned the wrong score", 1.101567, results.get(0).getScore(), DELTA);
+            assertEquals(pageUri(1), results.get(1).getUri());
+            assertEquals(mode + " returned the wrong score", 0.104772, results.get(1).getScore(), DELTA);
+            assertSameResults(engine, repeated, engine.getTopKResultsExhaustive(repeated, 2), results);
+        }
+        assertEquals(1.101567, engine.computeScore(repeated, pageUri(0)), DELTA);
+
+        // Without the repeat, the query points the same way as page 0's vector.
+        assertEquals(0.577350, engine.computeScore(query("dog", "cat"), pageUri(0)), DELTA);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testAllEvaluationModesMatch() {
+        SearchEngine engine = new SearchEngine(makeCorpus(2));
+        for (IList<String> query : makeQueries()) {
+            for (int k : new int[] {1, 5, 20}) {
+                engine.setEvaluationMode(EvaluationMode.DOCUMENT_AT_A_TIME);
+                IList<Result> expected = engine.getTopKResults(query, k);
+                for (EvaluationMode mode : EvaluationMode.values()) {
+                    if (!mode.isExact()) {
+                        continue;
+                    }
+                    engine.setEvaluationMode(mode);
+                    IList<Result> actual = engine.getTopKResults(query, k);
+
+                    // Every evaluator breaks ties the same way, so the results should be identical.
+                    assertEquals(expected.size(), actual.size());
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(mode + " returned a different result", expected.get(i), actual.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testTwoPhaseRanking() {
+        SearchEngine engine = new SearchEngine(makeCorpus(5));
+        IList<IList<String>> queries = makeQueries();
+        for (EvaluationMode mode : new EvaluationMode[] {EvaluationMode.WAND, EvaluationMode.QUANTIZED_8}) {
+            engine.setEvaluationMode(mode);
+            for (IList<String> query : queries) {
+                for (int k : new int[] {1, 5, 20}) {
+                    IList<Result> expected = engine.getTopKResultsExhaustive(query, k);
+
+                    // Re-ranking every page that could match must find the exact top k,
+                    // whatever the first phase's scores.
+                    engine.setRerankDepth(NUM_PAGES);
+                    assertSameResults(engine, query, expected, engine.getTopKResults(query, k));
+
+                    // A shallow re-rank still returns exact scores.
+                    engine.setRerankDepth(k + 3);
+                    for (Result result : engine.getTopKResults(query, k)) {
+                        assertEquals(engine.computeScore(query, result.getUri()), result.getScore(), 0.0);
+                    }
+                    engine.setRerankDepth(0);
+                }
+            }
+        }
+
+        assertEquals(2L * queries.size() * 3 * 2, engine.getPhaseTimings().getNumQueries());
+        assertTrue(engine.getPhaseTimings().getCandidatesReranked() > 0);
+        assertTrue(engine.getPhaseTimings().getCandidateGenerationNanos() > 0);
+
+        try {
+            engine.setRerankDepth(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testDenseReranking() {
+        // Adding pages after the engine is built gives it several segments to re-rank across.
+        ISet<Webpage> initial = new ChainedHashSet<>();
+        ISet<Webpage> added = new ChainedHashSet<>();
+        for (Webpage page : makeCorpus(10)) {
+            int i = Integer.parseInt(page.getSummary().getTitle().substring("title ".length()));
+            if (i < 250) {
+                initial.add(page);
+            } else {
+                added.add(page);
+            }
+        }
+        SearchEngine engine = new SearchEngine(initial);
+        engine.addWebpages(added);
+        assertTrue(engine.removeWebpage(pageUri(3)));
+        engine.setEvaluationMode(EvaluationMode.QUANTIZED_8);
+
+        DotProductKernel[] kernels = {new ScalarDotProductKernel(), DotProductKernel.fastest()};
+        for (DotProductKernel kernel : kernels) {
+            engine.setRerankKernel(kernel);
+            for (IList<String> query : makeQueries()) {
+                for (int k : new int[] {1, 5, 20}) {
+                    engine.setRerankDepth(NUM_PAGES);
+                    assertSameResults(engine, query,
+                            engine.getTopKResultsExhaustive(query, k),
+                            engine.getTopKResults(query, k));
+
+                    engine.setRerankDepth(k + 3);
+                    for (Result result : engine.getTopKResults(query, k)) {
+                        assertTrue("Returned a removed page", !result.getUri().equals(pageUri(3)));
+                        assertEquals(engine.computeScore(query, result.getUri()), result.getScore(), DELTA);
+                    }
+                }
+            }
+        }
+        engine.setRerankKernel(null);
+        engine.setRerankDepth(0);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testParallelMatchesSequential() {
+        Random rand = new Random(4);
+        int numDocuments = 5000;
+        Vocabulary vocabulary = Vocabulary.of("t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7");
+        InvertedIndex index = new InvertedIndex(vocabulary, numDocuments);
+        double[] boosts = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            boosts[docId] = rand.nextDouble();
+            double normSquared = 0.0;
+            for (int term = 0; term < 8; term++) {
+                if (rand.nextInt(term + 2) == 0) {
+                    double weight = rand.nextInt(4) / 4.0;
+                    index.addPosting("t" + term, docId, weight);
+                    normSquared += weight * weight;
+                }
+            }
+            index.setDocumentNorm(docId, Math.sqrt(normSquared));
+        }
+        index.trim();
+
+        QueryTerm[] terms = new QueryTerm[4];
+        for (int i = 0; i < terms.length; i++) {
+            String term = "t" + (i * 2);
+            terms[i] = new QueryTerm(term, index.getTermId(term), 0.5, index.getPostings(term));
+        }
+        CompiledQuery query = new CompiledQuery(terms, 1.0);
+
+        QueryEvaluator[] evaluators = {
+            new DocumentAtATimeEvaluator(boosts),
+            new TermAtATimeEvaluator(boosts),
+            new WandEvaluator(index, boosts),
+            new BlockMaxWandEvaluator(index, boosts),
+            new TieredEvaluator(index, boosts, boosts),
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (QueryEvaluator evaluator : evaluators) {
+                for (int k : new int[] {1, 10, 100}) {
+                    TopKCollector sequential = new TopKCollector(k);
+                    evaluator.evaluate(query, sequential);
+                    IList<ScoredDocument> expected = sequential.drain();
+
+                    for (int partitions : new int[] {1, 2, 3, 7, 16}) {
+                        ParallelEvaluator parallel = new ParallelEvaluator(
+                                evaluator, numDocuments, partitions, 0, pool);
+                        TopKCollector collector = new TopKCollector(k);
+                        parallel.evaluate(query, collector);
+                        IList<ScoredDocument> actual = collector.drain();
+
+                        assertEquals(expected.size(), actual.size());
+                        for (int i = 0; i < expected.size(); i++) {
+                            assertEquals(expected.get(i).getDocId(), actual.get(i).getDocId());
+                            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 0.0);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testWandSkipsDocuments() {
+        SearchEngine engine = new SearchEngine(makeCorpus(3));
+        IList<String> query = query("w1", "w2", "w3", "w250");
+
+        engine.setEvaluationMode(EvaluationMode.DOCUMENT_AT_A_TIME);
+        engine.getTopKResults(query, 3);
+        long exhaustiveScored = engine.getQueryEvaluator().getDocumentsScored();
+
+        engine.setEvaluationMode(EvaluationMode.WAND);
+        engine.getTopKResults(query, 3);
+        long wandScored = engine.getQueryEvaluator().getDocumentsScored();
+
+        assertTrue("WAND should score fewer documents", wandScored < exhaustiveScored);
+        assertTrue("WAND should skip postings", engine.getQueryEvaluator().getPostingsSkipped() > 0);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testChampionListsAnswerShortQueries() {
+        SearchEngine engine = new SearchEngine(makeCorpus(6));
+        engine.setEvaluationMode(EvaluationMode.CHAMPION_LISTS);
+        ChampionListEvaluator evaluator = (ChampionListEvaluator) engine.getQueryEvaluator();
+
+        for (String word : new String[] {"w1", "w2", "w3", "w17"}) {
+            IList<String> query = query(word);
+            assertSameResults(engine, query,
+                    engine.getTopKResultsExhaustive(query, 10),
+                    engine.getTopKResults(query, 10));
+        }
+        assertEquals("Single-word queries never need the fallback", 0L, evaluator.getFallbacks());
+        assertTrue(evaluator.getDocumentsScored() <= 4 * SearchEngine.CHAMPION_LIST_SIZE);
+
+        engine.getTopKResults(query("w1"), SearchEngine.CHAMPION_LIST_SIZE + 1);
+        assertEquals(1L, evaluator.getFallbacks());
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testTieredStopsEarly() {
+        // Static ranks fall off like 1/rank, as page ranks tend to.
+        Random rand = new Random(5);
+        int numDocuments = 4000;
+        InvertedIndex index = new InvertedIndex(Vocabulary.of("common", "other"), numDocuments);
+        double[] staticRanks = new double[numDocuments];
+        double[] boosts = new double[numDocuments];
+        for (int docId = 0; docId < numDocuments; docId++) {
+            staticRanks[docId] = 1.0 / (1 + rand.nextInt(numDocuments));
+            double first = 1 + rand.nextInt(3);
+            double second = rand.nextInt(3);
+            index.addPosting("common", docId, first);
+            if (second > 0) {
+                index.addPosting("other", docId, second);
+            }
+            double norm = Math.sqrt(first * first + second * second);
+            index.setDocumentNorm(docId, norm);
+            boosts[docId] = Math.sqrt(staticRanks[docId]) / norm;
+        }
+        index.trim();
+
+        QueryTerm[] terms = {
+            new QueryTerm("common", index.getTermId("common"), 0.8, index.getPostings("common")),
+            new QueryTerm("other", index.getTermId("other"), 0.6, index.getPostings("other")),
+        };
+        CompiledQuery query = new CompiledQuery(terms, 1.0);
+
+        DocumentAtATimeEvaluator exhaustive = new DocumentAtATimeEvaluator(boosts);
+        TopKCollector expected = new TopKCollector(10);
+        exhaustive.evaluate(query, expected);
+
+        TieredEvaluator tiered = new TieredEvaluator(index, boosts, staticRanks);
+        TopKCollector actual = new TopKCollector(10);
+        tiered.evaluate(query, actual);
+
+        IList<ScoredDocument> expectedResults = expected.drain();
+        IList<ScoredDocument> actualResults = actual.drain();
+        assertEquals(expectedResults.size(), actualResults.size());
+        for (int i = 0; i < expectedResults.size(); i++) {
+            assertEquals(expectedResults.get(i).getDocId(), actualResults.get(i).getDocId());
+        }
+        assertTrue("Tiered evaluation should stop before the last tier",
+                tiered.getDocumentsScored() < exhaustive.getDocumentsScored());
+        assertTrue("Tiered evaluation should skip postings", tiered.getPostingsSkipped() > 0);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testSwitchingModesInvalidatesCache() {
+        ISet<Webpage> corpus = makeCorpus(9);
+        SearchEngine engine = new SearchEngine(corpus);
+        QueryResultCache cache = new QueryResultCache(100);
+        engine.setResultCache(cache);
+        SearchEngine uncached = new SearchEngine(corpus);
+        uncached.setEvaluationMode(EvaluationMode.QUANTIZED_8);
+
+        IList<String> query = query("w1", "w7", "w42");
+        IList<Result> exact = engine.getTopKResults(query, 20);
+        assertEquals(1, cache.size());
+
+        long generation = engine.getIndexGeneration();
+        engine.setEvaluationMode(EvaluationMode.QUANTIZED_8);
+        assertEquals(0, cache.size());
+        assertTrue(engine.getIndexGeneration() > generation);
+
+        // The exact results must not be served as if they were the quantized ones.
+        IList<Result> expected = uncached.getTopKResults(query, 20);
+        IList<Result> actual = engine.getTopKResults(query, 20);
+        assertEquals(expected.size(), actual.size());
+        boolean anyDifferent = false;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore());
+            anyDifferent |= exact.get(i).getScore() != actual.get(i).getScore();
+        }
+        assertTrue(anyDifferent);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testAddAndRemoveWebpages() throws InterruptedException {
+        ISet<Webpage> initial = new ChainedHashSet<>();
+        ISet<Webpage> firstBatch = new ChainedHashSet<>();
+        ISet<Webpage> secondBatch = new ChainedHashSet<>();
+        for (Webpage page : makeCorpus(8)) {
+            int i = Integer.parseInt(page.getSummary().getTitle().substring("title ".length()));
+            if (i < 250) {
+                initial.add(page);
+            } else if (i < 275) {
+                firstBatch.add(page);
+            } else {
+                secondBatch.add(page);
+            }
+        }
+
+        SearchEngine engine = new SearchEngine(initial);
+        long generation = engine.getIndexGeneration();
+        engine.addWebpages(firstBatch);
+        engine.addWebpages(secondBatch);
+        assertTrue(engine.getIndexGeneration() > generation);
+
+        URI[] removed = {pageUri(0), pageUri(17), pageUri(260), pageUri(299)};
+        for (URI uri : removed) {
+            assertTrue(engine.removeWebpage(uri));
+        }
+        assertTrue(!engine.removeWebpage(pageUri(17)));
+        assertTrue(!engine.removeWebpage(pageUri(NUM_PAGES)));
+        engine.getSegmentedIndex().waitForMerges();
+        assertEquals(NUM_PAGES - removed.length, engine.getSegmentedIndex().numDocuments());
+
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            if (!mode.isExact()) {
+                continue;
+            }
+            engine.setEvaluationMode(mode);
+            for (IList<String> query : makeQueries()) {
+                for (int k : new int[] {1, 5, 20}) {
+                    assertSameResults(engine, query,
+                            engine.getTopKResultsExhaustive(query, k),
+                            engine.getTopKResults(query, k));
+                }
+
+                IList<Result> everything = engine.getTopKResults(query, NUM_PAGES);
+                assertEquals(NUM_PAGES - removed.length, everything.size());
+                for (Result result : everything) {
+                    for (URI uri : removed) {
+                        assertTrue("Returned a removed page", !result.getUri().equals(uri));
+                    }
+                }
+            }
+        }
+
+        try {
+            engine.computeScore(query("w1"), pageUri(260));
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // All ok -- expected result
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TfIdfIndexBuilder;
+import search.index.CompiledQuery;
+import search.index.DocumentAtATimeEvaluator;
+import search.index.DocumentRegistry;
+import search.index.ScoredDocument;
+import search.index.TopKCollector;
+import search.models.Webpage;
+import search.scoring.Bm25Scorer;
+import search.scoring.CosineScorer;
+import search.scoring.Scorer;
+import search.segments.EvaluatorFactory;
+import search.segments.MergePolicy;
+import search.segments.Segment;
+import search.segments.SegmentedIndex;
+import search.segments.TieredMergePolicy;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestSegmentedIndex extends BaseTest {
+    private static final int VOCABULARY_SIZE = 40;
+    private static final int WORDS_PER_PAGE = 20;
+
+    private static final EvaluatorFactory DAAT = (index, stats) -> new DocumentAtATimeEvaluator(stats.getBoosts());
+
+    // Never merges anything.
+    private static final MergePolicy NO_MERGES = segments -> new DoubleLinkedList<>();
+
+    // Merges every segment into one as soon as there are two of them.
+    private static final MergePolicy MERGE_ALL = segments -> {
+        IList<IList<Segment>> merges = new DoubleLinkedList<>();
+        if (segments.size() > 1) {
+            merges.add(segments);
+        }
+        return merges;
+    };
+
+    private static URI pageUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    private static IList<String> makeWords(Random rand) {
+        IList<String> words = new DoubleLinkedList<>();
+        int numWords = 1 + rand.nextInt(WORDS_PER_PAGE);
+        for (int j = 0; j < numWords; j++) {
+            words.add("w" + rand.nextInt(1 + rand.nextInt(VOCABULARY_SIZE)));
+        }
+        return words;
+    }
+
+    private static Webpage makePage(int i, IList<String> words) {
+        return new Webpage(pageUri(i), new DoubleLinkedList<>(), words, "title " + i, "blurb " + i);
+    }
+
+    private static IList<String> query(String... words) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : words) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    /**
+     * Builds an index whose first segment holds pages 0 through numPages - 1, with the
+     * given words. Every page has a page rank of 1.
+     */
+    private static SegmentedIndex makeIndex(IList<String>[] words, int numPages, MergePolicy policy) {
+        return makeIndex(words, numPages, policy, new CosineScorer());
+    }
+
+    private static SegmentedIndex makeIndex(
+            IList<String>[] words, int numPages, MergePolicy policy, Scorer scorer) {
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.setScorer(scorer);
+        for (int i = 0; i < numPages; i++) {
+            builder.addPage(registry.register(pageUri(i)), words[i]);
+        }
+        return new SegmentedIndex(builder.build(registry), registry, docId -> 1.0, DAAT, policy, Runnable::run);
+    }
+
+    private static void add(SegmentedIndex index, IList<String>[] words, int start, int end) {
+        Webpage[] pages = new Webpage[end - start];
+        int[] docIds = new int[end - start];
+        for (int i = start; i < end; i++) {
+            pages[i - start] = makePage(i, words[i]);
+            docIds[i - start] = i;
+        }
+        index.add(pages, docIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IList<String>[] makeAllWords(long seed, int numPages) {
+        Random rand = new Random(seed);
+        IList<String>[] words = new IList[numPages];
+        for (int i = 0; i < numPages; i++) {
+            words[i] = makeWords(rand);
+        }
+        return words;
+    }
+
+    /**
+     * Returns the score of every live page, by global doc id, computed by brute force.
+     */
+    private static double[] scoreEverything(SegmentedIndex index, IList<String> query, int numPages) {
+        double[] scores = new double[numPages];
+        for (int i = 0; i < numPages; i++) {
+            scores[i] = -1.0;
+        }
+        for (Segment segment : index.getSegments()) {
+            CompiledQuery compiled = segment.getAnalyzer().resolve(index.weigh(query));
+            for (int docId = 0; docId < segment.size(); docId++) {
+                if (!segment.isDeleted(docId)) {
+                    double relevance = segment.getAnalyzer().computeRelevance(compiled, docId);
+                    scores[segment.getGlobalDocId(docId)] = relevance;
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void assertFindsBest(SegmentedIndex index, IList<String> query, int k, int numPages) {
+        double[] expected = scoreEverything(index, query, numPages);
+        TopKCollector collector = new TopKCollector(k);
+        index.evaluate(query, collector);
+        IList<ScoredDocument> results = collector.drain();
+
+        double previous = Double.POSITIVE_INFINITY;
+        for (ScoredDocument doc : results) {
+            assertTrue("Returned a deleted page", expected[doc.getDocId()] >= 0.0);
+            assertEquals(expected[doc.getDocId()], doc.getScore(), 1e-12);
+            assertTrue(doc.getScore() <= previous);
+            previous = doc.getScore();
+        }
+
+        // Anything not returned must score no higher than the worst result.
+        int numMatching = 0;
+        for (int docId = 0; docId < numPages; docId++) {
+            if (expected[docId] > 0.0) {
+                numMatching++;
+            }
+        }
+        if (results.size() < k) {
+            assertTrue(results.size() >= numMatching);
+        } else {
+            for (int docId = 0; docId < numPages; docId++) {
+                boolean returned = false;
+                for (ScoredDocument doc : results) {
+                    returned |= doc.getDocId() == docId;
+                }
+                if (!returned) {
+                    assertTrue(expected[docId] <= previous + 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddedAndDeletedPages() {
+        IList<String>[] words = makeAllWords(1, 60);
+        SegmentedIndex index = makeIndex(words, 30, NO_MERGES);
+        add(index, words, 30, 45);
+        add(index, words, 45, 60);
+        assertEquals(3, index.getSegments().length);
+        assertEquals(60, index.numDocuments());
+
+        for (int docId : new int[] {0, 7, 31, 44, 59}) {
+            assertTrue(index.delete(docId));
+            assertTrue(!index.contains(docId));
+        }
+        assertTrue(!index.delete(7));
+        assertEquals(55, index.numDocuments());
+        assertEquals(55, index.getStatistics().numDocuments());
+
+        for (int k : new int[] {1, 5, 60}) {
+            assertFindsBest(index, query("w0"), k, 60);
+            assertFindsBest(index, query("w1", "w3", "w20"), k, 60);
+            assertFindsBest(index, query("w5", "w5", "w39"), k, 60);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddingAPageAgainReplacesIt() {
+        IList<String>[] words = makeAllWords(2, 20);
+        SegmentedIndex index = makeIndex(words, 20, NO_MERGES);
+
+        Webpage replacement = makePage(3, query("brand", "new", "words"));
+        index.add(new Webpage[] {replacement}, new int[] {3});
+        assertEquals(20, index.numDocuments());
+        assertEquals(20, index.getStatistics().numDocuments());
+        assertEquals(1, index.getStatistics().getDocumentFrequency("brand"));
+
+        TopKCollector collector = new TopKCollector(5);
+        index.evaluate(query("brand"), collector);
+        IList<ScoredDocument> results = collector.drain();
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).getDocId());
+
+        for (String word : words[3]) {
+            assertFindsBest(index, query(word), 20, 20);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testMergeMatchesFreshIndex() {
+        this.checkMergeMatchesFreshIndex(new CosineScorer());
+    }
+
+    @Test(timeout=SECOND)
+    public void testMergeMatchesFreshIndexWithBm25() {
+        this.checkMergeMatchesFreshIndex(new Bm25Scorer());
+    }
+
+    private void checkMergeMatchesFreshIndex(Scorer scorer) {
+        IList<String>[] words = makeAllWords(3, 50);
+        SegmentedIndex index = makeIndex(words, 20, MERGE_ALL, scorer);
+        add(index, words, 20, 35);
+        assertEquals(1, index.getSegments().length);
+        index.delete(4);
+        index.delete(22);
+        add(index, words, 35, 50);
+        assertEquals(1, index.getSegments().length);
+
+        // Every page but the deleted ones, indexed from scratch.
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.setScorer(scorer);
+        for (int i = 0; i < 50; i++) {
+            if (i != 4 && i != 22) {
+                builder.addPage(registry.register(pageUri(i)), words[i]);
+            }
+        }
+        TfIdfAnalyzer fresh = builder.build(registry);
+
+        Segment segment = index.getSegments()[0];
+        assertEquals(48, segment.size());
+        assertEquals(0, segment.numDeleted());
+        IList<IList<String>> queries = new DoubleLinkedList<>();
+        queries.add(query("w0"));
+        queries.add(query("w2", "w9"));
+        queries.add(query("w1", "w1", "w30"));
+        for (IList<String> query : queries) {
+            CompiledQuery expected = fresh.compile(query);
+            CompiledQuery actual = segment.getAnalyzer().compile(query);
+            for (int docId = 0; docId < 48; docId++) {
+                assertEquals(registry.getUri(docId), segment.getUri(docId));
+                assertEquals(fresh.computeRelevance(expected, docId),
+                        segment.getAnalyzer().computeRelevance(actual, docId), 1e-12);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSegmentMissingAQueryWord() {
+        IList<String>[] words = makeAllWords(6, 21);
+        words[20] = query("w0", "w0", "w1");
+        SegmentedIndex index = makeIndex(words, 20, NO_MERGES);
+        add(index, words, 20, 21);
+        assertEquals(2, index.getSegments().length);
+
+        // Every page, indexed from scratch.
+        DocumentRegistry registry = new DocumentRegistry();
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        for (int i = 0; i < 21; i++) {
+            builder.addPage(registry.register(pageUri(i)), words[i]);
+        }
+        TfIdfAnalyzer fresh = builder.build(registry);
+
+        // The new segment has never seen "w2", but it still counts towards the query's
+        // norm, so the new page scores just like it does in the fresh index. (Pages in
+        // the first segment were weighted before the new page arrived, so their scores
+        // are only approximate until it's merged.)
+        IList<String> query = query("w0", "w2");
+        assertTrue(fresh.getIndex().getPostings("w2").size() > 0);
+        TopKCollector collector = new TopKCollector(21);
+        index.evaluate(query, collector);
+        boolean found = false;
+        for (ScoredDocument doc : collector.drain()) {
+            if (doc.getDocId() == 20) {
+                assertEquals(fresh.computeRelevance(fresh.compile(query), 20), doc.getScore(), 1e-12);
+                found = true;
+            }
+        }
+        assertTrue(found);
+        assertFindsBest(index, query, 5, 21);
+    }
+
+    @Test(timeout=SECOND)
+    public void testTieredMergePolicy() throws InterruptedException {
+        IList<String>[] words = makeAllWords(4, 40);
+        SegmentedIndex index = makeIndex(words, 10, new TieredMergePolicy(3, 0.5));
+        add(index, words, 10, 11);
+        add(index, words, 11, 12);
+        assertEquals(3, index.getSegments().length);
+
+        // The third single-page segment fills tier 0, so the three get merged.
+        add(index, words, 12, 13);
+        index.waitForMerges();
+        assertEquals(2, index.getSegments().length);
+        assertEquals(13, index.numDocuments());
+
+        // Deleting over half the merged segment gets it merged on its own.
+        index.delete(10);
+        index.delete(11);
+        index.waitForMerges();
+        assertEquals(2, index.getSegments().length);
+        for (Segment segment : index.getSegments()) {
+            assertEquals(0, segment.numDeleted());
+        }
+        assertEquals(11, index.numDocuments());
+        assertFindsBest(index, query("w0", "w1"), 20, 40);
+    }
+
+    @Test(timeout=SECOND)
+    public void testEveryChangeBumpsTheGeneration() {
+        IList<String>[] words = makeAllWords(5, 10);
+        SegmentedIndex index = makeIndex(words, 5, MERGE_ALL);
+        long generation = index.getGeneration();
+
+        index.delete(2);
+        assertTrue(index.getGeneration() > generation);
+        generation = index.getGeneration();
+
+        assertTrue(!index.delete(2));
+        assertEquals(generation, index.getGeneration());
+
+        // Adding a segment and then merging it away count as two changes.
+        add(index, words, 5, 10);
+        assertEquals(generation + 2, index.getGeneration());
+    }
+}
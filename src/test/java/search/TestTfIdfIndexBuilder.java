@@ -0,0 +1,190 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TfIdfIndexBuilder;
+import search.index.DocumentRegistry;
+import search.index.DocumentStats;
+import search.index.InvertedIndex;
+import search.index.PostingsList;
+import search.index.SparseVector;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestTfIdfIndexBuilder extends BaseTest {
+    private static final String[] DOCUMENTS = {
+        "the mouse played with the cat",
+        "the quick brown fox jumped over the lazy dog",
+        "dog 1 and dog 2 ate the hot dog",
+        "a cat and a dog",
+    };
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private DocumentRegistry makeRegistry(int numDocuments) {
+        DocumentRegistry registry = new DocumentRegistry();
+        for (int i = 0; i < numDocuments; i++) {
+            registry.register(URI.create("http://example.com/page-" + i + ".html"));
+        }
+        return registry;
+    }
+
+    private TfIdfAnalyzer build(int[] addOrder) {
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        for (int docId : addOrder) {
+            builder.addPage(docId, this.strToIList(DOCUMENTS[docId]));
+        }
+        return builder.build(this.makeRegistry(DOCUMENTS.length));
+    }
+
+    private void assertSameIndex(TfIdfAnalyzer expected, TfIdfAnalyzer actual) {
+        InvertedIndex expectedIndex = expected.getIndex();
+        InvertedIndex actualIndex = actual.getIndex();
+        assertEquals(expectedIndex.numTerms(), actualIndex.numTerms());
+        for (int termId = 0; termId < expectedIndex.numTerms(); termId++) {
+            PostingsList expectedPostings = expectedIndex.getPostings(termId);
+            PostingsList actualPostings = actualIndex.getPostings(termId);
+            assertEquals(expectedPostings.size(), actualPostings.size());
+            for (int i = 0; i < expectedPostings.size(); i++) {
+                assertEquals(expectedPostings.getDocId(i), actualPostings.getDocId(i));
+                assertEquals(expectedPostings.getWeight(i), actualPostings.getWeight(i), 0.0);
+            }
+        }
+        for (int docId = 0; docId < expectedIndex.numDocuments(); docId++) {
+            assertEquals(expectedIndex.getDocumentNorm(docId), actualIndex.getDocumentNorm(docId), 0.0);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddOrderDoesNotMatter() {
+        TfIdfAnalyzer inOrder = this.build(new int[] {0, 1, 2, 3});
+        TfIdfAnalyzer reversed = this.build(new int[] {3, 2, 1, 0});
+        TfIdfAnalyzer shuffled = this.build(new int[] {2, 0, 3, 1});
+        this.assertSameIndex(inOrder, reversed);
+        this.assertSameIndex(inOrder, shuffled);
+
+        IList<String> query = this.strToIList("the dog and the cat");
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            assertEquals(
+                    inOrder.computeRelevance(inOrder.compile(query), docId),
+                    shuffled.computeRelevance(shuffled.compile(query), docId),
+                    0.0);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBuilderDoesNotKeepWords() {
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            IList<String> words = this.strToIList(DOCUMENTS[docId]);
+            builder.addPage(docId, words);
+            while (!words.isEmpty()) {
+                words.remove();
+            }
+        }
+        assertEquals(DOCUMENTS.length, builder.numPages());
+        this.assertSameIndex(this.build(new int[] {0, 1, 2, 3}), builder.build(this.makeRegistry(DOCUMENTS.length)));
+    }
+
+    @Test(timeout=SECOND)
+    public void testMissingPagesHaveEmptyVectors() {
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.addPage(1, this.strToIList("cat dog"));
+        builder.addPage(3, this.strToIList("cat"));
+        TfIdfAnalyzer analyzer = builder.build(this.makeRegistry(DOCUMENTS.length));
+
+        InvertedIndex index = analyzer.getIndex();
+        assertEquals(DOCUMENTS.length, index.numDocuments());
+        assertEquals(0.0, index.getDocumentNorm(0), 0.0);
+        assertEquals(0.0, index.getDocumentNorm(2), 0.0);
+        assertEquals(Math.log(2.0) / 2, index.getDocumentNorm(1), 1e-12);
+        assertEquals(0.0, index.getDocumentNorm(3), 0.0);
+        assertEquals(1, index.getPostings(index.getTermId("dog")).size());
+        assertEquals(2, index.getPostings(index.getTermId("cat")).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testDocumentStats() {
+        TfIdfAnalyzer analyzer = this.build(new int[] {0, 1, 2, 3});
+        InvertedIndex index = analyzer.getIndex();
+        double[] pageRanks = {4.0, 1.0, 0.25, 9.0};
+
+        // The cosine scorer doesn't use document lengths, so they aren't kept.
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            assertEquals(0, analyzer.getDocumentLength(docId));
+        }
+
+        DocumentStats stats = new DocumentStats(index, null, pageRanks, analyzer.getScorer());
+        assertEquals(DOCUMENTS.length, stats.numDocuments());
+        assertTrue(!stats.hasLengths());
+        assertTrue(stats.hasPageRanks());
+        for (int docId = 0; docId < DOCUMENTS.length; docId++) {
+            double norm = index.getDocumentNorm(docId);
+            assertEquals(norm, stats.getNorm(docId), 0.0);
+            assertEquals(Math.sqrt(pageRanks[docId]), stats.getSqrtPageRank(docId), 0.0);
+            assertEquals(Math.sqrt(pageRanks[docId]) / norm, stats.getBoost(docId), 1e-12);
+
+            // The stored vector is the term frequencies scaled to a unit TF-IDF vector.
+            SparseVector normalized = analyzer.getDocumentWeights(docId);
+            SparseVector tfs = analyzer.getTermFrequencies(docId);
+            double length = 0.0;
+            for (int i = 0; i < normalized.size(); i++) {
+                double weight = normalized.getWeight(i) * analyzer.getIdfScore(normalized.getTermId(i));
+                length += weight * weight;
+                assertEquals(normalized.getWeight(i) * norm, tfs.getWeight(i), 1e-12);
+            }
+            assertEquals(1.0, length, 1e-12);
+        }
+
+        try {
+            new DocumentStats(index, null, new double[1], analyzer.getScorer());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsMisuse() {
+        TfIdfIndexBuilder builder = new TfIdfIndexBuilder();
+        builder.addPage(0, this.strToIList("cat"));
+        try {
+            builder.addPage(0, this.strToIList("dog"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+        try {
+            builder.addPage(-1, this.strToIList("dog"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // All ok -- expected result
+        }
+
+        builder.build(this.makeRegistry(1));
+        try {
+            builder.addPage(1, this.strToIList("dog"));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // All ok -- expected result
+        }
+        try {
+            builder.build(this.makeRegistry(1));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // All ok -- expected result
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.InvertedIndex;
+import search.index.Vocabulary;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestVocabulary extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testTermIdsFollowSortedOrder() {
+        Vocabulary vocabulary = Vocabulary.of("pear", "apple", "banana", "apple", "applesauce");
+        assertEquals(4, vocabulary.size());
+        assertEquals(0, vocabulary.getTermId("apple"));
+        assertEquals(1, vocabulary.getTermId("applesauce"));
+        assertEquals(2, vocabulary.getTermId("banana"));
+        assertEquals(3, vocabulary.getTermId("pear"));
+        assertEquals("applesauce", vocabulary.getTerm(1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnknownTerms() {
+        Vocabulary vocabulary = Vocabulary.of("b", "d", "f");
+        for (String term : new String[] {"", "a", "c", "e", "g", "bb", "d "}) {
+            assertEquals(InvertedIndex.UNKNOWN_TERM, vocabulary.getTermId(term));
+        }
+        assertEquals(InvertedIndex.UNKNOWN_TERM, Vocabulary.of().getTermId("a"));
+        try {
+            vocabulary.getTerm(3);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // All ok -- expected result
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testNonAsciiTerms() {
+        String[] terms = {"caf\u00e9", "cafe", "\u65e5\u672c", "na\u00efve", "\ud83d\ude00", ""};
+        Vocabulary vocabulary = Vocabulary.of(terms);
+        assertEquals(terms.length, vocabulary.size());
+        for (String term : terms) {
+            int termId = vocabulary.getTermId(term);
+            assertTrue(termId != InvertedIndex.UNKNOWN_TERM);
+            assertEquals(term, vocabulary.getTerm(termId));
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testManyTermsRoundTrip() {
+        // Enough terms to span many blocks, with plenty of shared prefixes.
+        Random rand = new Random(7);
+        String[] terms = new String[5000];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = "term" + rand.nextInt(100000) + (rand.nextBoolean() ? "s" : "");
+        }
+        Vocabulary vocabulary = Vocabulary.of(terms);
+
+        String[] sorted = Arrays.stream(terms).distinct().sorted().toArray(String[]::new);
+        assertEquals(sorted.length, vocabulary.size());
+        for (int termId = 0; termId < sorted.length; termId++) {
+            assertEquals(sorted[termId], vocabulary.getTerm(termId));
+            assertEquals(termId, vocabulary.getTermId(sorted[termId]));
+            assertEquals(InvertedIndex.UNKNOWN_TERM, vocabulary.getTermId(sorted[termId] + "x"));
+        }
+
+        // Front coding should beat storing every term's characters in full.
+        long plainBytes = 0;
+        for (String term : sorted) {
+            plainBytes += term.length();
+        }
+        assertTrue(vocabulary.sizeInBytes() < plainBytes);
+    }
+}